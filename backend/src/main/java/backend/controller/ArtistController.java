@@ -1,8 +1,11 @@
 package backend.controller;
 
 import backend.dto.ArtistDTO;
+import backend.dto.PlaylistSummaryDTO;
 import backend.service.ArtistService;
+import backend.service.PlaylistService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
@@ -12,9 +15,11 @@ import java.util.List;
 public class ArtistController {
 
     private final ArtistService artistService;
+    private final PlaylistService playlistService;
 
-    public ArtistController(ArtistService artistService) {
+    public ArtistController(ArtistService artistService, PlaylistService playlistService) {
         this.artistService = artistService;
+        this.playlistService = playlistService;
     }
 
     @PostMapping
@@ -44,13 +49,32 @@ public class ArtistController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ArtistDTO>> getAllArtists() {
-        return ResponseEntity.ok(artistService.getAllArtists());
+    public ResponseEntity<List<ArtistDTO>> getAllArtists(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = CursorResponses.DEFAULT_LIMIT) int limit) {
+        if (!CursorResponses.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return CursorResponses.ok(artistService.getAllArtists(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // GET artists/{id}/playlists: playlists featuring at least one of the artist's songs
+    @GetMapping("/{id}/playlists")
+    public ResponseEntity<List<PlaylistSummaryDTO>> getPlaylistsWithArtist(@PathVariable Long id,
+                                                                           Authentication authentication) {
+        String viewer = authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+        return ResponseEntity.ok(playlistService.getPlaylistsWithArtist(id, viewer));
     }
 
     //GET artists/top (first 5 artists) or GET artists/top?limit=x (first x artists)
     @GetMapping("/top")
     public ResponseEntity<List<ArtistDTO>> getTopArtists(@RequestParam(defaultValue = "5") int limit) {
+        if (limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok(artistService.getTopArtists(limit));
     }
     @PutMapping("/{id}")
@@ -0,0 +1,32 @@
+package backend.controller;
+
+import backend.dto.CursorPage;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * List endpoints keep returning a plain JSON array; the cursor of the next page travels in the
+ * {@value #NEXT_CURSOR} header and is absent on the last page.
+ */
+final class CursorResponses {
+
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    static final String DEFAULT_LIMIT = "100";
+    static final int MAX_LIMIT = 500;
+
+    private CursorResponses() {
+    }
+
+    static boolean isValidLimit(int limit) {
+        return limit >= 1 && limit <= MAX_LIMIT;
+    }
+
+    static <T> ResponseEntity<List<T>> ok(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+}
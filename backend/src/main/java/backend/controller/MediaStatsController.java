@@ -0,0 +1,44 @@
+package backend.controller;
+
+import backend.service.HotTrackCache;
+import backend.service.PlaylistReadAhead;
+import backend.service.StreamThrottle;
+import backend.service.StreamingBulkhead;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational counters for the media delivery path, used to size caches and limits.
+ * GET /media/stats
+ */
+@RestController
+@RequestMapping("/media")
+@CrossOrigin("*")
+public class MediaStatsController {
+
+    private final HotTrackCache hotTrackCache;
+    private final PlaylistReadAhead playlistReadAhead;
+    private final StreamThrottle streamThrottle;
+    private final StreamingBulkhead streamingBulkhead;
+
+    public MediaStatsController(HotTrackCache hotTrackCache, PlaylistReadAhead playlistReadAhead,
+                                StreamThrottle streamThrottle, StreamingBulkhead streamingBulkhead) {
+        this.hotTrackCache = hotTrackCache;
+        this.playlistReadAhead = playlistReadAhead;
+        this.streamThrottle = streamThrottle;
+        this.streamingBulkhead = streamingBulkhead;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hotTrackCache", hotTrackCache.stats());
+        stats.put("playlistReadAhead", playlistReadAhead.stats());
+        stats.put("streams", streamThrottle.stats());
+        stats.put("streamingBulkhead", streamingBulkhead.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -1,11 +1,25 @@
 package backend.controller;
 
+import backend.dto.CursorPage;
 import backend.dto.PlaylistDTO;
+import backend.dto.PlaylistSummaryDTO;
 import backend.dto.SongDTO;
 import backend.mapper.PlaylistMapper;
+import backend.service.ClientIdentity;
+import backend.service.MediaStreamer;
+import backend.service.PlaylistReadAhead;
 import backend.service.PlaylistService;
+import backend.service.PlaylistService.DownloadPlan;
+import backend.service.PlaylistService.PlaylistDownload;
+import backend.service.StreamThrottle;
+import backend.service.StreamingBulkhead;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -13,10 +27,23 @@ import java.util.List;
 @CrossOrigin("*")
 public class PlaylistController {
 
+    // Indexing a few songs takes seconds; the client tries the download again after this.
+    private static final int DOWNLOAD_RETRY_AFTER_SECONDS = 10;
+
     private final PlaylistService playlistService;
+    private final PlaylistReadAhead playlistReadAhead;
+    private final MediaStreamer mediaStreamer;
+    private final StreamingBulkhead streamingBulkhead;
+    private final StreamThrottle streamThrottle;
 
-    public PlaylistController(PlaylistService playlistService) {
+    public PlaylistController(PlaylistService playlistService, PlaylistReadAhead playlistReadAhead,
+                              MediaStreamer mediaStreamer, StreamingBulkhead streamingBulkhead,
+                              StreamThrottle streamThrottle) {
         this.playlistService = playlistService;
+        this.playlistReadAhead = playlistReadAhead;
+        this.mediaStreamer = mediaStreamer;
+        this.streamingBulkhead = streamingBulkhead;
+        this.streamThrottle = streamThrottle;
     }
 
     @PostMapping
@@ -32,13 +59,90 @@ public class PlaylistController {
     }
 
     @GetMapping("/{playlistId}/songs")
-    public ResponseEntity<List<SongDTO>> getPlaylistSongs(@PathVariable Long playlistId) {
-        return ResponseEntity.ok(playlistService.getPlaylistSongs(playlistId));
+    public ResponseEntity<List<SongDTO>> getPlaylistSongs(@PathVariable Long playlistId,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = CursorResponses.DEFAULT_LIMIT) int limit,
+                                                          HttpServletRequest request) {
+        if (!CursorResponses.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorPage<SongDTO> songs;
+        try {
+            songs = playlistService.getPlaylistSongs(playlistId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Only the first page starts read-ahead; later pages would replace the listener's plan.
+        if (cursor == null) {
+            playlistReadAhead.warm(ClientIdentity.of(request), songs.items().stream().map(SongDTO::id).toList());
+        }
+        return CursorResponses.ok(songs);
+    }
+
+    // Called when the listener leaves the playlist view.
+    @DeleteMapping("/read-ahead")
+    public ResponseEntity<Void> cancelReadAhead(HttpServletRequest request) {
+        playlistReadAhead.cancel(ClientIdentity.of(request));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * The whole playlist as an uncompressed ZIP, generated while it is sent. The layout is
+     * deterministic, so an interrupted download can resume with a Range request. Downloads are
+     * admitted and paced like song streams, from the same per-address slots and budget.
+     */
+    @GetMapping("/{playlistId}/download")
+    public void downloadPlaylist(@PathVariable Long playlistId,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        DownloadPlan plan = playlistService.planDownload(playlistId);
+        String client = ClientIdentity.address(request);
+
+        streamingBulkhead.execute(request, response, () -> {
+            // Finding the files may download every song from storage, which is no job for a container thread.
+            if (streamingBulkhead.defer(request)) return;
+
+            StreamThrottle.Permit permit = streamThrottle.admit(client);
+            if (permit == null) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(streamThrottle.retryAfterSeconds()));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            try (permit) {
+                PlaylistDownload download;
+                try {
+                    download = playlistService.buildDownload(plan);
+                } catch (IllegalStateException e) {
+                    // Over the 4 GiB / 65535 entry limits of a ZIP without ZIP64.
+                    response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+                    return;
+                } catch (PlaylistService.DownloadNotReadyException e) {
+                    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(DOWNLOAD_RETRY_AFTER_SECONDS));
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+                    return;
+                }
+
+                try (download) {
+                    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(download.filename(), StandardCharsets.UTF_8).build().toString());
+                    // Paced at the default bitrate: a playlist has no single one.
+                    mediaStreamer.serve(permit.shape(download.archive(), null), request, response);
+                }
+            }
+        });
     }
 
     @GetMapping
-    public ResponseEntity<List<PlaylistDTO>> getAllPlaylists() {
-        return ResponseEntity.ok(playlistService.getAllPlaylists());
+    public ResponseEntity<List<PlaylistSummaryDTO>> getAllPlaylists(@RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = CursorResponses.DEFAULT_LIMIT) int limit) {
+        if (!CursorResponses.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return CursorResponses.ok(playlistService.getAllPlaylists(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,30 @@
+package backend.controller;
+
+import backend.dto.SuggestionDTO;
+import backend.service.SearchSuggestIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+@CrossOrigin("*")
+public class SearchController {
+
+    private final SearchSuggestIndex searchSuggestIndex;
+
+    public SearchController(SearchSuggestIndex searchSuggestIndex) {
+        this.searchSuggestIndex = searchSuggestIndex;
+    }
+
+    // Called on every keystroke of the search box; answered from memory without touching the database.
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "8") int limit) {
+        if (limit < 1 || limit > SearchSuggestIndex.TOP) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(searchSuggestIndex.suggest(q, limit));
+    }
+}
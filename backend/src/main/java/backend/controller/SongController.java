@@ -1,23 +1,51 @@
 package backend.controller;
 
 import backend.dto.SongDTO;
+import backend.dto.SongFacetsDTO;
+import backend.dto.UploadJobDTO;
+import backend.model.Artist;
+import backend.model.Genre;
+import backend.service.BlobStore;
+import backend.service.ClientIdentity;
+import backend.service.ContentHashedMediaSource;
+import backend.service.FileMediaSource;
+import backend.service.HlsPackager;
+import backend.service.HotTrackCache;
+import backend.service.MappedMediaSource;
+import backend.service.MediaLocator;
+import backend.service.MediaSource;
+import backend.service.MediaStorage;
+import backend.service.MediaStreamer;
+import backend.service.MediaUrlSigner;
+import backend.service.Mp3Indexer;
 import backend.service.SongLikeService;
+import backend.service.SongLocationCache;
+import backend.service.SongLocationCache.SongLocation;
 import backend.service.SongService;
+import backend.service.StreamThrottle;
+import backend.service.StreamingBulkhead;
+import backend.service.ThumbnailService;
+import backend.service.UploadPipeline;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize; // ✅ ADDED
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/songs")
@@ -25,8 +53,22 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SongController {
 
+    private static final long ONE_YEAR_SECONDS = 31536000;
+
     private final SongService songService;
     private final SongLikeService songLikeService;
+    private final MediaStreamer mediaStreamer;
+    private final HlsPackager hlsPackager;
+    private final HotTrackCache hotTrackCache;
+    private final SongLocationCache songLocationCache;
+    private final Mp3Indexer mp3Indexer;
+    private final StreamThrottle streamThrottle;
+    private final StreamingBulkhead streamingBulkhead;
+    private final MediaLocator mediaLocator;
+    private final MediaUrlSigner mediaUrlSigner;
+    private final UploadPipeline uploadPipeline;
+    private final ThumbnailService thumbnailService;
+    private final BlobStore blobStore;
 
     @PostMapping("/{songId}/like")
     public ResponseEntity<Void> toggleLike(@PathVariable Long songId,
@@ -37,25 +79,47 @@ public class SongController {
 
     @PreAuthorize("hasRole('ARTIST')")
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<SongDTO> createSong(
+    public ResponseEntity<UploadJobDTO> createSong(
             @RequestParam("name") String name,
             @RequestParam("genre") String genre,
             @RequestPart("image") MultipartFile image,
             Authentication authentication,
-            @RequestPart("file") MultipartFile file) {
+            @RequestPart("file") MultipartFile file) throws IOException {
 
-        return ResponseEntity.ok(songService.createSong(name, genre, image, file, authentication));
+        // Processing continues in the background; the client polls the job for the song.
+        Artist artist = songService.resolveUploadingArtist(authentication);
+        try {
+            UploadJobDTO job = uploadPipeline.submit(new UploadPipeline.UploadRequest(authentication.getName(),
+                    name, genre, artist, uploadPipeline.stage(file), uploadPipeline.stage(image)));
+            return ResponseEntity.accepted().location(URI.create("/uploads/" + job.id())).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
     }
 
     @GetMapping
-    public ResponseEntity<List<SongDTO>> getSongs(@RequestParam(required = false) String name) {
-        List<SongDTO> songs;
+    public ResponseEntity<List<SongDTO>> getSongs(@RequestParam(required = false) String name,
+                                                  @RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "50") int size,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = CursorResponses.DEFAULT_LIMIT) int limit) {
         if (name != null && !name.trim().isEmpty()) {
-            songs = songService.getSongsByName(name);
-        } else {
-            songs = songService.getAllSongs();
+            // Search results are ranked, not id-ordered, so they keep offset paging.
+            if (page < 0 || size < 1 || size > 200) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(songService.getSongsByName(name, page, size));
+        }
+        if (!CursorResponses.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return CursorResponses.ok(songService.getAllSongs(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(songs);
     }
 
     // NOTE:
@@ -101,61 +165,309 @@ public class SongController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Streams a song with Range support. {@code ?t=seconds} seeks by time instead: the response
+     * starts at the frame playing at that point, located through the track's seek index. With
+     * {@code MEDIA_DELIVERY=redirect} and S3 storage, uploaded songs answer with a 302 to a
+     * presigned storage URL instead.
+     */
     @GetMapping("/{id}/stream")
-    public ResponseEntity<Resource> streamSong(@PathVariable Long id) {
-        SongDTO song = songService.getSongById(id);
-        if (song == null || song.filepath() == null) return ResponseEntity.notFound().build();
+    public void streamSong(@PathVariable Long id,
+                           @RequestParam(name = "t", required = false) Double t,
+                           @RequestParam(required = false) Long exp,
+                           @RequestParam(required = false) String sig,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        String filepath = songLocationCache.filepathOf(id);
+        if (filepath == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!mediaUrlSigner.permits("stream", id, filepath, exp, sig)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
 
-        // 1. Check in manually added resources (src/main/resources/audio)
-        Resource resource = new ClassPathResource("audio/" + song.filepath());
+        // With redirect delivery the bytes come straight from storage. Time seeks still need
+        // our seek index, so those are served here.
+        if (t == null) {
+            URI direct = blobStore.directUrl(filepath, "audio/mpeg");
+            if (direct != null) {
+                // The presigned URL expires long before a signed stream URL would.
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                response.sendRedirect(direct.toString());
+                return;
+            }
+        }
+
+        // Streams are admitted per address: signed media URLs carry no login.
+        String client = ClientIdentity.address(request);
+        streamingBulkhead.execute(request, response, () -> {
+            // Pinned first, so an S3 cache cannot evict the file before it has been sent.
+            try (MediaStorage.Pin pin = blobStore.pin(filepath)) {
+                // Cached id -> file lookup: no SQL and no exists() probes once a song has been played.
+                SongLocation location = songLocationCache.cached(id);
+                if (location == null) {
+                    // Resolving may download the blob from storage, which is no job for a container thread.
+                    if (streamingBulkhead.defer(request)) return;
+                    location = songLocationCache.get(id);
+                    if (location == null) {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                        return;
+                    }
+                }
+
+                StreamThrottle.Permit permit = streamThrottle.tryAdmit(client);
+                if (permit == null && streamThrottle.saturated()) {
+                    // Queueing for a slot is no job for a container thread.
+                    if (streamingBulkhead.defer(request)) return;
+                    permit = streamThrottle.admit(client);
+                }
+                if (permit == null) {
+                    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(streamThrottle.retryAfterSeconds()));
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    return;
+                }
+
+                FileMediaSource file = location.audio();
+                MappedMediaSource hot = null;
+                try (permit) {
+                    long seekOffset = t != null && t > 0 ? mp3Indexer.offsetFor(file, t) : 0;
+
+                    hot = hotTrackCache.acquire(file);
+                    MediaSource source = permit.shape(hot != null ? hot : file, location.bitrateKbps());
+                    // Only now: a 503 from the bulkhead or the throttle must not be cached.
+                    cacheUntilExpiry(exp, response);
+                    if (seekOffset > 0) {
+                        mediaStreamer.serveFrom(source, seekOffset, request, response);
+                    } else {
+                        mediaStreamer.serve(source, request, response);
+                    }
+                } finally {
+                    if (hot != null) hot.close();
+                }
+            }
+        });
+    }
+
+    // A signed URL stays valid until it expires, so shared caches may keep the response that long.
+    private static void cacheUntilExpiry(Long exp, HttpServletResponse response) {
+        if (exp == null) return;
+        long maxAge = Math.max(0, exp - System.currentTimeMillis() / 1000);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge);
+    }
 
-        // 2. If not found in resources, check in the external uploads folder
-        if (!resource.exists()) {
-            Path uploadPath = Paths.get("uploads/audio").toAbsolutePath().resolve(song.filepath());
-            resource = new FileSystemResource(uploadPath);
+    /**
+     * HLS playlist for a song. Tracks that were never packaged here (bundled or pre-existing
+     * uploads, or packaged by another instance) are segmented on first request. A signed playlist
+     * lists its segments with the same signature, so a player can fetch them without knowing about it.
+     */
+    @GetMapping("/{id}/hls/" + HlsPackager.MANIFEST_NAME)
+    public void getHlsManifest(@PathVariable Long id,
+                               @RequestParam(required = false) Long exp,
+                               @RequestParam(required = false) String sig,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        // Only packaging needs the audio itself, so a packaged track is never fetched from storage.
+        String filepath = songLocationCache.filepathOf(id);
+        if (filepath == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        if (!mediaUrlSigner.permits("hls", id, filepath, exp, sig)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        streamingBulkhead.execute(request, response, () -> {
+            if (!ensurePackaged(filepath, request, response)) return;
 
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
+            if (exp == null) {
+                Path manifest = hlsPackager.resolve(filepath, HlsPackager.MANIFEST_NAME);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=300");
+                mediaStreamer.serve(FileMediaSource.of(manifest, "application/vnd.apple.mpegurl"), request, response);
+                return;
+            }
+            byte[] manifest = hlsPackager.manifestWithQuery(filepath, "exp=" + exp + "&sig=" + sig)
+                    .getBytes(StandardCharsets.UTF_8);
+            cacheUntilExpiry(exp, response);
+            response.setContentType("application/vnd.apple.mpegurl");
+            response.setContentLength(manifest.length);
+            response.getOutputStream().write(manifest);
+        });
+    }
+
+    /**
+     * HLS segments are immutable once written, so any HTTP cache may keep them forever (or until
+     * their signature expires). They are signed like the playlist that lists them.
+     */
+    @GetMapping("/{id}/hls/{segment:segment-\\d+\\.mp3}")
+    public void getHlsSegment(@PathVariable Long id,
+                              @PathVariable String segment,
+                              @RequestParam(required = false) Long exp,
+                              @RequestParam(required = false) String sig,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        String filepath = songLocationCache.filepathOf(id);
+        if (filepath == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!mediaUrlSigner.permits("hls", id, filepath, exp, sig)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
         }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("audio/mpeg"))
-                .body(resource);
+        streamingBulkhead.execute(request, response, () -> {
+            // Packages are local to each instance, and the playlist may have come from another one.
+            // Packaging is deterministic, so the segments made here match the ones it lists.
+            if (!ensurePackaged(filepath, request, response)) return;
+
+            Path segmentPath = hlsPackager.resolve(filepath, segment);
+            if (segmentPath == null || !Files.isRegularFile(segmentPath)) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            cacheImmutable(exp, response);
+            mediaStreamer.serve(FileMediaSource.of(segmentPath, "audio/mpeg"), request, response);
+        });
+    }
+
+    /**
+     * Packages the track unless that has been done here already. False when the caller must
+     * return: the task was deferred (packaging may download and segment a whole track, which is
+     * no job for a container thread) or the audio does not exist, which has been answered with a 404.
+     */
+    private boolean ensurePackaged(String filepath, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        if (hlsPackager.isPackaged(filepath)) return true;
+        if (streamingBulkhead.defer(request)) return false;
+        try (MediaStorage.Pin pin = blobStore.pin(filepath)) {
+            if (hlsPackager.ensurePackaged(filepath) == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Cover images. Blob-stored covers are named by their content hash, so their URL changes
+     * whenever the bytes do and they can be cached as immutable, with the hash as ETag.
+     */
     @GetMapping("/image/{filename:.+}")
-    public ResponseEntity<Resource> getSongImage(@PathVariable String filename) {
-        Resource resource;
+    public void getSongImage(@PathVariable String filename,
+                             @RequestParam(required = false) Integer size,
+                             @RequestParam(required = false) Long exp,
+                             @RequestParam(required = false) String sig,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        if (!mediaUrlSigner.permits("image", null, filename, exp, sig)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        String sha256 = BlobStore.keyOf(filename);
+        response.setHeader("X-Content-Type-Options", "nosniff");
 
-        // 1) Check classpath (optional)
-        resource = new ClassPathResource("images/" + filename);
+        streamingBulkhead.execute(request, response, () -> {
+            try (MediaStorage.Pin pin = mediaLocator.pinImage(filename)) {
+                Path image = mediaLocator.localImage(filename);
+                if (image == null) {
+                    // Resolving may download the image from storage, which is no job for a container thread.
+                    if (streamingBulkhead.defer(request)) return;
+                    image = mediaLocator.resolveImage(filename);
+                    if (image == null) {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                        return;
+                    }
+                }
+                // Mosaics are always JPEG and have no media_blobs row to look the type up in.
+                String contentType = mediaLocator.isMosaic(image) ? "image/jpeg" : imageContentType(filename, sha256);
 
-        // 2) Check uploads folder
-        if (!resource.exists()) {
-            Path uploadPath = Paths.get("uploads/images").toAbsolutePath().resolve(filename);
-            resource = new FileSystemResource(uploadPath);
-        }
+                // ?size= picks a downscaled variant, generated here (under a bulkhead permit) if missing.
+                ThumbnailService.Thumbnail thumbnail = null;
+                if (size != null && size > 0) {
+                    thumbnail = thumbnailService.existingVariant(image, size);
+                    if (thumbnail == null) {
+                        // Decoding and scaling is no job for a container thread either.
+                        if (streamingBulkhead.defer(request)) return;
+                        thumbnail = thumbnailService.variant(image, size);
+                    }
+                }
+                MediaSource source;
+                if (thumbnail != null) {
+                    // A blob's variants are named <sha256>.w<size>.<ext>, as unique as the hash itself.
+                    source = sha256 != null
+                            ? ContentHashedMediaSource.of(thumbnail.path(), thumbnail.contentType(),
+                                    thumbnail.path().getFileName().toString())
+                            : FileMediaSource.of(thumbnail.path(), thumbnail.contentType());
+                } else {
+                    source = sha256 != null
+                            ? ContentHashedMediaSource.of(image, contentType, sha256)
+                            : FileMediaSource.of(image, contentType);
+                }
+                // Only now: a 503 from the bulkhead or a failed thumbnail must not be cached.
+                if (sha256 != null) {
+                    cacheImmutable(exp, response);
+                } else {
+                    cacheUntilExpiry(exp, response);
+                }
+                mediaStreamer.serve(source, request, response);
+            }
+        });
+    }
 
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
+    // The type recorded at upload for blobs; legacy files only have their name to go by.
+    private String imageContentType(String filename, String sha256) {
+        String stored = sha256 != null ? blobStore.contentTypeOf(sha256) : null;
+        if (stored != null && stored.startsWith("image/")) return stored;
+        return MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    // A year, or until a signed URL expires, whichever comes first.
+    private static void cacheImmutable(Long exp, HttpServletResponse response) {
+        long maxAge = ONE_YEAR_SECONDS;
+        if (exp != null) {
+            maxAge = Math.min(maxAge, Math.max(0, exp - System.currentTimeMillis() / 1000));
         }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge + ", immutable");
+    }
 
-        MediaType contentType = MediaType.APPLICATION_OCTET_STREAM;
+    @GetMapping("/like")
+    public ResponseEntity<List<SongDTO>> getLikedSongs(@RequestParam Long userId,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = CursorResponses.DEFAULT_LIMIT) int limit) {
+        if (!CursorResponses.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            String detected = java.nio.file.Files.probeContentType(resource.getFile().toPath());
-            if (detected != null) contentType = MediaType.parseMediaType(detected);
-        } catch (Exception ignored) {
+            return CursorResponses.ok(songLikeService.getLikedSongs(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-
-        return ResponseEntity.ok()
-                .contentType(contentType)
-                .body(resource);
     }
 
-    @GetMapping("/like")
-    public ResponseEntity<List<SongDTO>> getLikedSongs(@RequestParam Long userId) {
-        return ResponseEntity.ok(songLikeService.getLikedSongs(userId));
+    /**
+     * Explore filters in one call: e.g. {@code /songs/facets?genre=ROCK&artistId=3&likedBy=7}.
+     * Every filter is optional; the counts show what each genre or artist would leave.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<SongFacetsDTO> getSongFacets(@RequestParam(required = false) Genre genre,
+                                                       @RequestParam(required = false) Long artistId,
+                                                       @RequestParam(required = false) Long likedBy,
+                                                       @RequestParam(defaultValue = "0") int page,
+                                                       @RequestParam(defaultValue = "50") int size) {
+        if (page < 0 || size < 1 || size > 200) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(songService.getSongFacets(genre, artistId, likedBy, page, size));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
     }
 
     @GetMapping("/genre/{genreName}")
@@ -0,0 +1,35 @@
+package backend.controller;
+
+import backend.dto.UploadJobDTO;
+import backend.service.UploadPipeline;
+import backend.service.UploadPipeline.JobNotFoundException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Progress of uploads being processed by {@link UploadPipeline}. Jobs are only visible to the
+ * artist who submitted them and are forgotten an hour after they finish.
+ */
+@RestController
+@RequestMapping("/uploads")
+@CrossOrigin("*")
+@PreAuthorize("hasRole('ARTIST')")
+public class UploadJobController {
+
+    private final UploadPipeline uploadPipeline;
+
+    public UploadJobController(UploadPipeline uploadPipeline) {
+        this.uploadPipeline = uploadPipeline;
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<UploadJobDTO> getJob(@PathVariable String jobId, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(uploadPipeline.get(jobId, authentication.getName()));
+        } catch (JobNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
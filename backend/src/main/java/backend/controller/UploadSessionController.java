@@ -0,0 +1,163 @@
+package backend.controller;
+
+import backend.dto.FinalizeUploadRequest;
+import backend.dto.UploadJobDTO;
+import backend.dto.UploadSessionDTO;
+import backend.dto.UploadSessionRequest;
+import backend.model.Artist;
+import backend.service.SongService;
+import backend.service.UploadPipeline;
+import backend.service.UploadSessionService;
+import backend.service.UploadSessionService.ChecksumMismatchException;
+import backend.service.UploadSessionService.OffsetMismatchException;
+import backend.service.UploadSessionService.SessionNotFoundException;
+import backend.service.UploadSessionService.UploadedFile;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resumable uploads for artist tracks.
+ *
+ * POST   /uploads/sessions                 open a session for a file of known size
+ * PUT    /uploads/sessions/{id}?offset=N   send the next chunk (raw body, X-Chunk-SHA256 header)
+ * GET    /uploads/sessions/{id}            current offset, e.g. after a dropped connection
+ * POST   /uploads/sessions/{id}/finalize   hand the audio and image sessions to the upload pipeline (202 + job)
+ * DELETE /uploads/sessions/{id}            abandon the upload
+ */
+@RestController
+@RequestMapping("/uploads/sessions")
+@CrossOrigin("*")
+@PreAuthorize("hasRole('ARTIST')")
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+    private final SongService songService;
+    private final UploadPipeline uploadPipeline;
+
+    public UploadSessionController(UploadSessionService uploadSessionService, SongService songService,
+                                   UploadPipeline uploadPipeline) {
+        this.uploadSessionService = uploadSessionService;
+        this.songService = songService;
+        this.uploadPipeline = uploadPipeline;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> createSession(@RequestBody UploadSessionRequest request,
+                                                          Authentication authentication) throws IOException {
+        try {
+            UploadSessionDTO session = uploadSessionService.create(request, authentication.getName());
+            return ResponseEntity.created(URI.create("/uploads/sessions/" + session.id())).body(session);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> getSession(@PathVariable String id, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(uploadSessionService.get(id, authentication.getName()));
+        } catch (SessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Body is the raw chunk, read straight into the session file (no multipart buffering).
+     * 409 means the offset is wrong (the body carries the session with the expected one);
+     * 422 means the checksum did not match and the chunk must be resent.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> putChunk(@PathVariable String id,
+                                                     @RequestParam long offset,
+                                                     @RequestHeader("X-Chunk-SHA256") String checksum,
+                                                     HttpServletRequest request,
+                                                     Authentication authentication) throws IOException {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+
+        String owner = authentication.getName();
+        try {
+            return ResponseEntity.ok(uploadSessionService.appendChunk(id, owner, offset, length, checksum,
+                    request.getInputStream()));
+        } catch (SessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (OffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(uploadSessionService.get(id, owner));
+        } catch (ChecksumMismatchException e) {
+            return ResponseEntity.unprocessableEntity().body(uploadSessionService.get(id, owner));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<UploadJobDTO> finalizeUpload(@PathVariable String id,
+                                                       @RequestBody FinalizeUploadRequest request,
+                                                       Authentication authentication) {
+        String owner = authentication.getName();
+        Artist artist = songService.resolveUploadingArtist(authentication);
+        // One session cannot be both files: completing it twice would fail after taking the audio.
+        if (id.equals(request.imageSessionId())) {
+            return ResponseEntity.badRequest().build();
+        }
+        UploadedFile audio;
+        UploadedFile image;
+        try {
+            // Check both before taking either, so an unfinished image does not consume the audio session.
+            if (!isComplete(uploadSessionService.get(id, owner))
+                    || !isComplete(uploadSessionService.get(request.imageSessionId(), owner))) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            audio = uploadSessionService.complete(id, owner);
+        } catch (SessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            image = uploadSessionService.complete(request.imageSessionId(), owner);
+        } catch (SessionNotFoundException e) {
+            // Cancelled or expired since the check; nobody else will delete the audio now.
+            uploadSessionService.discard(audio);
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            // The pipeline owns the files from here on and deletes them when the job ends.
+            UploadJobDTO job = uploadPipeline.submit(new UploadPipeline.UploadRequest(owner, request.name(),
+                    request.genre(), artist, staged(audio), staged(image)));
+            return ResponseEntity.accepted().location(URI.create("/uploads/" + job.id())).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+    }
+
+    private static UploadPipeline.StagedFile staged(UploadedFile file) {
+        return new UploadPipeline.StagedFile(file.path(), file.sha256(), file.size(), file.filename(), file.contentType());
+    }
+
+    private static boolean isComplete(UploadSessionDTO session) {
+        return session.offset() == session.size();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelSession(@PathVariable String id, Authentication authentication) {
+        try {
+            uploadSessionService.cancel(id, authentication.getName());
+            return ResponseEntity.noContent().build();
+        } catch (SessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
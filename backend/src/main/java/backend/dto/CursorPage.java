@@ -0,0 +1,7 @@
+package backend.dto;
+
+import java.util.List;
+
+// One page of a list endpoint; nextCursor is null on the last page.
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,5 @@
+package backend.dto;
+
+// audio comes from the session being finalized; the cover image from a second (already complete) session.
+public record FinalizeUploadRequest(String name, String genre, String imageSessionId) {
+}
@@ -0,0 +1,14 @@
+package backend.dto;
+
+import backend.model.Privacy;
+
+// Playlist as shown in lists: no songs, just how many there are.
+public record PlaylistSummaryDTO(
+        Long id,
+        String title,
+        UserDTO user_id,
+        String description,
+        Privacy visibility,
+        String imageUrl,
+        long songCount
+) { }
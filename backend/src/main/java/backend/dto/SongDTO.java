@@ -2,5 +2,7 @@ package backend.dto;
 
 import backend.model.Genre;
 
-public record SongDTO(Long id, String name, ArtistDTO artist, Genre genre, String filepath, String imageUrl) {
+public record SongDTO(Long id, String name, ArtistDTO artist, Genre genre, String filepath, String imageUrl,
+                      Long durationMs, Integer bitrate, Integer sampleRate, String streamUrl,
+                      String hlsUrl) {
 }
@@ -0,0 +1,13 @@
+package backend.dto;
+
+import backend.model.Genre;
+
+import java.util.List;
+import java.util.Map;
+
+// A page of the songs matching the explore filters, the total, and how many songs each genre/artist would leave.
+public record SongFacetsDTO(int total, List<SongDTO> songs, Map<Genre, Integer> genres, List<ArtistCount> artists) {
+
+    public record ArtistCount(Long id, String name, int count) {
+    }
+}
@@ -0,0 +1,5 @@
+package backend.dto;
+
+// One autocomplete hit; type is "song", "artist", "playlist" or "user", subtitle the artist or owner.
+public record SuggestionDTO(String type, Long id, String name, String subtitle, String imageUrl) {
+}
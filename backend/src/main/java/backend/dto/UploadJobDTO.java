@@ -0,0 +1,10 @@
+package backend.dto;
+
+import java.util.List;
+
+// Progress of an upload's background processing; song is set once it has been published.
+public record UploadJobDTO(String id, String status, int progress, List<Stage> stages, SongDTO song, String error) {
+
+    public record Stage(String name, String status, int attempts, String error) {
+    }
+}
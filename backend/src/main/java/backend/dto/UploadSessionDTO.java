@@ -0,0 +1,6 @@
+package backend.dto;
+
+// offset = bytes received so far; the next chunk must start there.
+public record UploadSessionDTO(String id, String filename, long size, long offset, String contentType,
+                               long maxChunkBytes) {
+}
@@ -0,0 +1,4 @@
+package backend.dto;
+
+public record UploadSessionRequest(String filename, Long size, String contentType) {
+}
@@ -3,6 +3,6 @@ package backend.dto;
 import java.util.List;
 
 public record UserLibraryDTO(
-        List<PlaylistDTO> playlists,
+        List<PlaylistSummaryDTO> playlists,
         List<ArtistDTO> followedArtists
 ) {}
\ No newline at end of file
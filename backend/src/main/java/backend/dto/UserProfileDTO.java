@@ -2,6 +2,6 @@ package backend.dto;
 
 import java.util.List;
 
-public record UserProfileDTO(UserDTO user, boolean isOwner, List<PlaylistDTO> playlists) {
+public record UserProfileDTO(UserDTO user, boolean isOwner, List<PlaylistSummaryDTO> playlists) {
 }
 
@@ -1,21 +1,51 @@
 package backend.mapper;
 
 import backend.dto.PlaylistDTO;
+import backend.dto.PlaylistSummaryDTO;
 import backend.dto.UserDTO;
 import backend.model.Playlist;
+import backend.repository.PlaylistSummaryRow;
+import backend.service.MediaUrlSigner;
+import backend.service.PlaylistMosaics;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
 
 // CHANGED: Added SongMapper to uses
+// Abstract class rather than interface so the cover can come from PlaylistMosaics.
 @Mapper(componentModel = "spring", uses = {SongMapper.class})
-public interface PlaylistMapper {
+public abstract class PlaylistMapper {
+
+    @Autowired
+    protected PlaylistMosaics playlistMosaics;
+
+    @Autowired
+    protected MediaUrlSigner mediaUrlSigner;
+
     @Mapping(source = "user", target = "user_id")
-    PlaylistDTO toDto(Playlist playlist);
+    @Mapping(target = "imageUrl", expression = "java(coverUrl(playlist))")
+    public abstract PlaylistDTO toDto(Playlist playlist);
 
-    Playlist toEntity(PlaylistDTO dto);
+    public abstract Playlist toEntity(PlaylistDTO dto);
 
-    default UserDTO mapUser(backend.model.User user) {
+    // covers: the first song image references of the playlist, see DBPlaylistRepository.findFirstCovers
+    public PlaylistSummaryDTO toSummary(PlaylistSummaryRow row, List<String> covers) {
+        String mosaic = playlistMosaics.mosaicForCovers(covers);
+        return new PlaylistSummaryDTO(row.id(), row.title(), new UserDTO(row.userId(), row.username(), null),
+                row.description(), row.visibility(), mediaUrlSigner.imageUrl(mosaic != null ? mosaic : row.imageUrl()),
+                row.songCount());
+    }
+
+    public UserDTO mapUser(backend.model.User user) {
         if (user == null) return null;
         return new UserDTO(user.getId(), user.getUsername(), user.getRoles());
     }
-}
\ No newline at end of file
+
+    // The mosaic of the first four covers once it exists, otherwise the playlist's own image.
+    protected String coverUrl(Playlist playlist) {
+        String mosaic = playlistMosaics.mosaicFor(playlist.getSongs());
+        return mediaUrlSigner.imageUrl(mosaic != null ? mosaic : playlist.getImageUrl());
+    }
+}
@@ -4,17 +4,37 @@ import backend.dto.ArtistDTO;
 import backend.dto.SongDTO;
 import backend.model.Artist;
 import backend.model.Song;
+import backend.repository.SongRow;
+import backend.service.MediaUrlSigner;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.springframework.beans.factory.annotation.Autowired;
 
+// Abstract class rather than interface so the mapper can sign media URLs.
 @Mapper(componentModel = "spring")
-public interface SongMapper {
+public abstract class SongMapper {
+
+    @Autowired
+    protected MediaUrlSigner mediaUrlSigner;
+
     @Mapping(source = "artist", target = "artist")
-    SongDTO toDTO(Song song);
+    @Mapping(target = "imageUrl", expression = "java(mediaUrlSigner.imageUrl(song.getImageUrl()))")
+    @Mapping(target = "streamUrl", expression = "java(mediaUrlSigner.streamUrl(song.getId(), song.getFilepath()))")
+    @Mapping(target = "hlsUrl", expression = "java(mediaUrlSigner.hlsUrl(song.getId(), song.getFilepath()))")
+    public abstract SongDTO toDTO(Song song);
+
+    @Mapping(source = "artist", target = "artist")
+    public abstract Song toEntity(SongDTO dto);
+
+    public abstract ArtistDTO toDTO(Artist artist);
 
-     @Mapping(source = "artist", target = "artist")
-    Song toEntity(SongDTO dto);
+    // Listing rows (see SongRow) map by hand: the artist's columns are flattened into the row.
+    public SongDTO toDTO(SongRow row) {
+        ArtistDTO artist = new ArtistDTO(row.artistId(), row.artistName(), row.artistFollowers(), row.artistImageUrl());
+        return new SongDTO(row.id(), row.name(), artist, row.genre(), row.filepath(),
+                mediaUrlSigner.imageUrl(row.imageUrl()), row.durationMs(), row.bitrate(), row.sampleRate(),
+                mediaUrlSigner.streamUrl(row.id(), row.filepath()), mediaUrlSigner.hlsUrl(row.id(), row.filepath()));
+    }
 
-    ArtistDTO toDTO(Artist artist);
-    Artist toEntity(ArtistDTO dto);
+    public abstract Artist toEntity(ArtistDTO dto);
 }
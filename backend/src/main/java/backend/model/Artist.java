@@ -31,6 +31,9 @@ import java.util.Set;
 @Builder
 public class Artist {
 
+    /** Image of artists created implicitly (first upload, catalog import) until one is set. */
+    public static final String DEFAULT_IMAGE_URL = "https://via.placeholder.com/150";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(columnDefinition = "serial")
@@ -41,7 +41,12 @@ public class Playlist {
     @Setter
     private String imageUrl;
 
-    @ManyToMany(fetch = FetchType.EAGER) // CHANGED: EAGER fetch to ensure songs are loaded
+    // Lazy: list views use PlaylistSummaryRow; the detail view fetches songs with an entity graph.
+    // playlist_songs keeps no position, so "playlist order" is song id order everywhere (the
+    // detail view, the paged song list, the ZIP layout and the mosaic): songs appear in upload
+    // order, not in the order they were added to the playlist.
+    @ManyToMany(fetch = FetchType.LAZY)
+    @OrderBy("id")
     @JoinTable(
             name = "playlist_songs",
             joinColumns = @JoinColumn(name = "playlist_id"),
@@ -48,4 +48,31 @@ public class Song {
     @Column(name = "imageurl", nullable = false)
     @Setter
     private String imageUrl;
+
+    // Parsed from the MP3 frame headers (see Mp3Indexer); null until indexed.
+    @Column(name = "duration_ms")
+    @Setter
+    private Long durationMs;
+
+    // Average bitrate in kbps.
+    @Column(name = "bitrate")
+    @Setter
+    private Integer bitrate;
+
+    @Column(name = "sample_rate")
+    @Setter
+    private Integer sampleRate;
+
+    @Column(name = "size_bytes")
+    @Setter
+    private Long sizeBytes;
+
+    @Column(name = "crc32")
+    @Setter
+    private Long crc32;
+
+    // Manifest row or upload job the song was created by; null for older songs.
+    @Column(name = "import_key")
+    @Setter
+    private String importKey;
 }
\ No newline at end of file
@@ -1,10 +1,20 @@
 package backend.repository;
 
 import backend.model.Artist;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface DBArtistRepository extends JpaRepository<Artist, Long> {
     Optional<Artist> findByName(String name);
+
+    List<Artist> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    // Feeds TopArtistsRanking: (id, name, imageUrl, followers column, follow count), most followed first
+    @Query("select a.id, a.name, a.imageUrl, a.followers, count(u.id) from Artist a left join a.userFollowers u"
+            + " group by a.id, a.name, a.imageUrl, a.followers order by count(u.id) desc, a.id")
+    List<Object[]> findFollowerCounts(Limit limit);
 }
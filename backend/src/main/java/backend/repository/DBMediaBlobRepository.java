@@ -0,0 +1,39 @@
+package backend.repository;
+
+import backend.model.MediaBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+// Reference counts are changed with single statements so concurrent uploads/deletes never lose an update.
+public interface DBMediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO media_blobs (sha256, size_bytes, ref_count, content_type)
+            VALUES (:sha256, :sizeBytes, 1, :contentType)
+            ON CONFLICT (sha256) DO UPDATE SET ref_count = media_blobs.ref_count + 1
+            """, nativeQuery = true)
+    int retain(@Param("sha256") String sha256,
+               @Param("sizeBytes") long sizeBytes,
+               @Param("contentType") String contentType);
+
+    @Transactional
+    @Modifying
+    @Query("update MediaBlob b set b.refCount = b.refCount - 1 where b.sha256 = :sha256 and b.refCount > 0")
+    int release(@Param("sha256") String sha256);
+
+    // Returns 1 when the blob was unreferenced and its row is gone, i.e. the file may be deleted.
+    @Transactional
+    @Modifying
+    @Query("delete from MediaBlob b where b.sha256 = :sha256 and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+
+    @Query("select b.contentType from MediaBlob b where b.sha256 = :sha256")
+    Optional<String> findContentType(@Param("sha256") String sha256);
+}
@@ -2,18 +2,68 @@ package backend.repository;
 
 import backend.model.Playlist;
 import backend.model.Privacy;
-import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface DBPlaylistRepository extends JpaRepository<Playlist, Long> {
 
-    List<Playlist> findByUser_Id(Long userId);
+    // Playlist listings as PlaylistSummaryRow projections: one grouped SELECT each, no song collections.
 
-    List<Playlist> findByUser_IdAndVisibility(Long userId, Privacy visibility);
+    String SUMMARY_FROM = " from Playlist p join p.user u left join p.songs s";
 
-    @EntityGraph(attributePaths = "songs")
-    Optional<Playlist> findWithSongsById(Long id);
+    // Keyset pages (see KeysetCursor)
+    @Query(PlaylistSummaryRow.SELECT + SUMMARY_FROM + " where p.id > :after" + PlaylistSummaryRow.GROUP_BY + " order by p.id")
+    List<PlaylistSummaryRow> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    @Query(PlaylistSummaryRow.SELECT + SUMMARY_FROM + " where u.id = :userId" + PlaylistSummaryRow.GROUP_BY + " order by p.id")
+    List<PlaylistSummaryRow> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(PlaylistSummaryRow.SELECT + SUMMARY_FROM + " where u.id = :userId and p.visibility = :visibility"
+            + PlaylistSummaryRow.GROUP_BY + " order by p.id")
+    List<PlaylistSummaryRow> findSummariesByUserIdAndVisibility(@Param("userId") Long userId,
+                                                                @Param("visibility") Privacy visibility);
+
+    // Public playlists, plus the viewer's own private ones (none when viewerId is null).
+    @Query(PlaylistSummaryRow.SELECT + SUMMARY_FROM + " where exists (select 1 from Playlist p2 join p2.songs s2"
+            + " where p2.id = p.id and s2.artist.id = :artistId)"
+            + " and (p.visibility = backend.model.Privacy.PUBLIC or u.id = :viewerId)"
+            + PlaylistSummaryRow.GROUP_BY + " order by p.id")
+    List<PlaylistSummaryRow> findSummariesWithArtist(@Param("artistId") Long artistId, @Param("viewerId") Long viewerId);
+
+    /**
+     * The first covers of each playlist (in song id order, at most {@code perPlaylist} each) as
+     * (playlist_id, imageurl) pairs, for the cover mosaics of a whole page of summaries at once.
+     */
+    @Query(value = """
+            SELECT playlist_id, imageurl FROM (
+                SELECT ps.playlist_id, s.imageurl,
+                       ROW_NUMBER() OVER (PARTITION BY ps.playlist_id ORDER BY s.id) AS n
+                FROM playlist_songs ps
+                JOIN songs s ON s.id = ps.song_id
+                WHERE ps.playlist_id IN (:ids)
+            ) covers
+            WHERE n <= :perPlaylist
+            ORDER BY playlist_id, n
+            """, nativeQuery = true)
+    List<Object[]> findFirstCovers(@Param("ids") Collection<Long> ids, @Param("perPlaylist") int perPlaylist);
+
+    // Keyset pages of every playlist id, for sweeps over all of them.
+    @Query("select p.id from Playlist p where p.id > :after order by p.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Limit limit);
+
+    // Detail view: the playlist, its owner, songs and their artists in one SELECT. The songs are
+    // ordered here rather than left to @OrderBy, which a fetch join need not apply.
+    @Query("select p from Playlist p join fetch p.user left join fetch p.songs s left join fetch s.artist"
+            + " where p.id = :id order by s.id")
+    Optional<Playlist> findDetailById(@Param("id") Long id);
+
+    // ZIP downloads: the songs in the same order as the detail view.
+    @Query("select p from Playlist p left join fetch p.songs s where p.id = :id order by s.id")
+    Optional<Playlist> findWithSongsById(@Param("id") Long id);
 }
@@ -2,17 +2,79 @@ package backend.repository;
 
 import backend.model.Genre;
 import backend.model.Song;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface DBSongRepository extends JpaRepository<Song, Long> {
 
-    List<Song> findByGenre(Genre genre);
+    // Song listings as SongRow projections: one joined SELECT each, no managed entities.
 
-    // Used for Artist "My Songs" view
-    List<Song> findByArtist_NameOrderByIdDesc(String artistName);
+    @Query(SongRow.SELECT + " from Song s join s.artist a where s.id = :id")
+    Optional<SongRow> findRowById(@Param("id") Long id);
+
+    @Query(SongRow.SELECT + " from Song s join s.artist a where s.importKey = :importKey")
+    Optional<SongRow> findRowByImportKey(@Param("importKey") String importKey);
+
+    @Query(SongRow.SELECT + " from Song s join s.artist a where s.id in :ids")
+    List<SongRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SongRow.SELECT + " from Song s join s.artist a where s.genre = :genre order by s.id")
+    List<SongRow> findRowsByGenre(@Param("genre") Genre genre);
+
+    @Query(SongRow.SELECT + " from Song s join s.artist a where a.name = :artistName order by s.id desc")
+    List<SongRow> findRowsByArtistName(@Param("artistName") String artistName);
+
+    @Query(SongRow.SELECT + " from Song s join s.artist a where lower(s.name) like lower(concat('%', :name, '%')) order by s.id")
+    List<SongRow> findRowsByNameContaining(@Param("name") String name);
+
+    // Keyset pages (see KeysetCursor): one range scan on the primary key per page
+    @Query(SongRow.SELECT + " from Song s join s.artist a where s.id > :after order by s.id")
+    List<SongRow> findRowsAfter(@Param("after") Long after, Limit limit);
+
+    // Song id order, like every other view of a playlist: playlist_songs keeps no position.
+    @Query(SongRow.SELECT + " from Playlist p join p.songs s join s.artist a where p.id = :playlistId and s.id > :after order by s.id")
+    List<SongRow> findPlaylistRowsAfter(@Param("playlistId") Long playlistId, @Param("after") Long after, Limit limit);
 
     // More strict variant if you want to query by id instead of name
     List<Song> findByArtist_IdOrderByIdDesc(Long artistId);
+
+    // Streaming only needs the file name and bitrate; skip loading the song + artist entities.
+    interface AudioRef {
+        String getFilepath();
+
+        Integer getBitrate();
+    }
+
+    @Query("select s.filepath as filepath, s.bitrate as bitrate from Song s where s.id = :id")
+    Optional<AudioRef> findAudioRefById(@Param("id") Long id);
+
+    // Feeds SongSearchIndex: the startup build (after = 0) and its catch-up after bulk imports
+    @Query("select s.id, s.name from Song s where s.id > :after order by s.id")
+    List<Object[]> findIdsAndNamesAfter(@Param("after") Long after);
+
+    // Feeds SongFacetIndex, like findIdsAndNamesAfter
+    @Query("select s.id, s.genre, s.artist.id from Song s where s.id > :after order by s.id")
+    List<Object[]> findFacetsAfter(@Param("after") Long after);
+
+    // Songs whose audio has not been indexed yet (see AudioMetadataBackfill)
+    @Query("select s.id, s.filepath from Song s where s.durationMs is null or s.crc32 is null order by s.id")
+    List<Object[]> findUnindexedFilepaths();
+
+    @Transactional
+    @Modifying
+    @Query("update Song s set s.durationMs = :durationMs, s.bitrate = :bitrate, s.sampleRate = :sampleRate, s.sizeBytes = :sizeBytes, s.crc32 = :crc32 where s.id = :id")
+    int updateAudioMetadata(@Param("id") Long id,
+                            @Param("durationMs") Long durationMs,
+                            @Param("bitrate") Integer bitrate,
+                            @Param("sampleRate") Integer sampleRate,
+                            @Param("sizeBytes") Long sizeBytes,
+                            @Param("crc32") Long crc32);
 }
@@ -0,0 +1,19 @@
+package backend.repository;
+
+import backend.model.Genre;
+
+/** A liked song ({@link SongRow}) with the id of the like, which orders and pages the liked-songs list. */
+public record LikedSongRow(Long likeId, SongRow song) {
+
+    /** Select clause for queries over {@code SongLike l join l.song s join s.artist a}. */
+    public static final String SELECT = "select new backend.repository.LikedSongRow(l.id, s.id, s.name, "
+            + "a.id, a.name, a.followers, a.imageUrl, s.genre, s.filepath, s.imageUrl, s.durationMs, "
+            + "s.bitrate, s.sampleRate)";
+
+    public LikedSongRow(Long likeId, Long id, String name, Long artistId, String artistName, Long artistFollowers,
+                        String artistImageUrl, Genre genre, String filepath, String imageUrl,
+                        Long durationMs, Integer bitrate, Integer sampleRate) {
+        this(likeId, new SongRow(id, name, artistId, artistName, artistFollowers, artistImageUrl, genre,
+                filepath, imageUrl, durationMs, bitrate, sampleRate));
+    }
+}
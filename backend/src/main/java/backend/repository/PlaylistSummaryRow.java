@@ -0,0 +1,21 @@
+package backend.repository;
+
+import backend.model.Privacy;
+
+/**
+ * Read-only playlist listing row: the playlist, its owner and its song count from one grouped
+ * SELECT, so list views never load the song collection. PlaylistMapper turns it into a
+ * PlaylistSummaryDTO.
+ */
+public record PlaylistSummaryRow(Long id, String title, String description, Privacy visibility, String imageUrl,
+                                 Long userId, String username, Long songCount) {
+
+    /** Select clause for queries over {@code Playlist p join p.user u left join p.songs s}. */
+    public static final String SELECT = "select new backend.repository.PlaylistSummaryRow(p.id, p.title, "
+            + "p.description, p.visibility, p.imageUrl, u.id, u.username, count(s.id))";
+
+    /** Group-by clause matching {@link #SELECT}. */
+    public static final String GROUP_BY = " group by p.id, p.title, p.description, p.visibility, p.imageUrl, "
+            + "u.id, u.username";
+
+}
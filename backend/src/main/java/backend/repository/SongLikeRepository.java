@@ -3,7 +3,10 @@ package backend.repository;
 import backend.model.SongLike;
 import backend.model.User;
 import backend.model.Song;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +14,11 @@ public interface SongLikeRepository extends JpaRepository<SongLike, Long> {
     // Check if a specific user liked a specific song
     Optional<SongLike> findByUserAndSong(User user, Song song);
 
-    // Get all songs liked by a user (for the "Liked Songs" playlist)
-    List<SongLike> findByUserOrderByLikedAtDesc(User user);
+    // Newest likes first, keyset on the like id (index song_likes(user_id, id), V28)
+    @Query(LikedSongRow.SELECT + " from SongLike l join l.song s join s.artist a where l.user.id = :userId and l.id < :before order by l.id desc")
+    List<LikedSongRow> findLikedRows(@Param("userId") Long userId, @Param("before") Long before, Limit limit);
+
+    // Liked-by filter of the song facets; ids only
+    @Query("select l.song.id from SongLike l where l.user.id = :userId")
+    List<Long> findSongIdsByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
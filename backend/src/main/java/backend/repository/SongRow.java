@@ -0,0 +1,18 @@
+package backend.repository;
+
+import backend.model.Genre;
+
+/**
+ * Read-only song listing row: the song and its artist from one joined SELECT, built with a JPQL
+ * constructor expression so no managed entity (or dirty check) is involved. SongMapper turns it
+ * into a SongDTO, adding the signed media URLs.
+ */
+public record SongRow(Long id, String name, Long artistId, String artistName, Long artistFollowers,
+                      String artistImageUrl, Genre genre, String filepath, String imageUrl,
+                      Long durationMs, Integer bitrate, Integer sampleRate) {
+
+    /** Select clause for queries over {@code Song s join s.artist a}. */
+    public static final String SELECT = "select new backend.repository.SongRow(s.id, s.name, a.id, a.name, "
+            + "a.followers, a.imageUrl, s.genre, s.filepath, s.imageUrl, s.durationMs, s.bitrate, s.sampleRate)";
+
+}
@@ -1,13 +1,17 @@
 package backend.service;
 
 import backend.dto.ArtistDTO;
+import backend.dto.CursorPage;
 import backend.mapper.ArtistMapper;
 import backend.model.Artist;
 import backend.model.User;
 import backend.repository.DBArtistRepository;
 import backend.repository.DBUserRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -18,18 +22,22 @@ public class ArtistService {
     private final DBArtistRepository artistRepository;
     private final DBUserRepository userRepository;
     private final ArtistMapper artistMapper;
+    private final TopArtistsRanking topArtistsRanking;
 
     public ArtistService(DBArtistRepository artistRepository,
                          DBUserRepository userRepository,
-                         ArtistMapper artistMapper) {
+                         ArtistMapper artistMapper,
+                         TopArtistsRanking topArtistsRanking) {
         this.artistRepository = artistRepository;
         this.userRepository = userRepository;
         this.artistMapper = artistMapper;
+        this.topArtistsRanking = topArtistsRanking;
     }
 
     public ArtistDTO createArtist(ArtistDTO artistDto) {
         Artist artist = artistMapper.toEntity(artistDto);
         Artist saved = artistRepository.save(artist);
+        topArtistsRanking.put(saved.getId(), saved.getName(), saved.getImageUrl(), saved.getFollowers());
         return artistMapper.toDto(saved);
     }
 
@@ -39,11 +47,10 @@ public class ArtistService {
         return artistMapper.toDto(artist);
     }
 
-    public List<ArtistDTO> getAllArtists() {
-        return artistRepository.findAll()
-                .stream()
-                .map(artistMapper::toDto)
-                .collect(Collectors.toList());
+    public CursorPage<ArtistDTO> getAllArtists(String cursor, int limit) {
+        long after = KeysetCursor.decode(cursor, 0);
+        return KeysetCursor.page(artistRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit + 1)),
+                limit, Artist::getId, artistMapper::toDto);
     }
 
     public ArtistDTO updateArtist(Long id, ArtistDTO dto) {
@@ -53,11 +60,13 @@ public class ArtistService {
         existing.setFollowers(dto.followers());
 
         Artist saved = artistRepository.save(existing);
+        topArtistsRanking.put(saved.getId(), saved.getName(), saved.getImageUrl(), saved.getFollowers());
         return artistMapper.toDto(saved);
     }
 
     public void deleteArtist(Long id) {
         artistRepository.deleteById(id);
+        topArtistsRanking.remove(id);
     }
 
     @Transactional
@@ -77,7 +86,8 @@ public class ArtistService {
 
         //increase the number of followers in the artist table
         long currentCount = artist.getFollowers() == null ? 0 : artist.getFollowers();
-        if (user.getFollowedArtists().contains(artist)) {
+        boolean followed = user.getFollowedArtists().contains(artist);
+        if (followed) {
             artist.setFollowers(currentCount + 1);
         } else {
             artist.setFollowers(Math.max(0, currentCount - 1)); // Prevent negative numbers
@@ -86,6 +96,14 @@ public class ArtistService {
         // save both
         userRepository.save(user);
         artistRepository.save(artist);
+        // Only once committed: a rolled-back follow must not move the ranking.
+        int delta = followed ? 1 : -1;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                topArtistsRanking.adjust(artistId, delta);
+            }
+        });
     }
 
     @Transactional(readOnly = true)
@@ -99,20 +117,6 @@ public class ArtistService {
     }
 
     public List<ArtistDTO> getTopArtists(int limit) {
-
-        List<Artist> allArtists = artistRepository.findAll();
-
-
-        return allArtists.stream()
-                // descending order by followers
-                .sorted((a1, a2) -> {
-                    int followers1 = a1.getUserFollowers() != null ? a1.getUserFollowers().size() : 0;
-                    int followers2 = a2.getUserFollowers() != null ? a2.getUserFollowers().size() : 0;
-                    return Integer.compare(followers2, followers1);
-                })
-                // take the first n
-                .limit(limit)
-                .map(artistMapper::toDto)
-                .collect(Collectors.toList());
+        return topArtistsRanking.top(limit);
     }
 }
@@ -0,0 +1,114 @@
+package backend.service;
+
+import backend.repository.DBSongRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes songs stored before MP3 metadata existed (or whose indexing failed at upload):
+ * parses each file, writes its seek index and fills in duration/bitrate/sample rate/size/CRC.
+ *
+ * Runs once after startup on a small dedicated pool, so it never delays serving traffic. Songs
+ * found unindexed later (e.g. by a playlist download) are queued one by one with {@link #request}.
+ */
+@Component
+public class AudioMetadataBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioMetadataBackfill.class);
+
+    private final DBSongRepository songRepository;
+    private final MediaLocator mediaLocator;
+    private final Mp3Indexer mp3Indexer;
+
+    @Value("${AUDIO_BACKFILL_ENABLED:true}")
+    private boolean enabled;
+
+    @Value("${AUDIO_BACKFILL_THREADS:4}")
+    private int threads;
+
+    private final Set<Long> requested = ConcurrentHashMap.newKeySet();
+    private final ExecutorService onDemand = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("audio-index-").factory());
+
+    public AudioMetadataBackfill(DBSongRepository songRepository, MediaLocator mediaLocator, Mp3Indexer mp3Indexer) {
+        this.songRepository = songRepository;
+        this.mediaLocator = mediaLocator;
+        this.mp3Indexer = mp3Indexer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+
+        List<Object[]> pending = songRepository.findUnindexedFilepaths();
+        if (pending.isEmpty()) return;
+
+        log.info("Backfilling audio metadata for {} songs on {} threads", pending.size(), threads);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads),
+                Thread.ofPlatform().daemon().name("audio-backfill-", 0).factory());
+
+        AtomicInteger indexed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        for (Object[] row : pending) {
+            Long songId = ((Number) row[0]).longValue();
+            String filepath = (String) row[1];
+            pool.execute(() -> (index(songId, filepath) ? indexed : skipped).incrementAndGet());
+        }
+
+        // Let the queued work finish, then release the threads.
+        pool.shutdown();
+        Thread.ofPlatform().daemon().name("audio-backfill-report").start(() -> {
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                log.info("Audio metadata backfill done: {} indexed, {} skipped", indexed.get(), skipped.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /** Queues one song for indexing, e.g. when its stored CRC is missing or no longer matches the file. */
+    public void request(Long songId, String filepath) {
+        if (!requested.add(songId)) return; // already queued
+        onDemand.execute(() -> {
+            try {
+                index(songId, filepath);
+            } finally {
+                requested.remove(songId);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        onDemand.shutdownNow();
+    }
+
+    private boolean index(Long songId, String filepath) {
+        Path audio = mediaLocator.resolveAudio(filepath);
+        if (audio == null) return false;
+        try {
+            Mp3Indexer.Mp3Info info = mp3Indexer.index(audio);
+            songRepository.updateAudioMetadata(songId, info.durationMs(), info.bitrateKbps(),
+                    info.sampleRate(), info.sizeBytes(), info.crc32());
+            return true;
+        } catch (Exception e) {
+            log.warn("Could not index song {} ({}): {}", songId, filepath, e.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package backend.service;
+
+import backend.repository.DBMediaBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for uploaded media.
+ *
+ * Files are hashed while they are streamed to disk and stored once per distinct content at
+ * key {@code ab/cd/abcd...} (the SHA-256, sharded by its first two bytes). Songs refer to a blob
+ * by a name of the form {@code <sha256>.<ext>}; the {@code media_blobs} table counts those
+ * references so identical uploads share one file, and the file is removed with its last reference.
+ *
+ * The bytes themselves live in a {@link MediaStorage} (local disk or an S3-compatible bucket);
+ * with {@code MEDIA_DELIVERY=redirect} and a storage that can presign URLs, clients are sent to
+ * the storage directly instead of having the app proxy every byte.
+ *
+ * A bucket is shared by every API instance, so whether the bytes exist is decided under a Postgres
+ * advisory lock on the hash: a release that drops the last reference deletes the row and the
+ * object while holding it, and an adopt counts its reference and checks for the object while
+ * holding it, so one instance never skips an upload that another is about to delete.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+    private static final Pattern BLOB_NAME = Pattern.compile("^([0-9a-f]{64})(\\.[A-Za-z0-9]{1,8})?$");
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_CACHED_CONTENT_TYPES = 4096;
+    // First key of the two-key advisory locks taken on blob hashes ("blob").
+    private static final int ADVISORY_LOCK_SPACE = 0x626c6f62;
+
+    public record StoredBlob(String sha256, long sizeBytes, Path path) {
+    }
+
+    @FunctionalInterface
+    private interface LockedWork<T> {
+        T run() throws IOException;
+    }
+
+    private final DBMediaBlobRepository blobRepository;
+    private final MediaStorage storage;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final Path tmpDir;
+    private final boolean redirect;
+    private final Duration redirectTtl;
+    // Serialises the row update and the file operation for one hash within this instance.
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Content never changes under a hash, so neither does its type: no invalidation needed.
+    private final Map<String, String> contentTypes = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHED_CONTENT_TYPES;
+        }
+    };
+
+    public BlobStore(DBMediaBlobRepository blobRepository,
+                     MediaStorage storage,
+                     JdbcTemplate jdbc,
+                     TransactionTemplate transaction,
+                     @Value("${MEDIA_BLOB_DIR:uploads/blobs}") String blobDir,
+                     @Value("${MEDIA_DELIVERY:proxy}") String delivery,
+                     @Value("${MEDIA_REDIRECT_TTL_SECONDS:900}") long redirectTtlSeconds) throws IOException {
+        this.blobRepository = blobRepository;
+        this.storage = storage;
+        this.jdbc = jdbc;
+        this.transaction = transaction;
+        this.tmpDir = Paths.get(blobDir).toAbsolutePath().resolve("tmp");
+        this.redirect = "redirect".equalsIgnoreCase(delivery);
+        this.redirectTtl = Duration.ofSeconds(redirectTtlSeconds);
+        Files.createDirectories(tmpDir);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /** Streams {@code in} into the store and takes a reference on the resulting blob. */
+    public StoredBlob put(InputStream in, String contentType) throws IOException {
+        MessageDigest digest = sha256();
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        try {
+            long size;
+            try (in; OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                size = in.transferTo(out);
+            }
+            return adopt(tmp, HexFormat.of().formatHex(digest.digest()), size, contentType);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Streams {@code in} into the store without taking a reference, for callers that count the
+     * reference in the same transaction as the rows using it (see CatalogImporter). Until that
+     * commits, a concurrent release of the same content may delete the bytes again, so callers
+     * follow up with {@link #ensureStored} once their reference is committed.
+     */
+    public StoredBlob store(InputStream in, String contentType) throws IOException {
+        MessageDigest digest = sha256();
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        try {
+            long size;
+            try (in; OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                size = in.transferTo(out);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String key = keyPath(sha256);
+            synchronized (lockFor(sha256)) {
+                if (!storage.exists(key)) {
+                    storage.store(key, tmp, contentType);
+                }
+            }
+            return new StoredBlob(sha256, size, storage.localPath(key));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Stores {@code source} again if the blob {@code sha256} has gone missing since {@link #store}. */
+    public void ensureStored(String sha256, Path source, String contentType) throws IOException {
+        synchronized (lockFor(sha256)) {
+            // Not while another instance's release() is half way through deleting it.
+            if (withSharedLock(sha256, () -> storage.exists(keyPath(sha256)))) return;
+        }
+        try (InputStream in = Files.newInputStream(source)) {
+            StoredBlob blob = store(in, contentType);
+            if (!blob.sha256().equals(sha256)) {
+                throw new IOException(source + " changed since it was stored as " + sha256);
+            }
+        }
+    }
+
+    /**
+     * Hashes {@code file} and moves it into the store (or drops it when the content is already
+     * there): one read and a rename instead of a second copy.
+     */
+    public StoredBlob putFile(Path file, String contentType) throws IOException {
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buf = new byte[64 * 1024];
+            size = 0;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+                size += n;
+            }
+        }
+        StoredBlob blob = adopt(file, HexFormat.of().formatHex(digest.digest()), size, contentType);
+        Files.deleteIfExists(file);
+        return blob;
+    }
+
+    /**
+     * Takes a reference on already hashed content in {@code file}, moving the file into the store
+     * unless a copy is there already (in which case {@code file} is left for the caller to delete).
+     */
+    public StoredBlob adopt(Path file, String sha256, long size, String contentType) throws IOException {
+        String key = keyPath(sha256);
+        synchronized (lockFor(sha256)) {
+            // Once our reference is committed nobody deletes the bytes, so the upload can follow
+            // without the lock; a release that got in first has deleted them completely.
+            boolean present = withSharedLock(sha256, () -> {
+                blobRepository.retain(sha256, size, contentType);
+                return storage.exists(key);
+            });
+            if (!present) {
+                try {
+                    storage.store(key, file, contentType);
+                } catch (IOException | RuntimeException e) {
+                    // Give the reference back, so a retried adopt does not leave the count one too high.
+                    release(sha256);
+                    throw e;
+                }
+            }
+        }
+        return new StoredBlob(sha256, size, storage.localPath(key));
+    }
+
+    /**
+     * Drops one reference. Returns true when that was the last one and the blob (and anything
+     * stored next to it, such as a seek index or thumbnails) has been deleted.
+     */
+    public boolean release(String sha256) {
+        String key = keyPath(sha256);
+        synchronized (lockFor(sha256)) {
+            boolean deleted;
+            try {
+                deleted = withSharedLock(sha256, () -> {
+                    blobRepository.release(sha256);
+                    if (blobRepository.deleteIfUnreferenced(sha256) == 0) {
+                        return false;
+                    }
+                    try {
+                        storage.delete(key);
+                    } catch (IOException e) {
+                        // The row goes anyway: left over bytes are only wasted space, a reference count too high is not.
+                        log.warn("Could not delete blob {}: {}", sha256, e.toString());
+                    }
+                    return true;
+                });
+            } catch (IOException e) {
+                log.warn("Could not release blob {}: {}", sha256, e.toString());
+                return false;
+            }
+            if (!deleted) return false;
+
+            deleteDerived(sha256);
+            return true;
+        }
+    }
+
+    /**
+     * Deletes a blob {@link #store} wrote that no row ended up referring to, e.g. for a catalog row
+     * that was skipped or rolled back. Does nothing while the blob has a reference, from anyone.
+     */
+    public void discardIfUnreferenced(String sha256) {
+        String key = keyPath(sha256);
+        synchronized (lockFor(sha256)) {
+            boolean deleted;
+            try {
+                deleted = withSharedLock(sha256, () -> {
+                    if (blobRepository.existsById(sha256)) return false;
+                    storage.delete(key);
+                    return true;
+                });
+            } catch (IOException e) {
+                log.warn("Could not discard blob {}: {}", sha256, e.toString());
+                return;
+            }
+            if (deleted) deleteDerived(sha256);
+        }
+    }
+
+    // Files stored next to a deleted blob, such as its seek index and thumbnails.
+    private void deleteDerived(String sha256) {
+        Path local = storage.localPath(keyPath(sha256));
+        try {
+            Files.deleteIfExists(Mp3Indexer.indexPath(local));
+            ThumbnailService.deleteVariants(local);
+        } catch (IOException e) {
+            log.warn("Could not delete the files derived from blob {}: {}", sha256, e.toString());
+        }
+    }
+
+    /**
+     * Local path of the blob a stored name refers to (fetched from remote storage if needed), or
+     * null when the name is not a blob name or the blob is missing.
+     */
+    public Path resolve(String name) {
+        String sha256 = keyOf(name);
+        if (sha256 == null) return null;
+        try {
+            return storage.materialize(keyPath(sha256));
+        } catch (IOException e) {
+            log.warn("Could not fetch blob {}: {}", sha256, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Local path of the blob a stored name refers to when it is at hand without a download, or
+     * null when it would have to be fetched from remote storage (or does not exist).
+     */
+    public Path localCopy(String name) {
+        String sha256 = keyOf(name);
+        if (sha256 == null) return null;
+        String key = keyPath(sha256);
+        if (!storage.stillLocal(key)) return null;
+        Path local = storage.localPath(key);
+        return Files.isRegularFile(local) ? local : null;
+    }
+
+    /** Keeps the local copy of the blob {@code name} refers to where it is until the pin is closed. */
+    public MediaStorage.Pin pin(String name) {
+        String sha256 = keyOf(name);
+        return sha256 != null ? storage.pin(keyPath(sha256)) : MediaStorage.Pin.NONE;
+    }
+
+    /**
+     * False when the local copy of the blob {@code name} refers to has been evicted since it was
+     * {@linkplain #resolve resolved}; true for anything else, which stays where it was.
+     */
+    public boolean stillLocal(String name) {
+        String sha256 = keyOf(name);
+        return sha256 == null || storage.stillLocal(keyPath(sha256));
+    }
+
+    /**
+     * A short-lived URL the client can fetch the blob from directly, or null when the bytes have
+     * to be served by the app (proxy delivery, local storage or a legacy name).
+     */
+    public URI directUrl(String name, String contentType) {
+        String sha256 = keyOf(name);
+        if (!redirect || sha256 == null) return null;
+        return storage.presignedGet(keyPath(sha256), contentType, redirectTtl);
+    }
+
+    /** Content type recorded when the blob was first stored, or null when none was recorded. */
+    public String contentTypeOf(String sha256) {
+        synchronized (contentTypes) {
+            String cached = contentTypes.get(sha256);
+            if (cached != null) return cached;
+        }
+        String contentType = blobRepository.findContentType(sha256).orElse(null);
+        if (contentType != null) {
+            synchronized (contentTypes) {
+                contentTypes.put(sha256, contentType);
+            }
+        }
+        return contentType;
+    }
+
+    /** The SHA-256 in a {@code <sha256>.<ext>} name, or null for legacy (pre blob store) names. */
+    public static String keyOf(String name) {
+        if (name == null) return null;
+        Matcher m = BLOB_NAME.matcher(name);
+        return m.matches() ? m.group(1) : null;
+    }
+
+    // Sharded by the first two bytes so no directory (or bucket prefix) gets too large.
+    private static String keyPath(String sha256) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    /**
+     * Runs {@code work} in a transaction holding the advisory lock on {@code sha256}, which every
+     * instance sharing the database takes before deciding whether the blob's bytes exist.
+     */
+    private <T> T withSharedLock(String sha256, LockedWork<T> work) throws IOException {
+        try {
+            return transaction.execute(status -> {
+                jdbc.query("SELECT pg_advisory_xact_lock(?, hashtext(?))", rs -> {
+                }, ADVISORY_LOCK_SPACE, sha256);
+                try {
+                    return work.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object lockFor(String sha256) {
+        return locks[Integer.parseInt(sha256.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
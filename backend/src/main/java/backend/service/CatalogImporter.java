@@ -0,0 +1,489 @@
+package backend.service;
+
+import backend.model.Artist;
+import backend.model.Genre;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bulk import of a song catalog from a manifest plus a directory of audio and cover files.
+ *
+ * The manifest is JSON Lines ({@code {"name", "artist", "genre", "audio", "image"}} per line) or
+ * CSV with a {@code name,artist,genre,audio,image} header; file paths are relative to
+ * {@code CATALOG_IMPORT_MEDIA_DIR} (default: the manifest's directory). Rows are processed in
+ * batches: files are hashed into the blob store and indexed in parallel, the batch's artists are
+ * looked up and created with one query each, and the songs go in as one JDBC batch. After each
+ * committed batch the number of manifest rows done is written to {@code <manifest>.progress}, so
+ * a restarted import continues where it stopped.
+ *
+ * Every song records the manifest row it came from ({@code import_key}) and the blob references
+ * it holds are counted in the same transaction as its row, so a batch that dies half way leaves
+ * no references behind, and one that is re-run after a crash between its commit and the progress
+ * file skips the rows already there instead of importing them twice.
+ *
+ * Files are stored before their rows exist, so the blobs of rows that end up not inserted (bad,
+ * already imported, or in a batch that rolled back) are discarded again unless something else
+ * refers to the same content.
+ *
+ * Runs once after startup when {@code CATALOG_IMPORT_MANIFEST} is set, on whichever instance gets
+ * the manifest's Postgres advisory lock first; the others leave it to that one. For Postgres, adding
+ * {@code reWriteBatchedInserts=true} to the JDBC URL lets the driver send each batch as
+ * multi-row inserts.
+ */
+@Component
+public class CatalogImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImporter.class);
+    // First key of the session advisory lock held for an import ("impt"); BlobStore locks under "blob".
+    private static final int ADVISORY_LOCK_SPACE = 0x696d7074;
+
+    record Entry(String name, String artist, String genre, String audio, String image) {
+    }
+
+    private record Row(long number, String line) {
+    }
+
+    // The files are in the blob store, but not referenced until the batch's transaction commits.
+    private record Imported(String key, Entry entry, Path audioSource, BlobStore.StoredBlob audio,
+                            Path imageSource, BlobStore.StoredBlob image, String imageType,
+                            Mp3Indexer.Mp3Info info) {
+        String audioName() {
+            return audio.sha256() + ".mp3";
+        }
+
+        String imageName() {
+            return image.sha256() + extensionOf(entry.image());
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final Mp3Indexer mp3Indexer;
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate transaction;
+    private final SongSearchIndex songSearchIndex;
+    private final SongFacetIndex songFacetIndex;
+    private final ObjectMapper json = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Value("${CATALOG_IMPORT_MANIFEST:}")
+    private String manifest;
+
+    @Value("${CATALOG_IMPORT_MEDIA_DIR:}")
+    private String mediaDir;
+
+    @Value("${CATALOG_IMPORT_THREADS:8}")
+    private int threads;
+
+    @Value("${CATALOG_IMPORT_BATCH_SIZE:500}")
+    private int batchSize;
+
+    public CatalogImporter(BlobStore blobStore, Mp3Indexer mp3Indexer, JdbcTemplate jdbc,
+                           NamedParameterJdbcTemplate namedJdbc, TransactionTemplate transaction,
+                           SongSearchIndex songSearchIndex, SongFacetIndex songFacetIndex) {
+        this.blobStore = blobStore;
+        this.mp3Indexer = mp3Indexer;
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.transaction = transaction;
+        this.songSearchIndex = songSearchIndex;
+        this.songFacetIndex = songFacetIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (manifest.isBlank()) return;
+
+        Path manifestPath = Paths.get(manifest).toAbsolutePath();
+        Path baseDir = mediaDir.isBlank() ? manifestPath.getParent() : Paths.get(mediaDir).toAbsolutePath();
+        Thread.ofPlatform().daemon().name("catalog-import").start(() -> {
+            try {
+                runExclusively(manifestPath, baseDir);
+            } catch (Exception e) {
+                log.error("Catalog import of {} stopped: {}", manifestPath, e.toString());
+            }
+        });
+    }
+
+    /**
+     * Runs the import while holding an advisory lock on the manifest's name, on a connection kept
+     * for the purpose; the lock goes with the connection if this instance dies. Returns false
+     * without importing anything when another instance holds it.
+     */
+    boolean runExclusively(Path manifestPath, Path baseDir) {
+        String manifestName = manifestPath.getFileName().toString();
+        Boolean ran = jdbc.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!advisoryLock(connection, "pg_try_advisory_lock", manifestName)) {
+                log.info("Catalog {} is being imported by another instance", manifestPath);
+                return false;
+            }
+            try {
+                run(manifestPath, baseDir);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                advisoryLock(connection, "pg_advisory_unlock", manifestName);
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private static boolean advisoryLock(Connection connection, String function, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?, hashtext(?))")) {
+            statement.setInt(1, ADVISORY_LOCK_SPACE);
+            statement.setString(2, name);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    void run(Path manifestPath, Path baseDir) throws IOException {
+        Path progressFile = manifestPath.resolveSibling(manifestPath.getFileName() + ".progress");
+        long done = readProgress(progressFile);
+        boolean csv = manifestPath.getFileName().toString().toLowerCase().endsWith(".csv");
+        long started = System.nanoTime();
+        long imported = 0;
+        long skipped = 0;
+
+        String manifestName = manifestPath.getFileName().toString();
+        log.info("Importing catalog {} from row {} on {} threads", manifestPath, done, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads),
+                Thread.ofPlatform().daemon().name("catalog-import-", 0).factory());
+        Map<String, Long> artistIds = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            List<String> header = csv ? parseCsvLine(reader.readLine()) : null;
+
+            long row = 0;
+            List<Row> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (row++ < done) continue;
+                batch.add(new Row(row, line));
+                if (batch.size() == batchSize) {
+                    int inserted = importBatch(batch, header, baseDir, pool, artistIds, manifestName);
+                    imported += inserted;
+                    skipped += batch.size() - inserted;
+                    done += batch.size();
+                    writeProgress(progressFile, done);
+                    batch.clear();
+                    log.info("Catalog import: {} rows done ({} imported, {} skipped)", done, imported, skipped);
+                }
+            }
+            if (!batch.isEmpty()) {
+                int inserted = importBatch(batch, header, baseDir, pool, artistIds, manifestName);
+                imported += inserted;
+                skipped += batch.size() - inserted;
+                done += batch.size();
+                writeProgress(progressFile, done);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        log.info("Catalog import finished in {} s: {} rows, {} imported, {} skipped",
+                (System.nanoTime() - started) / 1_000_000_000, done, imported, skipped);
+    }
+
+    /**
+     * Imports one batch and returns how many songs were inserted; bad rows are logged and skipped,
+     * as are rows imported before (a batch re-run after a crash).
+     */
+    private int importBatch(List<Row> rows, List<String> header, Path baseDir,
+                            ExecutorService pool, Map<String, Long> artistIds, String manifestName) {
+        List<CompletableFuture<Imported>> pending = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            String key = manifestName + ":" + row.number();
+            pending.add(CompletableFuture.supplyAsync(() -> importFiles(key, row.line(), header, baseDir), pool));
+        }
+        List<Imported> ready = new ArrayList<>(rows.size());
+        for (CompletableFuture<Imported> future : pending) {
+            Imported imported = future.join();
+            if (imported != null) ready.add(imported);
+        }
+        if (ready.isEmpty()) return 0;
+
+        List<Imported> inserted;
+        try {
+            inserted = transaction.execute(status -> {
+                Set<String> done = lookUpImported(ready);
+                List<Imported> fresh = ready.stream().filter(imported -> !done.contains(imported.key())).toList();
+                if (fresh.isEmpty()) return fresh;
+                resolveArtists(fresh, artistIds);
+                insertSongs(fresh, artistIds);
+                retainBlobs(fresh);
+                return fresh;
+            });
+        } catch (RuntimeException e) {
+            artistIds.clear(); // ids created in the rolled back transaction are gone
+            discardBlobs(ready);
+            throw e;
+        }
+        List<Imported> skipped = new ArrayList<>(ready);
+        skipped.removeAll(inserted);
+        discardBlobs(skipped);
+        // A song deleted meanwhile may have dropped the last reference, and the bytes, before ours counted.
+        for (Imported imported : inserted) {
+            try {
+                blobStore.ensureStored(imported.audio().sha256(), imported.audioSource(), "audio/mpeg");
+                blobStore.ensureStored(imported.image().sha256(), imported.imageSource(), imported.imageType());
+            } catch (IOException e) {
+                log.warn("Could not restore the files of catalog row {}: {}", imported.key(), e.toString());
+            }
+        }
+        // Rows went in through JDBC, so the in-memory indexes have to fetch them themselves.
+        songSearchIndex.catchUp();
+        songFacetIndex.catchUp();
+        return inserted.size();
+    }
+
+    // Blobs in use by any row, including those of the same content just inserted, are kept.
+    private void discardBlobs(List<Imported> rows) {
+        Set<String> blobs = new HashSet<>();
+        for (Imported imported : rows) {
+            blobs.add(imported.audio().sha256());
+            blobs.add(imported.image().sha256());
+        }
+        blobs.forEach(blobStore::discardIfUnreferenced);
+    }
+
+    // Runs on the pool: one row's parse, hashing copies into the blob store, and MP3 scan.
+    private Imported importFiles(String key, String line, List<String> header, Path baseDir) {
+        Entry entry = null;
+        BlobStore.StoredBlob audioBlob = null;
+        try {
+            entry = header != null ? csvEntry(header, parseCsvLine(line)) : json.readValue(line, Entry.class);
+            if (isBlank(entry.name()) || isBlank(entry.artist()) || isBlank(entry.audio()) || isBlank(entry.image())) {
+                throw new IllegalArgumentException("name, artist, audio and image are required");
+            }
+            Path audio = within(baseDir, entry.audio());
+            Path image = within(baseDir, entry.image());
+
+            try (InputStream in = Files.newInputStream(audio)) {
+                audioBlob = blobStore.store(in, "audio/mpeg");
+            }
+            String detected = ThumbnailService.detectContentType(image);
+            String imageType = detected != null ? detected : "application/octet-stream";
+            BlobStore.StoredBlob imageBlob;
+            try (InputStream in = Files.newInputStream(image)) {
+                imageBlob = blobStore.store(in, imageType);
+            }
+
+            Mp3Indexer.Mp3Info info = null;
+            try {
+                info = mp3Indexer.index(blobStore.resolve(audioBlob.sha256() + ".mp3"));
+            } catch (IOException e) {
+                log.debug("Could not index {}: {}", entry.audio(), e.toString()); // left to the backfill
+            }
+            return new Imported(key, entry, audio, audioBlob, image, imageBlob, imageType, info);
+        } catch (Exception e) {
+            log.warn("Skipping catalog row {}: {}", entry != null ? entry.name() : line, e.toString());
+            if (audioBlob != null) blobStore.discardIfUnreferenced(audioBlob.sha256());
+            return null;
+        }
+    }
+
+    private Set<String> lookUpImported(List<Imported> batch) {
+        Set<String> done = new HashSet<>();
+        namedJdbc.query("SELECT import_key FROM songs WHERE import_key IN (:keys)",
+                new MapSqlParameterSource("keys", batch.stream().map(Imported::key).toList()),
+                rs -> {
+                    done.add(rs.getString("import_key"));
+                });
+        return done;
+    }
+
+    // One lookup for the batch's unknown artists, one batch insert for the missing ones.
+    private void resolveArtists(List<Imported> batch, Map<String, Long> artistIds) {
+        Set<String> unknown = new LinkedHashSet<>();
+        for (Imported imported : batch) {
+            if (!artistIds.containsKey(imported.entry().artist())) unknown.add(imported.entry().artist());
+        }
+        if (unknown.isEmpty()) return;
+
+        lookUpArtists(unknown, artistIds);
+        List<Object[]> missing = new ArrayList<>();
+        for (String name : unknown) {
+            if (!artistIds.containsKey(name)) missing.add(new Object[]{name, Artist.DEFAULT_IMAGE_URL});
+        }
+        if (missing.isEmpty()) return;
+
+        jdbc.batchUpdate("INSERT INTO artists (name, followers, imageurl) VALUES (?, 0, ?)", missing);
+        lookUpArtists(unknown, artistIds);
+    }
+
+    private void lookUpArtists(Set<String> names, Map<String, Long> artistIds) {
+        namedJdbc.query("SELECT id, name FROM artists WHERE name IN (:names)",
+                new MapSqlParameterSource("names", names),
+                rs -> {
+                    artistIds.putIfAbsent(rs.getString("name"), rs.getLong("id"));
+                });
+    }
+
+    private void insertSongs(List<Imported> batch, Map<String, Long> artistIds) {
+        jdbc.batchUpdate("""
+                        INSERT INTO songs (name, artist_id, genre, filepath, imageurl,
+                                           duration_ms, bitrate, sample_rate, size_bytes, crc32, import_key)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        """,
+                batch, batch.size(), (ps, imported) -> {
+                    Entry entry = imported.entry();
+                    Mp3Indexer.Mp3Info info = imported.info();
+                    ps.setString(1, entry.name());
+                    ps.setLong(2, artistIds.get(entry.artist()));
+                    ps.setString(3, genreOf(entry.genre()).name());
+                    ps.setString(4, imported.audioName());
+                    ps.setString(5, MediaUrlSigner.IMAGE_PATH + imported.imageName());
+                    if (info != null) {
+                        ps.setLong(6, info.durationMs());
+                        ps.setInt(7, info.bitrateKbps());
+                        ps.setInt(8, info.sampleRate());
+                        ps.setLong(9, info.sizeBytes());
+                        ps.setLong(10, info.crc32());
+                    } else {
+                        ps.setNull(6, Types.BIGINT);
+                        ps.setNull(7, Types.INTEGER);
+                        ps.setNull(8, Types.INTEGER);
+                        ps.setNull(9, Types.BIGINT);
+                        ps.setNull(10, Types.BIGINT);
+                    }
+                    ps.setString(11, imported.key());
+                });
+    }
+
+    // One reference per song on its audio and cover, counted per distinct blob like DBMediaBlobRepository.retain.
+    private void retainBlobs(List<Imported> batch) {
+        // Sorted, so concurrent writers lock the blob rows in the same order.
+        Map<String, Object[]> blobs = new TreeMap<>();
+        for (Imported imported : batch) {
+            count(blobs, imported.audio(), "audio/mpeg");
+            count(blobs, imported.image(), imported.imageType());
+        }
+        jdbc.batchUpdate("""
+                        INSERT INTO media_blobs (sha256, size_bytes, ref_count, content_type)
+                        VALUES (?, ?, ?, ?)
+                        ON CONFLICT (sha256) DO UPDATE SET ref_count = media_blobs.ref_count + EXCLUDED.ref_count
+                        """,
+                new ArrayList<>(blobs.values()));
+    }
+
+    private static void count(Map<String, Object[]> blobs, BlobStore.StoredBlob blob, String contentType) {
+        Object[] row = blobs.computeIfAbsent(blob.sha256(),
+                sha256 -> new Object[]{sha256, blob.sizeBytes(), 0, contentType});
+        row[2] = (Integer) row[2] + 1;
+    }
+
+    private static Genre genreOf(String name) {
+        try {
+            return Genre.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Genre.OTHER;
+        }
+    }
+
+    private static Entry csvEntry(List<String> header, List<String> values) {
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            row.put(header.get(i).trim().toLowerCase(), values.get(i));
+        }
+        return new Entry(row.get("name"), row.get("artist"), row.get("genre"), row.get("audio"), row.get("image"));
+    }
+
+    /** Splits one CSV line (RFC 4180 quoting, no embedded line breaks). */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        if (line == null) return values;
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    // Manifest paths must stay inside the media directory.
+    private static Path within(Path baseDir, String relative) throws IOException {
+        Path resolved = baseDir.resolve(relative).normalize();
+        if (!resolved.startsWith(baseDir) || !Files.isRegularFile(resolved)) {
+            throw new IOException("No such file in the media directory: " + relative);
+        }
+        return resolved;
+    }
+
+    private static String extensionOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        String ext = dot >= 0 ? filename.substring(dot).toLowerCase() : "";
+        return ext.matches("\\.[a-z0-9]{1,8}") ? ext : "";
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static long readProgress(Path progressFile) throws IOException {
+        if (!Files.exists(progressFile)) return 0;
+        return Long.parseLong(Files.readString(progressFile).trim());
+    }
+
+    private static void writeProgress(Path progressFile, long done) throws IOException {
+        Path tmp = progressFile.resolveSibling(progressFile.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(done));
+        Files.move(tmp, progressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
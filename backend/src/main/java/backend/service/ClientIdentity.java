@@ -0,0 +1,34 @@
+package backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.security.Principal;
+
+/**
+ * Stable key for "who is asking", used to scope per-listener work and limits.
+ * Authenticated users are keyed by their login, everyone else by client address.
+ */
+public final class ClientIdentity {
+
+    private ClientIdentity() {
+    }
+
+    public static String of(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && principal.getName() != null) {
+            return "user:" + principal.getName();
+        }
+        return address(request);
+    }
+
+    /**
+     * The client address alone, for requests that never carry a login: media URLs are signed
+     * instead (see JwtAuthenticationFilter), so {@link #of} would give the same answer anyway.
+     */
+    public static String address(HttpServletRequest request) {
+        // Cloud Run terminates TLS in front of us. Tomcat's RemoteIpValve (forward-headers-strategy
+        // in application.yaml) walks X-Forwarded-For from the right past the trusted proxies, so
+        // this is the first address a client could not have made up.
+        return "ip:" + request.getRemoteAddr();
+    }
+}
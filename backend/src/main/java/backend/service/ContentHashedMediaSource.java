@@ -0,0 +1,42 @@
+package backend.service;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A stored file addressed by its content hash. The bytes behind a hash never change, so the hash
+ * itself is the strong ETag: it survives copies, restores and other instances' mtimes, which the
+ * size + mtime default does not.
+ */
+public record ContentHashedMediaSource(FileMediaSource source, String etag) implements MediaSource {
+
+    public static ContentHashedMediaSource of(Path file, String contentType, String hash) throws IOException {
+        return new ContentHashedMediaSource(FileMediaSource.of(file, contentType), "\"" + hash + "\"");
+    }
+
+    @Override
+    public long length() {
+        return source.length();
+    }
+
+    @Override
+    public long lastModified() {
+        return source.lastModified();
+    }
+
+    @Override
+    public String contentType() {
+        return source.contentType();
+    }
+
+    @Override
+    public Path file() {
+        return source.file();
+    }
+
+    @Override
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        source.transferTo(position, count, target);
+    }
+}
@@ -0,0 +1,205 @@
+package backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Splits an MP3 at frame boundaries into fixed-duration segments and writes an HLS (VOD)
+ * playlist next to them:
+ *
+ *   uploads/hls/&lt;filepath&gt;/index.m3u8
+ *   uploads/hls/&lt;filepath&gt;/segment-00000.mp3 ...
+ *
+ * Segments are named after their position and never rewritten, so they can be cached forever.
+ */
+@Component
+public class HlsPackager {
+
+    private static final Logger log = LoggerFactory.getLogger(HlsPackager.class);
+
+    public static final String MANIFEST_NAME = "index.m3u8";
+
+    @Value("${MEDIA_HLS_DIR:uploads/hls}")
+    private String hlsDir;
+
+    @Value("${HLS_SEGMENT_SECONDS:6}")
+    private double segmentSeconds;
+
+    private final MediaLocator mediaLocator;
+
+    // One packaging run per track at a time; concurrent callers wait for the first one.
+    // Bounded by the number of tracks, so entries are never removed.
+    private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    public HlsPackager(MediaLocator mediaLocator) {
+        this.mediaLocator = mediaLocator;
+    }
+
+    private record Segment(long start, long end, double seconds) {
+    }
+
+    /**
+     * Returns the package directory for a track, packaging it first if needed
+     * (bundled and pre-existing tracks are packaged lazily on first request).
+     * Returns null when the source audio does not exist.
+     */
+    public Path ensurePackaged(String filepath) throws IOException {
+        Path dir = packageDir(filepath);
+        if (dir == null) return null;
+        if (Files.exists(dir.resolve(MANIFEST_NAME))) return dir;
+
+        Path audio = mediaLocator.resolveAudio(filepath);
+        if (audio == null) return null;
+
+        synchronized (locks.computeIfAbsent(filepath, k -> new Object())) {
+            if (!Files.exists(dir.resolve(MANIFEST_NAME))) {
+                packageTrack(audio, dir);
+            }
+        }
+        return dir;
+    }
+
+    /** Whether the track has been packaged on this instance. */
+    public boolean isPackaged(String filepath) {
+        Path dir = packageDir(filepath);
+        return dir != null && Files.exists(dir.resolve(MANIFEST_NAME));
+    }
+
+    /** Resolves a file inside a track's package directory (null if the name escapes it). */
+    public Path resolve(String filepath, String name) {
+        Path dir = packageDir(filepath);
+        if (dir == null) return null;
+        Path resolved = dir.resolve(name).normalize();
+        return resolved.getParent() != null && resolved.getParent().equals(dir) ? resolved : null;
+    }
+
+    /**
+     * The track's playlist with {@code query} appended to every segment URI. Players resolve the
+     * relative segment names against the playlist URL without its query, so this is how segments
+     * get the signature the playlist was requested with.
+     */
+    public String manifestWithQuery(String filepath, String query) throws IOException {
+        Path manifest = resolve(filepath, MANIFEST_NAME);
+        if (manifest == null) throw new IOException("No HLS package for " + filepath);
+
+        StringBuilder sb = new StringBuilder();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            sb.append(line);
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                sb.append('?').append(query);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void delete(String filepath) {
+        Path dir = packageDir(filepath);
+        if (dir == null) return;
+        try {
+            FileSystemUtils.deleteRecursively(dir);
+        } catch (IOException e) {
+            log.warn("Could not delete HLS package {}: {}", dir, e.toString());
+        }
+    }
+
+    private Path packageDir(String filepath) {
+        if (filepath == null || filepath.isBlank()) return null;
+        Path root = Paths.get(hlsDir).toAbsolutePath();
+        Path dir = root.resolve(filepath).normalize();
+        return dir.getParent() != null && dir.getParent().equals(root) ? dir : null;
+    }
+
+    private void packageTrack(Path audio, Path dir) throws IOException {
+        List<Segment> segments = cutSegments(audio);
+        if (segments.isEmpty()) {
+            throw new IOException("No MPEG audio frames found in " + audio);
+        }
+
+        // Build the whole package in a sibling temp dir and rename it into place,
+        // so readers never see a manifest pointing at missing segments.
+        Files.createDirectories(dir.getParent());
+        Path tmp = Files.createTempDirectory(dir.getParent(), ".hls-");
+        try {
+            try (FileChannel source = FileChannel.open(audio, StandardOpenOption.READ)) {
+                for (int i = 0; i < segments.size(); i++) {
+                    Segment segment = segments.get(i);
+                    try (FileChannel target = FileChannel.open(tmp.resolve(segmentName(i)),
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                        long position = segment.start();
+                        while (position < segment.end()) {
+                            position += source.transferTo(position, segment.end() - position, target);
+                        }
+                    }
+                }
+            }
+            Files.writeString(tmp.resolve(MANIFEST_NAME), manifest(segments), StandardCharsets.UTF_8);
+            Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (Files.exists(tmp)) {
+                FileSystemUtils.deleteRecursively(tmp);
+            }
+        }
+        log.info("Packaged {} into {} HLS segments", audio.getFileName(), segments.size());
+    }
+
+    private List<Segment> cutSegments(Path audio) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        long[] start = {-1};
+        long[] end = {0};
+        double[] seconds = {0};
+
+        Mp3FrameScanner.scan(audio, (offset, length, samples, sampleRate, bitrateKbps) -> {
+            if (start[0] < 0) start[0] = offset;
+            // Cut before a frame once the current segment is long enough.
+            if (seconds[0] >= segmentSeconds) {
+                segments.add(new Segment(start[0], offset, seconds[0]));
+                start[0] = offset;
+                seconds[0] = 0;
+            }
+            seconds[0] += (double) samples / sampleRate;
+            end[0] = offset + length;
+        });
+        if (start[0] >= 0 && end[0] > start[0]) {
+            segments.add(new Segment(start[0], end[0], seconds[0]));
+        }
+        return segments;
+    }
+
+    private static String manifest(List<Segment> segments) {
+        double longest = segments.stream().mapToDouble(Segment::seconds).max().orElse(0);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("#EXTM3U\n");
+        sb.append("#EXT-X-VERSION:3\n");
+        sb.append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        sb.append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(longest)).append('\n');
+        sb.append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        for (int i = 0; i < segments.size(); i++) {
+            sb.append(String.format(Locale.ROOT, "#EXTINF:%.3f,", segments.get(i).seconds())).append('\n');
+            sb.append(segmentName(i)).append('\n');
+        }
+        sb.append("#EXT-X-ENDLIST\n");
+        return sb.toString();
+    }
+
+    private static String segmentName(int index) {
+        return String.format(Locale.ROOT, "segment-%05d.mp3", index);
+    }
+}
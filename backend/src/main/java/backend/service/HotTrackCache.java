@@ -0,0 +1,280 @@
+package backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of memory-mapped audio files for the small set of tracks that get most streams.
+ *
+ * A mapping keeps a hot track's pages loaded: responses that go out with sendfile read them from
+ * the page cache without touching the disk, and those that have to be copied (paced or
+ * multi-range) are written straight from the mapping.
+ *
+ * Admission and eviction follow TinyLFU: every stream request bumps an approximate, periodically
+ * halved frequency counter for its file. A file is only mapped once it has been streamed
+ * {@code AUDIO_CACHE_MIN_STREAMS} times recently, and only if it is requested more often than
+ * the least-recently-used entries it would push out of the byte budget. Hits take no lock; only
+ * admitting and evicting a mapping does.
+ */
+@Component
+public class HotTrackCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HotTrackCache.class);
+    private static final Comparator<Map.Entry<Path, Entry>> LEAST_RECENTLY_USED =
+            Comparator.comparingLong(e -> e.getValue().lastAccess);
+
+    public record Stats(long hits, long misses, long admissions, long rejections, long evictions,
+                        int entries, long bytesUsed, long bytesBudget) {
+    }
+
+    private final long budgetBytes;
+    private final int minStreams;
+
+    private final FrequencySketch sketch = new FrequencySketch(4096);
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+    // Guards adding and removing entries, and bytesUsed.
+    private final Object admission = new Object();
+    private long bytesUsed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HotTrackCache(@Value("${AUDIO_CACHE_MAX_BYTES:268435456}") long budgetBytes,
+                         @Value("${AUDIO_CACHE_MIN_STREAMS:3}") int minStreams) {
+        this.budgetBytes = budgetBytes;
+        this.minStreams = minStreams;
+    }
+
+    /**
+     * Records a stream of {@code file} and returns a lease on its mapping, or null when the file
+     * is not (or not yet) cached. Callers must close the returned lease.
+     */
+    public MappedMediaSource acquire(FileMediaSource file) {
+        Path key = file.file();
+        sketch.increment(key);
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.lastModified == file.lastModified() && entry.retain()) {
+            entry.lastAccess = System.nanoTime();
+            hits.increment();
+            return entry.lease();
+        }
+        misses.increment();
+        if (entry != null && entry.lastModified != file.lastModified()) {
+            // File changed on disk since it was mapped.
+            synchronized (admission) {
+                evict(key, entry);
+            }
+        }
+
+        if (budgetBytes <= 0 || file.length() == 0 || file.length() > budgetBytes
+                || sketch.frequency(key) < minStreams) {
+            return null;
+        }
+        synchronized (admission) {
+            if (victimsFor(key, file.length()) == null) {
+                rejections.increment();
+                return null;
+            }
+        }
+
+        // Map outside the lock; another thread may have raced us, in which case we keep theirs.
+        Entry mapped = map(file);
+        if (mapped == null) return null;
+
+        synchronized (admission) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                mapped.release();
+                return existing.retain() ? existing.lease() : null;
+            }
+            List<Map.Entry<Path, Entry>> victims = victimsFor(key, file.length());
+            if (victims == null) {
+                rejections.increment();
+                mapped.release();
+                return null;
+            }
+            for (Map.Entry<Path, Entry> victim : victims) {
+                evict(victim.getKey(), victim.getValue());
+            }
+
+            entries.put(key, mapped);
+            bytesUsed += mapped.size;
+            admissions.increment();
+            mapped.retain();
+            return mapped.lease();
+        }
+    }
+
+    public Stats stats() {
+        long used;
+        synchronized (admission) {
+            used = bytesUsed;
+        }
+        return new Stats(hits.sum(), misses.sum(), admissions.sum(), rejections.sum(), evictions.sum(),
+                entries.size(), used, budgetBytes);
+    }
+
+    /**
+     * TinyLFU admission: the least recently used entries that must go for {@code size} more bytes
+     * to fit, or null if the candidate is not more popular than every entry it would displace.
+     * Called with the admission lock held.
+     */
+    private List<Map.Entry<Path, Entry>> victimsFor(Path candidate, long size) {
+        long needed = bytesUsed + size - budgetBytes;
+        if (needed <= 0) return List.of();
+
+        // A few dozen entries at most (the budget over the size of a track), so sorting is cheap.
+        List<Map.Entry<Path, Entry>> byAge = new ArrayList<>(entries.entrySet());
+        byAge.sort(LEAST_RECENTLY_USED);
+
+        int candidateFrequency = sketch.frequency(candidate);
+        long freed = 0;
+        List<Map.Entry<Path, Entry>> victims = new ArrayList<>();
+        for (Map.Entry<Path, Entry> e : byAge) {
+            if (freed >= needed) break;
+            if (sketch.frequency(e.getKey()) >= candidateFrequency) return null;
+            freed += e.getValue().size;
+            victims.add(e);
+        }
+        return freed >= needed ? victims : null;
+    }
+
+    // Called with the admission lock held.
+    private void evict(Path key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            bytesUsed -= entry.size;
+            evictions.increment();
+            entry.release();
+        }
+    }
+
+    private Entry map(FileMediaSource file) {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file.file(), StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length(), arena);
+            // Fault the pages in now rather than on the first listener's request path.
+            segment.load();
+            return new Entry(file, segment, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            log.warn("Could not map {} into the hot track cache: {}", file.file(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * A mapped file. The cache holds one reference and every open lease holds another; the file is
+     * unmapped when the last one is released, so eviction never pulls memory out from under a stream.
+     */
+    private static final class Entry {
+        final FileMediaSource file;
+        final MemorySegment segment;
+        final Arena arena;
+        final long size;
+        final long lastModified;
+        final AtomicInteger refs = new AtomicInteger(1);
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(FileMediaSource file, MemorySegment segment, Arena arena) {
+            this.file = file;
+            this.segment = segment;
+            this.arena = arena;
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        boolean retain() {
+            int n;
+            do {
+                n = refs.get();
+                if (n == 0) return false;
+            } while (!refs.compareAndSet(n, n + 1));
+            return true;
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0) {
+                arena.close();
+            }
+        }
+
+        MappedMediaSource lease() {
+            return new MappedMediaSource(file, segment, this::release);
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit-saturating counters. All counters are halved after
+     * {@code 10 * width} increments so the estimate tracks recent popularity. Counters are updated
+     * with CAS, so concurrent streams never wait on each other; a halving that overlaps an
+     * increment may lose it, which an estimate can afford.
+     */
+    private static final class FrequencySketch {
+        private static final int MAX = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final AtomicIntegerArray[] table;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        FrequencySketch(int width) {
+            this.table = new AtomicIntegerArray[SEEDS.length];
+            for (int i = 0; i < SEEDS.length; i++) {
+                table[i] = new AtomicIntegerArray(width);
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(Object key) {
+            int h = key.hashCode();
+            for (int i = 0; i < SEEDS.length; i++) {
+                table[i].getAndUpdate(index(h, i), n -> n < MAX ? n + 1 : n);
+            }
+            // Only the thread that reaches the sample size halves; the others keep counting.
+            if (additions.incrementAndGet() == sampleSize) {
+                for (AtomicIntegerArray row : table) {
+                    for (int j = 0; j < row.length(); j++) row.getAndUpdate(j, n -> n >>> 1);
+                }
+                additions.addAndGet(-sampleSize / 2);
+            }
+        }
+
+        int frequency(Object key) {
+            int h = key.hashCode();
+            int min = MAX;
+            for (int i = 0; i < SEEDS.length; i++) {
+                min = Math.min(min, table[i].get(index(h, i)));
+            }
+            return min;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return h & mask;
+        }
+    }
+}
@@ -13,12 +13,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.regex.Pattern;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    // Audio, HLS and cover image requests are authorised by signed URLs (MediaUrlSigner).
+    private static final Pattern MEDIA_PATH = Pattern.compile("^(/api)?/songs/(\\d+/(stream|hls/.+)|image/.+)$");
+
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
 
@@ -28,6 +32,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         this.userDetailsService = userDetailsService;
     }
 
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return MEDIA_PATH.matcher(request.getRequestURI()).matches();
+    }
+
     @Override
     protected void doFilterInternal(
             HttpServletRequest request,
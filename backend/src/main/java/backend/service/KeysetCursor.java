@@ -0,0 +1,55 @@
+package backend.service;
+
+import backend.dto.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Opaque cursors for keyset pagination of the list endpoints.
+ *
+ * Every list is ordered by a unique id, and a cursor carries the id of the last row sent, so the
+ * next page is a range scan on that id's index ({@code id > :after}) however deep the client
+ * has paged. Clients must treat cursors as opaque strings; the encoding may change.
+ */
+public final class KeysetCursor {
+
+    private static final String PREFIX = "k1:";
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * The id a cursor points past, or {@code first} when there is no cursor (first page).
+     * Throws IllegalArgumentException for a cursor this class did not produce.
+     */
+    public static long decode(String cursor, long first) {
+        if (cursor == null || cursor.isBlank()) return first;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!decoded.startsWith(PREFIX)) throw new IllegalArgumentException("Invalid cursor");
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) { // includes NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public static String encode(long key) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + key).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Turns rows fetched with a limit of {@code limit + 1} into a page: the extra row only tells
+     * that there is a next page, whose cursor is the key of the last row kept.
+     */
+    public static <E, T> CursorPage<T> page(List<E> rows, int limit, ToLongFunction<E> key, Function<E, T> mapper) {
+        boolean more = rows.size() > limit;
+        List<E> kept = more ? rows.subList(0, limit) : rows;
+        String next = more ? encode(key.applyAsLong(kept.get(kept.size() - 1))) : null;
+        return new CursorPage<>(kept.stream().map(mapper).toList(), next);
+    }
+}
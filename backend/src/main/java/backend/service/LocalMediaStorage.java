@@ -0,0 +1,94 @@
+package backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Blobs as plain files under {@code MEDIA_BLOB_DIR}; the bytes are always served by the app. */
+@Component
+@ConditionalOnProperty(name = "MEDIA_STORAGE", havingValue = "local", matchIfMissing = true)
+public class LocalMediaStorage implements MediaStorage {
+
+    private final Path root;
+
+    public LocalMediaStorage(@Value("${MEDIA_BLOB_DIR:uploads/blobs}") String blobDir) throws IOException {
+        this.root = Paths.get(blobDir).toAbsolutePath();
+        Files.createDirectories(root);
+    }
+
+    @Override
+    public void store(String key, Path file, String contentType) throws IOException {
+        moveInto(file, localPath(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(localPath(key));
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return root.resolve(key);
+    }
+
+    @Override
+    public Path materialize(String key) {
+        Path path = localPath(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(localPath(key));
+    }
+
+    @Override
+    public List<String> keysOlderThan(String prefix, Instant before) throws IOException {
+        Path dir = localPath(prefix);
+        if (!Files.isDirectory(dir)) return List.of();
+        List<String> keys = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(before)) {
+                    keys.add(root.relativize(file).toString().replace('\\', '/'));
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public URI presignedGet(String key, String contentType, Duration ttl) {
+        return null;
+    }
+
+    /** Moves {@code file} to {@code target}, copying through a temp file when they are on different filesystems. */
+    static void moveInto(Path file, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path tmp = Files.createTempFile(target.getParent(), ".store-", ".tmp");
+            try {
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(file);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+}
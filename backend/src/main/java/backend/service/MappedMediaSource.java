@@ -0,0 +1,69 @@
+package backend.service;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A lease on a track held in {@link HotTrackCache}. Sendfile still gets the file, whose pages the
+ * mapping keeps loaded; bytes that have to be copied are written straight from the mapping.
+ * Closing the lease lets the cache unmap the file once it has been evicted.
+ */
+public final class MappedMediaSource implements MediaSource, AutoCloseable {
+
+    private static final long CHUNK = 1 << 20;
+
+    private final FileMediaSource origin;
+    private final MemorySegment segment;
+    private final Runnable release;
+    private boolean closed;
+
+    MappedMediaSource(FileMediaSource origin, MemorySegment segment, Runnable release) {
+        this.origin = origin;
+        this.segment = segment;
+        this.release = release;
+    }
+
+    @Override
+    public long length() {
+        return origin.length();
+    }
+
+    @Override
+    public long lastModified() {
+        return origin.lastModified();
+    }
+
+    @Override
+    public String contentType() {
+        return origin.contentType();
+    }
+
+    @Override
+    public Path file() {
+        return origin.file();
+    }
+
+    @Override
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long n = Math.min(CHUNK, end - position);
+            ByteBuffer buf = segment.asSlice(position, n).asByteBuffer();
+            while (buf.hasRemaining()) {
+                target.write(buf);
+            }
+            position += n;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            release.run();
+        }
+    }
+}
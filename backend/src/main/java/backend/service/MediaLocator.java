@@ -0,0 +1,227 @@
+package backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps a song's {@code filepath} (and cover image names) to a file on local disk. New uploads live
+ * in the {@link BlobStore}; older ones in the flat {@code uploads/} folders.
+ *
+ * Tracks bundled in {@code src/main/resources/audio} live inside the jar, where they can only be
+ * read through an InputStream. They are extracted once at startup so every track can be served
+ * straight from the filesystem (and therefore with sendfile).
+ *
+ * Playlist mosaics are kept in the {@link MediaStorage} under {@code mosaics/<hash>}, next to the
+ * blobs, so a mosaic one API instance built can be served by every other.
+ */
+@Component
+public class MediaLocator {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaLocator.class);
+
+    /** Where bundled classpath tracks are extracted to. */
+    @Value("${MEDIA_BUNDLED_AUDIO_DIR:media/bundled-audio}")
+    private String bundledAudioDir;
+
+    private final Path uploadsAudioDir = Paths.get("uploads/audio").toAbsolutePath();
+    private final Path uploadsImagesDir = Paths.get("uploads/images").toAbsolutePath();
+
+    private static final String MOSAICS_PREFIX = "mosaics/";
+
+    private final BlobStore blobStore;
+    private final MediaStorage storage;
+
+    /** Where the local copies of playlist mosaics are (see PlaylistMosaics). */
+    private final Path mosaicsDir;
+
+    private Path bundledDir;
+
+    public MediaLocator(BlobStore blobStore, MediaStorage storage) {
+        this.blobStore = blobStore;
+        this.storage = storage;
+        this.mosaicsDir = storage.localPath(MOSAICS_PREFIX);
+    }
+
+    @PostConstruct
+    void extractBundledAudio() throws IOException {
+        bundledDir = Paths.get(bundledAudioDir).toAbsolutePath();
+        Files.createDirectories(bundledDir);
+
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:audio/*");
+        int extracted = 0;
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            if (filename == null || !resource.isReadable()) continue;
+
+            Path target = bundledDir.resolve(filename);
+            if (Files.exists(target) && Files.size(target) == resource.contentLength()) continue;
+
+            // Copy to a temp file first so a concurrent reader never sees a half-written track.
+            Path tmp = Files.createTempFile(bundledDir, "extract-", ".tmp");
+            try (InputStream in = resource.getInputStream()) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                extracted++;
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        log.info("Bundled audio ready in {} ({} tracks, {} extracted)", bundledDir, resources.length, extracted);
+    }
+
+    /**
+     * Resolves a song filepath against the blob store, the bundled tracks, then the legacy uploads
+     * folder. Returns null when the file does not exist in any of them.
+     */
+    public Path resolveAudio(String filepath) {
+        if (filepath == null || filepath.isBlank()) return null;
+
+        Path blob = blobStore.resolve(filepath);
+        if (blob != null) return blob;
+
+        Path bundled = resolveWithin(bundledDir, filepath);
+        if (bundled != null && Files.isRegularFile(bundled)) return bundled;
+
+        Path uploaded = resolveWithin(uploadsAudioDir, filepath);
+        if (uploaded != null && Files.isRegularFile(uploaded)) return uploaded;
+
+        return null;
+    }
+
+    /** Resolves an uploaded cover image, or null when it does not exist. */
+    public Path resolveImage(String filename) {
+        if (filename == null || filename.isBlank()) return null;
+
+        // Mosaics are named like blobs (a hash plus extension), but by the hash of their covers.
+        if (BlobStore.keyOf(filename) != null) {
+            Path local = localImage(filename);
+            if (local != null) return local;
+            Path blob = blobStore.resolve(filename);
+            return blob != null ? blob : fetchMosaic(filename);
+        }
+
+        Path image = resolveWithin(uploadsImagesDir, filename);
+        return image != null && Files.isRegularFile(image) ? image : null;
+    }
+
+    /**
+     * Like {@link #resolveImage}, but never fetches from remote storage: null when the image is
+     * missing or only the storage has it, so callers that must not block can tell the two apart later.
+     */
+    public Path localImage(String filename) {
+        if (filename == null || filename.isBlank()) return null;
+
+        if (BlobStore.keyOf(filename) != null) {
+            Path mosaic = mosaicPath(filename);
+            if (Files.isRegularFile(mosaic)) return mosaic;
+            return blobStore.localCopy(filename);
+        }
+
+        Path image = resolveWithin(uploadsImagesDir, filename);
+        return image != null && Files.isRegularFile(image) ? image : null;
+    }
+
+    /** Keeps the local copy of a song's audio where it is until the pin is closed. */
+    public MediaStorage.Pin pinAudio(String filepath) {
+        return blobStore.pin(filepath);
+    }
+
+    /** Keeps the local copy of an image (a blob or a mosaic) where it is until the pin is closed. */
+    public MediaStorage.Pin pinImage(String filename) {
+        if (BlobStore.keyOf(filename) == null) return MediaStorage.Pin.NONE;
+        MediaStorage.Pin blob = blobStore.pin(filename);
+        MediaStorage.Pin mosaic = storage.pin(mosaicKey(filename));
+        return () -> {
+            blob.close();
+            mosaic.close();
+        };
+    }
+
+    /** Deletes a song file from the legacy uploads folder; bundled tracks are never touched. */
+    public void deleteLegacyAudio(String filepath) throws IOException {
+        Path uploaded = resolveWithin(uploadsAudioDir, filepath);
+        if (uploaded != null) {
+            Files.deleteIfExists(uploaded);
+        }
+    }
+
+    /** Deletes a cover (and its thumbnails) from the legacy uploads folder. */
+    public void deleteLegacyImage(String filename) throws IOException {
+        Path image = resolveWithin(uploadsImagesDir, filename);
+        if (image != null && Files.deleteIfExists(image)) {
+            ThumbnailService.deleteVariants(image);
+        }
+    }
+
+    /** Whether a path {@link #resolveImage} returned is a playlist mosaic rather than an upload. */
+    public boolean isMosaic(Path image) {
+        return mosaicsDir.equals(image.getParent());
+    }
+
+    /** Where the local copy of the mosaic named {@code <hash>.jpg} is (or would be). */
+    public Path mosaicPath(String filename) {
+        return storage.localPath(mosaicKey(filename));
+    }
+
+    /**
+     * Fetches the mosaic from storage (another instance may have built it) and returns its local
+     * copy, or null when no instance has stored it yet.
+     */
+    public Path fetchMosaic(String filename) {
+        try {
+            return storage.materialize(mosaicKey(filename));
+        } catch (IOException e) {
+            log.warn("Could not fetch mosaic {}: {}", filename, e.toString());
+            return null;
+        }
+    }
+
+    /** Stores a freshly drawn mosaic, consuming {@code file}, for every instance to serve. */
+    public void storeMosaic(String filename, Path file) throws IOException {
+        storage.store(mosaicKey(filename), file, "image/jpeg");
+    }
+
+    /** Names ({@code <hash>.jpg}) of the stored mosaics last written before {@code before}. */
+    public List<String> mosaicsOlderThan(Instant before) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String key : storage.keysOlderThan(MOSAICS_PREFIX, before)) {
+            String hash = key.substring(key.lastIndexOf('/') + 1);
+            // Local storage lists the mosaics' thumbnails too; those have an extension.
+            if (hash.equals(BlobStore.keyOf(hash))) names.add(hash + ".jpg");
+        }
+        return names;
+    }
+
+    /** Deletes a stored mosaic and the thumbnails of its local copy. */
+    public void deleteMosaic(String filename) throws IOException {
+        storage.delete(mosaicKey(filename));
+        ThumbnailService.deleteVariants(mosaicPath(filename));
+    }
+
+    private static String mosaicKey(String filename) {
+        String key = BlobStore.keyOf(filename);
+        if (key == null) throw new IllegalArgumentException("Not a mosaic name: " + filename);
+        return MOSAICS_PREFIX + key;
+    }
+
+    // Guards against "../" in stored filepaths escaping the media directories.
+    private static Path resolveWithin(Path root, String filename) {
+        Path resolved = root.resolve(filename).normalize();
+        return resolved.startsWith(root) ? resolved : null;
+    }
+}
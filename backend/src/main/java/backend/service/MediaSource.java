@@ -0,0 +1,40 @@
+package backend.service;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A byte source that {@link MediaStreamer} can serve with Range / conditional request support.
+ */
+public interface MediaSource {
+
+    long length();
+
+    /** Last modification time in epoch millis (used for Last-Modified / If-Range). */
+    long lastModified();
+
+    String contentType();
+
+    /**
+     * Backing file when the bytes live in one local file, so the container can sendfile() it.
+     * Returns null for sources that are not a plain file on disk.
+     */
+    Path file();
+
+    /**
+     * File to hand to sendfile for the {@code count} bytes at {@code position}, or null when they
+     * have to go through {@link #transferTo} (e.g. to be paced). Asked once per response, just
+     * before the hand-off.
+     */
+    default Path sendfile(long position, long count) {
+        return file();
+    }
+
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    /** Strong validator derived from size + mtime (files are never rewritten in place). */
+    default String etag() {
+        return "\"" + Long.toHexString(length()) + "-" + Long.toHexString(lastModified()) + "\"";
+    }
+}
@@ -0,0 +1,77 @@
+package backend.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where {@link BlobStore} keeps blob bytes. Selected with {@code MEDIA_STORAGE}: {@code local}
+ * (default, {@link LocalMediaStorage}) or {@code s3} ({@link S3MediaStorage}, any S3-compatible
+ * service such as MinIO).
+ *
+ * Everything that processes media (seek indexes, HLS, thumbnails, sendfile) works on a local
+ * file, so every implementation also has a local path per key: the object itself for local
+ * storage, a cached copy for remote storage. Files derived from a blob are written next to it.
+ */
+public interface MediaStorage {
+
+    /**
+     * Stores {@code file} under {@code key}, consuming it: afterwards the bytes are at
+     * {@link #localPath(String)}.
+     */
+    void store(String key, Path file, String contentType) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /** Where the local copy of {@code key} is, or would be once {@link #materialize}d. */
+    Path localPath(String key);
+
+    /**
+     * Makes sure the local copy of {@code key} exists (downloading it if needed) and returns it,
+     * or null when there is no such object.
+     */
+    Path materialize(String key) throws IOException;
+
+    /**
+     * Whether a local copy handed out by {@link #materialize} is still there, for callers that
+     * keep its path. Counts as a use of the copy; answered without touching the disk. Only a
+     * storage that evicts its local copies ever says no.
+     */
+    default boolean stillLocal(String key) {
+        return true;
+    }
+
+    /**
+     * Keeps the local copy of {@code key} from being evicted until the returned pin is closed, for
+     * callers that serve its path. Only a storage that evicts its local copies does anything.
+     */
+    default Pin pin(String key) {
+        return Pin.NONE;
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Keys under {@code prefix} whose object was last written before {@code before}, for sweeping
+     * objects nothing refers to any more. Local storage also lists the files derived from them.
+     */
+    List<String> keysOlderThan(String prefix, Instant before) throws IOException;
+
+    /**
+     * A URL the client can fetch the object from directly for {@code ttl}, or null when this
+     * storage cannot hand out such URLs and the bytes must be proxied.
+     */
+    URI presignedGet(String key, String contentType, Duration ttl);
+
+    /** See {@link #pin}. */
+    interface Pin extends AutoCloseable {
+        Pin NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,220 @@
+package backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves a {@link MediaSource} with HTTP Range and conditional request handling.
+ *
+ * Single ranges (and full bodies) backed by a local file are handed to Tomcat's sendfile
+ * support, so the bytes never enter the JVM. Everything else is written with
+ * {@link MediaSource#transferTo}, which still avoids per-request heap buffers; a task
+ * StreamingBulkhead is running on the container thread is deferred to a virtual thread first.
+ */
+@Component
+public class MediaStreamer {
+
+    // Tomcat's sendfile contract (see org.apache.catalina.Globals).
+    static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final StreamingBulkhead streamingBulkhead;
+
+    public MediaStreamer(StreamingBulkhead streamingBulkhead) {
+        this.streamingBulkhead = streamingBulkhead;
+    }
+
+    public void serve(MediaSource source, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = source.length();
+        String etag = source.etag();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Handles If-None-Match / If-Modified-Since (304) and If-Match / If-Unmodified-Since (412),
+        // and sets ETag + Last-Modified on the response.
+        if (new ServletWebRequest(request, response).checkNotModified(etag, source.lastModified())) {
+            return;
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        List<long[]> ranges = rangeHeader != null && ifRangeMatches(request, etag, source.lastModified())
+                ? satisfiableRanges(rangeHeader, length)
+                : null;
+
+        // No (usable) Range header: a malformed one is ignored, as RFC 9110 asks.
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(source.contentType());
+            response.setContentLengthLong(length);
+            writeBody(source, 0, length, request, response);
+            return;
+        }
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLength(0);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+            response.setContentType(source.contentType());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            writeBody(source, start, end - start + 1, request, response);
+            return;
+        }
+
+        writeMultipart(source, ranges, request, response);
+    }
+
+    /**
+     * Serves {@code [position, length)} as a 206, e.g. after a time-based seek, so the client
+     * learns the real byte offset it landed on from Content-Range.
+     */
+    public void serveFrom(MediaSource source, long position,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = source.length();
+        if (position <= 0 || position >= length) {
+            serve(source, request, response);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, source.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, source.lastModified());
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType(source.contentType());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + position + "-" + (length - 1) + "/" + length);
+        response.setContentLengthLong(length - position);
+        writeBody(source, position, length - position, request, response);
+    }
+
+    /**
+     * If-Range: only honour the Range header when the client's validator still matches.
+     * Strong comparison for ETags, exact second match for dates.
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return since != -1 && since / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns inclusive [start, end] pairs, an empty list when nothing is satisfiable,
+     * or null when the header is malformed.
+     */
+    private List<long[]> satisfiableRanges(String rangeHeader, long length) {
+        List<HttpRange> parsed;
+        try {
+            parsed = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        List<long[]> result = new ArrayList<>(parsed.size());
+        for (HttpRange range : parsed) {
+            if (length == 0) continue;
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || end < start) continue;
+            result.add(new long[]{start, end});
+        }
+        return result;
+    }
+
+    private void writeBody(MediaSource source, long position, long count,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        // Tomcat only picks up the sendfile attributes when the container thread finishes the
+        // request, which is why StreamingBulkhead runs sendfile-capable requests inline.
+        if (!request.isAsyncStarted() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            Path file = source.sendfile(position, count);
+            if (file != null) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, position);
+                request.setAttribute(SENDFILE_END_ATTR, position + count);
+                return;
+            }
+        }
+
+        if (streamingBulkhead.defer(request)) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        source.transferTo(position, count, Channels.newChannel(out));
+        out.flush();
+    }
+
+    private void writeMultipart(MediaSource source, List<long[]> ranges,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        long length = source.length();
+
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + source.contentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + (range[1] - range[0] + 1);
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (streamingBulkhead.defer(request)) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            out.write(partHeaders.get(i));
+            source.transferTo(range[0], range[1] - range[0] + 1, channel);
+        }
+        out.write(trailer);
+        out.flush();
+    }
+}
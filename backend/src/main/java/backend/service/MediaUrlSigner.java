@@ -0,0 +1,127 @@
+package backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Issues and checks expiring HMAC-signed media URLs.
+ *
+ * A signature covers the kind of resource, its id, its file key and the expiry, so a URL can be
+ * verified from the request alone: no JWT parsing and no user lookup. Expiries are rounded up to
+ * whole {@code MEDIA_URL_BUCKET_SECONDS}, so the same song gets the same URL for a while and an
+ * HTTP cache in front of us can actually reuse it.
+ *
+ * Cover images are stored as paths relative to the API ({@code /songs/image/<sha256>.<ext>}) and
+ * made absolute here with {@code MEDIA_PUBLIC_BASE_URL}, so the same rows work locally, behind
+ * Cloud Run and behind a CDN.
+ */
+@Component
+public class MediaUrlSigner {
+
+    public static final String IMAGE_PATH = "/songs/image/";
+    // Older rows hold absolute URLs of whatever host created them.
+    private static final String LEGACY_IMAGE_PATH = "/api" + IMAGE_PATH;
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final long bucketSeconds;
+    private final boolean required;
+    private final String publicBaseUrl;
+
+    public MediaUrlSigner(@Value("${MEDIA_URL_SECRET:${JWT_SECRET:}}") String secret,
+                          @Value("${MEDIA_URL_TTL_SECONDS:21600}") long ttlSeconds,
+                          @Value("${MEDIA_URL_BUCKET_SECONDS:3600}") long bucketSeconds,
+                          @Value("${MEDIA_SIGNED_URLS_REQUIRED:false}") boolean required,
+                          @Value("${MEDIA_PUBLIC_BASE_URL:http://localhost:8081/api}") String publicBaseUrl) {
+        // No built-in fallback: anyone who knows it could sign URLs for every file.
+        if (secret == null || secret.length() < 32) {
+            throw new IllegalStateException("Set MEDIA_URL_SECRET (or JWT_SECRET) to at least 32 characters");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttlSeconds = ttlSeconds;
+        this.bucketSeconds = Math.max(1, bucketSeconds);
+        this.required = required;
+        this.publicBaseUrl = publicBaseUrl.endsWith("/")
+                ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1) : publicBaseUrl;
+    }
+
+    /** Signed path of a song's audio stream, relative to the API base. */
+    public String streamUrl(Long songId, String filepath) {
+        if (songId == null || filepath == null) return null;
+        long exp = expiry();
+        return "/songs/" + songId + "/stream?exp=" + exp + "&sig=" + sign("stream", songId, filepath, exp);
+    }
+
+    /**
+     * Signed path of a song's HLS playlist, relative to the API base. The playlist hands its
+     * signature on to the segments it lists, so one signature covers the whole package.
+     */
+    public String hlsUrl(Long songId, String filepath) {
+        if (songId == null || filepath == null) return null;
+        long exp = expiry();
+        return "/songs/" + songId + "/hls/" + HlsPackager.MANIFEST_NAME + "?exp=" + exp
+                + "&sig=" + sign("hls", songId, filepath, exp);
+    }
+
+    /**
+     * Public URL of a cover image served by this API. Covers are content-addressed and cached as
+     * immutable, so they are only signed when {@code MEDIA_SIGNED_URLS_REQUIRED} is set (a
+     * rotating signature would defeat the cache). Other URLs (e.g. external artwork) are
+     * returned unchanged.
+     */
+    public String imageUrl(String imageUrl) {
+        String filename = imageFilename(imageUrl);
+        if (filename == null) return imageUrl;
+
+        String url = publicBaseUrl + IMAGE_PATH + filename;
+        if (!required) return url;
+        long exp = expiry();
+        return url + "?exp=" + exp + "&sig=" + sign("image", null, filename, exp);
+    }
+
+    /** The file name of a stored image reference served by this API, or null for external URLs. */
+    public static String imageFilename(String imageUrl) {
+        if (imageUrl == null || imageUrl.indexOf('?') >= 0) return null;
+        if (imageUrl.startsWith(IMAGE_PATH)) {
+            return imageUrl.substring(IMAGE_PATH.length());
+        }
+        int at = imageUrl.indexOf(LEGACY_IMAGE_PATH);
+        return at >= 0 ? imageUrl.substring(at + LEGACY_IMAGE_PATH.length()) : null;
+    }
+
+    /**
+     * Decides whether a media request may be served. Unsigned requests pass unless
+     * {@code MEDIA_SIGNED_URLS_REQUIRED} is set; a signature that is present must be valid.
+     */
+    public boolean permits(String kind, Long id, String fileKey, Long exp, String sig) {
+        if (exp == null && sig == null) return !required;
+        if (exp == null || sig == null || exp < System.currentTimeMillis() / 1000) return false;
+
+        byte[] expected = sign(kind, id, fileKey, exp).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, sig.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private long expiry() {
+        long earliest = System.currentTimeMillis() / 1000 + ttlSeconds;
+        return (earliest + bucketSeconds - 1) / bucketSeconds * bucketSeconds;
+    }
+
+    private String sign(String kind, Long id, String fileKey, long exp) {
+        String payload = kind + '\n' + (id != null ? id : "") + '\n' + fileKey + '\n' + exp;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] digest = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
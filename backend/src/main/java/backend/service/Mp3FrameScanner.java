@@ -0,0 +1,199 @@
+package backend.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Walks the MPEG audio frame headers of an MP3 file without decoding any audio.
+ *
+ * Leading ID3v2 tags and a trailing ID3v1 tag are skipped, and garbage between frames is
+ * resynchronised by requiring two consecutive valid headers. A Xing/Info or VBRI header in the
+ * first frame is reported in the {@link Summary} instead of being visited, since that frame
+ * carries no audio.
+ */
+public final class Mp3FrameScanner {
+
+    /** Receives every frame in file order. */
+    @FunctionalInterface
+    public interface FrameVisitor {
+        void frame(long offset, int length, int samples, int sampleRate, int bitrateKbps);
+    }
+
+    /**
+     * What the scan found besides the frames themselves.
+     *
+     * @param declaredFrames audio frame count from a Xing/Info/VBRI header, or -1 when absent
+     * @param vbr            true when the encoder tagged the stream as variable bitrate
+     */
+    public record Summary(int declaredFrames, boolean vbr) {
+    }
+
+    // [version: 0 = MPEG1, 1 = MPEG2/2.5][layer: 0 = I, 1 = II, 2 = III][index]
+    private static final int[][][] BITRATES = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+            }
+    };
+
+    // Indexed by the 2-bit version field: 0 = MPEG2.5, 1 = reserved, 2 = MPEG2, 3 = MPEG1.
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},
+            null,
+            {22050, 24000, 16000},
+            {44100, 48000, 32000}
+    };
+
+    private Mp3FrameScanner() {
+    }
+
+    public static Summary scan(Path file, FrameVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("MP3 too large to scan: " + file);
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return scan(buf, (int) size, visitor);
+        }
+    }
+
+    static Summary scan(MappedByteBuffer buf, int size, FrameVisitor visitor) {
+        int end = audioEnd(buf, size);
+        int pos = id3v2Length(buf, size);
+
+        Summary summary = new Summary(-1, false);
+        boolean first = true;
+        boolean synced = false;
+        while (pos + 4 <= end) {
+            int header = buf.getInt(pos);
+            int length = frameLength(header);
+            if (length <= 0 || pos + length > end) {
+                synced = false;
+                pos++;
+                continue;
+            }
+
+            // After losing sync, only trust a header that is followed by another valid one.
+            if (!synced && pos + length + 4 <= end && !sameStream(header, buf.getInt(pos + length))) {
+                pos++;
+                continue;
+            }
+            synced = true;
+
+            if (first) {
+                first = false;
+                Summary vbrHeader = vbrHeader(buf, pos, header);
+                if (vbrHeader != null) {
+                    summary = vbrHeader;
+                    pos += length;
+                    continue;
+                }
+            }
+
+            visitor.frame(pos, length, samplesPerFrame(header), sampleRate(header), bitrateKbps(header));
+            pos += length;
+        }
+        return summary;
+    }
+
+    /**
+     * Looks for a Xing/Info header (after the side info) or a VBRI header (fixed 32 bytes after
+     * the frame header) in the given frame. Returns null when the frame is plain audio.
+     */
+    private static Summary vbrHeader(MappedByteBuffer buf, int frameOffset, int header) {
+        int version = (header >>> 19) & 0x3;
+        boolean mono = ((header >>> 6) & 0x3) == 3;
+        int sideInfo = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+
+        int xing = frameOffset + 4 + sideInfo;
+        if (xing + 8 <= buf.limit() && (tagAt(buf, xing, "Xing") || tagAt(buf, xing, "Info"))) {
+            int flags = buf.getInt(xing + 4);
+            int frames = (flags & 0x1) != 0 && xing + 12 <= buf.limit() ? buf.getInt(xing + 8) : -1;
+            return new Summary(frames, tagAt(buf, xing, "Xing"));
+        }
+
+        int vbri = frameOffset + 4 + 32;
+        if (vbri + 18 <= buf.limit() && tagAt(buf, vbri, "VBRI")) {
+            return new Summary(buf.getInt(vbri + 14), true);
+        }
+        return null;
+    }
+
+    private static boolean tagAt(MappedByteBuffer buf, int offset, String tag) {
+        for (int i = 0; i < tag.length(); i++) {
+            if (buf.get(offset + i) != tag.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Frame length in bytes, or -1 when the 32-bit word is not a usable frame header. */
+    public static int frameLength(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) return -1;
+
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 0x3;
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            // Reserved values, or "free format" which we do not support.
+            return -1;
+        }
+
+        int padding = (header >>> 9) & 0x1;
+        int bitrate = bitrateKbps(header) * 1000;
+        int sampleRate = sampleRate(header);
+        if (layer == 3) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        return samplesPerFrame(header) / 8 * bitrate / sampleRate + padding;
+    }
+
+    public static int bitrateKbps(int header) {
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        return BITRATES[version == 3 ? 0 : 1][3 - layer][(header >>> 12) & 0xF];
+    }
+
+    public static int sampleRate(int header) {
+        return SAMPLE_RATES[(header >>> 19) & 0x3][(header >>> 10) & 0x3];
+    }
+
+    public static int samplesPerFrame(int header) {
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        if (layer == 3) return 384;          // Layer I
+        if (layer == 2) return 1152;         // Layer II
+        return version == 3 ? 1152 : 576;    // Layer III (MPEG2/2.5 halves the granules)
+    }
+
+    // Version, layer and sample rate never change inside one stream.
+    private static boolean sameStream(int a, int b) {
+        return frameLength(b) > 0 && (a & 0xFFFE0C00) == (b & 0xFFFE0C00);
+    }
+
+    private static int id3v2Length(MappedByteBuffer buf, int size) {
+        if (size < 10 || buf.get(0) != 'I' || buf.get(1) != 'D' || buf.get(2) != '3') return 0;
+        int flags = buf.get(5) & 0xFF;
+        int tagSize = ((buf.get(6) & 0x7F) << 21) | ((buf.get(7) & 0x7F) << 14)
+                | ((buf.get(8) & 0x7F) << 7) | (buf.get(9) & 0x7F);
+        int total = 10 + tagSize + ((flags & 0x10) != 0 ? 10 : 0);
+        return Math.min(total, size);
+    }
+
+    private static int audioEnd(MappedByteBuffer buf, int size) {
+        if (size >= 128 && buf.get(size - 128) == 'T' && buf.get(size - 127) == 'A' && buf.get(size - 126) == 'G') {
+            return size - 128;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,184 @@
+package backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Parses MP3 frame headers into duration/bitrate metadata and a time -> byte offset seek index.
+ *
+ * The index is persisted next to the audio as {@code <file>.idx}: a small header followed by the
+ * byte offset of the frame playing at every {@value #GRANULARITY_MS} ms of the track.
+ */
+@Component
+public class Mp3Indexer {
+
+    private static final int MAGIC = 0x57494458; // "WIDX"
+    private static final short VERSION = 1;
+    private static final int GRANULARITY_MS = 250;
+    private static final int MAX_LOADED_INDEXES = 512;
+
+    /** {@code crc32} is the CRC-32 of the whole file, as ZIP archives record it. */
+    public record Mp3Info(long durationMs, int bitrateKbps, int sampleRate, long sizeBytes, long crc32) {
+    }
+
+    private record SeekIndex(long audioLastModified, int[] offsets) {
+    }
+
+    private final Map<Path, SeekIndex> loaded = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, SeekIndex> eldest) {
+            return size() > MAX_LOADED_INDEXES;
+        }
+    };
+
+    private record Built(Mp3Info info, int[] offsets) {
+    }
+
+    /** Scans {@code audio}, writes its seek index and returns the stream metadata. */
+    public Mp3Info index(Path audio) throws IOException {
+        return build(audio).info();
+    }
+
+    private Built build(Path audio) throws IOException {
+        long sizeBytes = Files.size(audio);
+
+        int[][] offsets = {new int[64]};
+        int[] count = {0};
+        long[] totalSamples = {0};
+        long[] audioBytes = {0};
+        int[] sampleRate = {0};
+        int[] samplesPerFrame = {0};
+        double[] elapsedMs = {0};
+
+        Mp3FrameScanner.Summary summary = Mp3FrameScanner.scan(audio, (offset, length, samples, rate, kbps) -> {
+            double frameMs = samples * 1000.0 / rate;
+            // Every index slot whose timestamp falls inside this frame points at it.
+            while ((long) count[0] * GRANULARITY_MS < elapsedMs[0] + frameMs) {
+                if (count[0] == offsets[0].length) {
+                    offsets[0] = Arrays.copyOf(offsets[0], offsets[0].length * 2);
+                }
+                offsets[0][count[0]++] = (int) offset;
+            }
+            elapsedMs[0] += frameMs;
+            totalSamples[0] += samples;
+            audioBytes[0] += length;
+            sampleRate[0] = rate;
+            samplesPerFrame[0] = samples;
+        });
+
+        if (sampleRate[0] == 0) {
+            throw new IOException("No MPEG audio frames found in " + audio);
+        }
+
+        // Prefer the encoder's frame count from a Xing/VBRI header: it is exact even if the
+        // scan had to skip damaged frames.
+        long durationMs = summary.declaredFrames() > 0
+                ? (long) summary.declaredFrames() * samplesPerFrame[0] * 1000 / sampleRate[0]
+                : totalSamples[0] * 1000 / sampleRate[0];
+        int bitrateKbps = durationMs > 0 ? (int) (audioBytes[0] * 8 / durationMs) : 0;
+
+        int[] index = Arrays.copyOf(offsets[0], count[0]);
+        write(indexPath(audio), index);
+        synchronized (loaded) {
+            loaded.put(audio, new SeekIndex(Files.getLastModifiedTime(audio).toMillis(), index));
+        }
+        return new Built(new Mp3Info(durationMs, bitrateKbps, sampleRate[0], sizeBytes, crc32(audio)), index);
+    }
+
+    /** CRC-32 of a whole file, read through a mapping so the JDK's intrinsic does the work. */
+    public static long crc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                long n = Math.min(Integer.MAX_VALUE, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, n));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Byte offset of the frame playing at {@code seconds} into the track, building the index on
+     * first use for tracks that predate it.
+     */
+    public long offsetFor(FileMediaSource audio, double seconds) throws IOException {
+        int[] offsets = offsets(audio);
+        if (seconds <= 0 || offsets.length == 0) return 0;
+
+        long slot = (long) (seconds * 1000 / GRANULARITY_MS);
+        return offsets[(int) Math.min(slot, offsets.length - 1)];
+    }
+
+    private int[] offsets(FileMediaSource audio) throws IOException {
+        Path file = audio.file();
+        synchronized (loaded) {
+            SeekIndex cached = loaded.get(file);
+            if (cached != null && cached.audioLastModified() == audio.lastModified()) {
+                return cached.offsets();
+            }
+        }
+
+        int[] offsets = read(indexPath(file), audio.lastModified());
+        if (offsets == null) {
+            return build(file).offsets();
+        }
+        synchronized (loaded) {
+            loaded.put(file, new SeekIndex(audio.lastModified(), offsets));
+        }
+        return offsets;
+    }
+
+    public static Path indexPath(Path audio) {
+        return audio.resolveSibling(audio.getFileName() + ".idx");
+    }
+
+    private static void write(Path indexFile, int[] offsets) throws IOException {
+        Path tmp = Files.createTempFile(indexFile.getParent(), ".idx-", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(GRANULARITY_MS);
+            out.writeInt(offsets.length);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Returns null when the index is missing, stale or from another format version. */
+    private static int[] read(Path indexFile, long audioLastModified) throws IOException {
+        try {
+            if (Files.getLastModifiedTime(indexFile).toMillis() < audioLastModified) return null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION || in.readInt() != GRANULARITY_MS) {
+                return null;
+            }
+            int[] offsets = new int[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readInt();
+            }
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package backend.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A {@link MediaSource} whose bytes are metered and drawn from the listener's
+ * {@link StreamThrottle.Budget}. A response the budget covers in full still goes out with
+ * sendfile; a larger one is written through {@link #transferTo} and held to the budget's rate.
+ */
+final class PacedMediaSource implements MediaSource {
+
+    // Small enough that pacing stays smooth, large enough to keep syscalls cheap.
+    private static final int SLICE = 16 * 1024;
+
+    private final MediaSource origin;
+    private final StreamThrottle.Budget budget;
+    private final StreamThrottle.ThroughputMeter meter;
+
+    PacedMediaSource(MediaSource origin, StreamThrottle.Budget budget, StreamThrottle.ThroughputMeter meter) {
+        this.origin = origin;
+        this.budget = budget;
+        this.meter = meter;
+    }
+
+    @Override
+    public long length() {
+        return origin.length();
+    }
+
+    @Override
+    public long lastModified() {
+        return origin.lastModified();
+    }
+
+    @Override
+    public String contentType() {
+        return origin.contentType();
+    }
+
+    @Override
+    public String etag() {
+        return origin.etag();
+    }
+
+    @Override
+    public Path file() {
+        return origin.file();
+    }
+
+    @Override
+    public Path sendfile(long position, long count) {
+        Path file = origin.sendfile(position, count);
+        if (file == null || !budget.tryTake(count)) {
+            return null;
+        }
+        meter.record(count); // counted when handed off; Tomcat does not report progress
+        return file;
+    }
+
+    @Override
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        origin.transferTo(position, count, new PacedChannel(target));
+    }
+
+    private final class PacedChannel implements WritableByteChannel {
+        private final WritableByteChannel target;
+
+        PacedChannel(WritableByteChannel target) {
+            this.target = target;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int total = 0;
+            while (src.hasRemaining()) {
+                int n = Math.min(src.remaining(), SLICE);
+                ByteBuffer slice = src.slice(src.position(), n);
+                int w = target.write(slice);
+                src.position(src.position() + w);
+                total += w;
+                meter.record(w);
+                pace(budget.take(w));
+            }
+            return total;
+        }
+
+        private void pace(long aheadNanos) throws IOException {
+            if (aheadNanos > 1_000_000) {
+                try {
+                    Thread.sleep(aheadNanos / 1_000_000, (int) (aheadNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Stream interrupted while paced");
+                }
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
+}
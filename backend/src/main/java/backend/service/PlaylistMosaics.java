@@ -0,0 +1,260 @@
+package backend.service;
+
+import backend.model.Song;
+import backend.repository.DBPlaylistRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 2x2 cover mosaics for playlists, built from the first four distinct covers we host.
+ *
+ * A mosaic is named after the hash of its four cover names, so it only has to be rebuilt when
+ * one of those covers changes, and it is served as an ordinary image through
+ * {@code /songs/image/<hash>.jpg} (immutable caching and {@code ?size=} thumbnails included).
+ * Tiles are drawn from the covers' thumbnails rather than the full uploads.
+ *
+ * Mosaics are generated in the background: until one exists, the playlist keeps its own image.
+ * A mosaic is only written once all four tiles could be drawn; when a cover is missing or
+ * unreadable the playlist keeps its image and the mosaic is tried again ten minutes later.
+ * Mosaics are kept in the media storage (see MediaLocator), so an instance first looks there for
+ * one another instance built. Every {@code PLAYLIST_MOSAIC_SWEEP_MS}, mosaics no playlist names
+ * any more (their covers changed) are deleted with their thumbnails.
+ */
+@Component
+public class PlaylistMosaics {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaylistMosaics.class);
+    private static final int TILE = 300;
+    private static final int TILES = 4;
+    private static final long FAILED_RETRY_MS = 10 * 60 * 1000;
+    private static final int SWEEP_BATCH = 500;
+    /**
+     * How many leading song covers are enough to look for four distinct ones when covers are
+     * batch-fetched for a list (albums repeat theirs); playlists with more repeats keep their image.
+     */
+    public static final int COVER_CANDIDATES = 16;
+
+    private final MediaLocator mediaLocator;
+    private final ThumbnailService thumbnailService;
+    private final DBPlaylistRepository playlistRepository;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Mosaic name -> when building it last failed, so list views do not retry it on every request.
+    private final Map<String, Long> failed = new ConcurrentHashMap<>();
+    private final ExecutorService generator = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("playlist-mosaics").factory());
+
+    public PlaylistMosaics(MediaLocator mediaLocator, ThumbnailService thumbnailService,
+                           DBPlaylistRepository playlistRepository) {
+        this.mediaLocator = mediaLocator;
+        this.thumbnailService = thumbnailService;
+        this.playlistRepository = playlistRepository;
+    }
+
+    /**
+     * Stored image reference ({@code /songs/image/<hash>.jpg}) of the mosaic for these songs, or
+     * null while it is being generated or when fewer than four distinct hosted covers exist.
+     * Only hashes names and checks one file, so it is cheap enough to call while mapping DTOs.
+     */
+    public String mosaicFor(List<Song> songs) {
+        // Song id order, as findFirstCovers uses for list views, so both name the same mosaic.
+        return mosaicForCovers(songs.stream()
+                .sorted(Comparator.comparing(Song::getId))
+                .map(Song::getImageUrl)
+                .toList());
+    }
+
+    /** Like {@link #mosaicFor(List)}, from the songs' stored image references in playlist order. */
+    public String mosaicForCovers(List<String> imageUrls) {
+        List<String> covers = firstCovers(imageUrls);
+        if (covers.size() < TILES) return null;
+
+        String filename = keyOf(covers) + ".jpg";
+        Path target = mediaLocator.mosaicPath(filename);
+        if (Files.isRegularFile(target)) {
+            return MediaUrlSigner.IMAGE_PATH + filename;
+        }
+        Long failedAt = failed.get(filename);
+        if (failedAt != null && System.currentTimeMillis() - failedAt < FAILED_RETRY_MS) {
+            return null;
+        }
+        if (pending.add(filename)) {
+            generator.execute(() -> {
+                try {
+                    if (mediaLocator.fetchMosaic(filename) == null) {
+                        generate(covers, filename);
+                    }
+                    failed.remove(filename);
+                } catch (Exception e) {
+                    failed.put(filename, System.currentTimeMillis());
+                    log.warn("Could not build playlist mosaic {}: {}", filename, e.toString());
+                } finally {
+                    pending.remove(filename);
+                }
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Deletes the mosaics no playlist names any more. Only mosaics stored before the sweep began
+     * are candidates, so one generated while the playlists are read is never taken for stale.
+     * Every instance sweeps; deleting a mosaic twice is harmless.
+     */
+    @Scheduled(fixedDelayString = "${PLAYLIST_MOSAIC_SWEEP_MS:86400000}",
+            initialDelayString = "${PLAYLIST_MOSAIC_SWEEP_MS:86400000}")
+    public void sweep() {
+        Instant started = Instant.now();
+        Set<String> live = new HashSet<>();
+        try {
+            Long after = 0L;
+            List<Long> ids;
+            do {
+                ids = playlistRepository.findIdsAfter(after, Limit.of(SWEEP_BATCH));
+                if (ids.isEmpty()) break;
+                // Every cover, in song id order: the detail view may look further than list views.
+                Map<Long, List<String>> covers = new HashMap<>();
+                for (Object[] row : playlistRepository.findFirstCovers(ids, Integer.MAX_VALUE)) {
+                    covers.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>()).add((String) row[1]);
+                }
+                for (List<String> imageUrls : covers.values()) {
+                    List<String> first = firstCovers(imageUrls);
+                    if (first.size() == TILES) live.add(keyOf(first) + ".jpg");
+                }
+                after = ids.get(ids.size() - 1);
+            } while (ids.size() == SWEEP_BATCH);
+        } catch (RuntimeException e) {
+            log.warn("Could not sweep playlist mosaics: {}", e.toString());
+            return;
+        }
+
+        int deleted = 0;
+        try {
+            for (String name : mediaLocator.mosaicsOlderThan(started)) {
+                if (live.contains(name)) continue;
+                mediaLocator.deleteMosaic(name);
+                deleted++;
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep playlist mosaics: {}", e.toString());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} superseded playlist mosaics", deleted);
+        }
+        long now = System.currentTimeMillis();
+        failed.values().removeIf(failedAt -> now - failedAt >= FAILED_RETRY_MS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        generator.shutdownNow();
+    }
+
+    private static List<String> firstCovers(List<String> imageUrls) {
+        Set<String> covers = new LinkedHashSet<>();
+        for (String imageUrl : imageUrls) {
+            String filename = MediaUrlSigner.imageFilename(imageUrl);
+            if (filename != null && !filename.isBlank()) {
+                covers.add(filename);
+                if (covers.size() == TILES) break;
+            }
+        }
+        return new ArrayList<>(covers);
+    }
+
+    private static String keyOf(List<String> covers) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update("mosaic-v1".getBytes(StandardCharsets.UTF_8));
+            for (String cover : covers) {
+                digest.update((byte) '\n');
+                digest.update(cover.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private void generate(List<String> covers, String filename) throws IOException {
+        BufferedImage mosaic = new BufferedImage(TILE * 2, TILE * 2, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = mosaic.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(new Color(0x28, 0x28, 0x28));
+            g.fillRect(0, 0, TILE * 2, TILE * 2);
+
+            for (int i = 0; i < TILES; i++) {
+                // Mosaics are immutable under their name, so a blank tile would stay forever.
+                BufferedImage tile = readTile(covers.get(i));
+                if (tile == null) {
+                    throw new IOException("Cover " + covers.get(i) + " is missing or unreadable");
+                }
+                drawCropped(g, tile, (i % 2) * TILE, (i / 2) * TILE);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        Path target = mediaLocator.mosaicPath(filename);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), ".mosaic-", ".tmp");
+        try {
+            ImageIO.write(mosaic, "jpeg", tmp.toFile());
+            mediaLocator.storeMosaic(filename, tmp);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Null when the cover is missing, no ImageIO reader understands it or it is too large to decode.
+    private BufferedImage readTile(String cover) throws IOException {
+        Path original = mediaLocator.resolveImage(cover);
+        if (original == null) return null;
+        // Thumbnails fit inside their size, so the 300px one would fall short on the side we crop to.
+        ThumbnailService.Thumbnail thumbnail = thumbnailService.variant(original, TILE * 2);
+        return thumbnailService.read(thumbnail != null ? thumbnail.path() : original, TILE * 2);
+    }
+
+    // Scales the tile to cover the whole cell and crops the overflow, centred.
+    private static void drawCropped(Graphics2D g, BufferedImage tile, int x, int y) {
+        double scale = (double) TILE / Math.min(tile.getWidth(), tile.getHeight());
+        int width = (int) Math.ceil(tile.getWidth() * scale);
+        int height = (int) Math.ceil(tile.getHeight() * scale);
+        Graphics2D cell = (Graphics2D) g.create(x, y, TILE, TILE);
+        try {
+            cell.drawImage(tile, (TILE - width) / 2, (TILE - height) / 2, width, height, null);
+        } finally {
+            cell.dispose();
+        }
+    }
+}
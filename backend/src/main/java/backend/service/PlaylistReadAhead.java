@@ -0,0 +1,170 @@
+package backend.service;
+
+import backend.service.SongLocationCache.SongLocation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warms the start of the next few tracks of a playlist a listener just opened.
+ *
+ * For each upcoming track it resolves the song -> file location (so the stream request skips the
+ * DB) and reads the first {@code READ_AHEAD_KB} into the OS page cache (so the first bytes are a
+ * memory copy instead of a cold disk read). Work runs on a small bounded pool; a listener's
+ * previous batch is cancelled when they open another playlist or navigate away.
+ */
+@Component
+public class PlaylistReadAhead {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaylistReadAhead.class);
+    private static final int CHUNK = 64 * 1024;
+
+    public record Stats(long tracksWarmed, long bytesWarmed, long batchesCancelled, int queued, int listeners) {
+    }
+
+    private final SongLocationCache songLocationCache;
+    private final int tracks;
+    private final int bytesPerTrack;
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, Batch> batches = new ConcurrentHashMap<>();
+    private final LongAdder tracksWarmed = new LongAdder();
+    private final LongAdder bytesWarmed = new LongAdder();
+    private final LongAdder batchesCancelled = new LongAdder();
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHUNK));
+
+    public PlaylistReadAhead(SongLocationCache songLocationCache,
+                             @Value("${READ_AHEAD_TRACKS:3}") int tracks,
+                             @Value("${READ_AHEAD_KB:256}") int kilobytes,
+                             @Value("${READ_AHEAD_THREADS:2}") int threads,
+                             @Value("${READ_AHEAD_QUEUE:64}") int queueSize) {
+        this.songLocationCache = songLocationCache;
+        this.tracks = tracks;
+        this.bytesPerTrack = kilobytes * 1024;
+        // Read-ahead is only an optimisation: when the queue is full warm() skips the work.
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().daemon().name("read-ahead-", 0).factory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Starts warming the first tracks of {@code songIds}, replacing the listener's previous batch. */
+    public void warm(String listener, List<Long> songIds) {
+        if (tracks <= 0 || songIds.isEmpty()) return;
+
+        Batch batch = new Batch();
+        Batch previous = batches.put(listener, batch);
+        if (previous != null) {
+            previous.cancel();
+            batchesCancelled.increment();
+        }
+
+        List<Long> upcoming = songIds.subList(0, Math.min(tracks, songIds.size()));
+        batch.remaining.set(upcoming.size());
+        for (Long songId : upcoming) {
+            try {
+                batch.add(executor.submit(() -> {
+                    try {
+                        warmTrack(songId);
+                    } finally {
+                        finish(listener, batch);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // Queue full (or shutting down): the track is skipped, but still counts as done.
+                finish(listener, batch);
+            }
+        }
+    }
+
+    // Drops the listener's entry once every track of the batch has run or been skipped.
+    private void finish(String listener, Batch batch) {
+        if (batch.remaining.decrementAndGet() == 0) {
+            batches.remove(listener, batch);
+        }
+    }
+
+    /** Cancels whatever is still pending for this listener. */
+    public void cancel(String listener) {
+        Batch batch = batches.remove(listener);
+        if (batch != null) {
+            batch.cancel();
+            batchesCancelled.increment();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(tracksWarmed.sum(), bytesWarmed.sum(), batchesCancelled.sum(),
+                executor.getQueue().size(), batches.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void warmTrack(Long songId) {
+        try {
+            SongLocation location = songLocationCache.get(songId);
+            if (location == null || Thread.currentThread().isInterrupted()) return;
+
+            ByteBuffer buf = buffers.get();
+            long limit = Math.min(bytesPerTrack, location.audio().length());
+            try (FileChannel channel = FileChannel.open(location.audio().file(), StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < limit && !Thread.currentThread().isInterrupted()) {
+                    buf.clear();
+                    int read = channel.read(buf, position);
+                    if (read <= 0) break;
+                    position += read;
+                }
+                bytesWarmed.add(position);
+            }
+            tracksWarmed.increment();
+        } catch (ClosedByInterruptException e) {
+            // Cancelled mid-read.
+        } catch (IOException | RuntimeException e) {
+            log.debug("Read-ahead of song {} failed: {}", songId, e.toString());
+        }
+    }
+
+    // warm() adds futures while another request may be cancelling the batch.
+    private static final class Batch {
+        private final List<Future<?>> futures = new ArrayList<>();
+        private boolean cancelled;
+        final AtomicInteger remaining = new AtomicInteger();
+
+        synchronized void add(Future<?> future) {
+            if (cancelled) {
+                future.cancel(true);
+            } else {
+                futures.add(future);
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package backend.service;
 
 import backend.dto.PlaylistDTO;
+import backend.dto.PlaylistSummaryDTO;
 import backend.dto.SongDTO;
+import backend.dto.CursorPage;
 import backend.mapper.PlaylistMapper;
 import backend.mapper.SongMapper;
 import backend.model.Playlist;
+import backend.model.Privacy;
 import backend.model.Song;
 import backend.model.User;
 import backend.repository.DBPlaylistRepository;
 import backend.repository.DBSongRepository;
 import backend.repository.DBUserRepository;
+import backend.repository.PlaylistSummaryRow;
+import backend.repository.SongRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,17 +35,46 @@ public class PlaylistService {
     private final DBUserRepository userRepository;
     private final DBSongRepository songRepository;
     private final SongMapper songMapper;
+    private final MediaLocator mediaLocator;
+    private final AudioMetadataBackfill audioMetadataBackfill;
+
+    /** The songs of a download as read from the database; {@link #buildDownload} finds their files. */
+    public record DownloadPlan(String filename, List<DownloadTrack> tracks) {
+    }
+
+    public record DownloadTrack(Long songId, String title, String filepath, Long crc32, Long sizeBytes) {
+    }
+
+    /** A laid-out archive. Its songs' files stay pinned in the media storage until it is closed. */
+    public record PlaylistDownload(String filename, StoredZipSource archive, List<MediaStorage.Pin> pins)
+            implements AutoCloseable {
+        @Override
+        public void close() {
+            pins.forEach(MediaStorage.Pin::close);
+        }
+    }
+
+    /** Some songs have no CRC for their current file yet; they have been queued for indexing. */
+    public static class DownloadNotReadyException extends RuntimeException {
+        public DownloadNotReadyException(int pending) {
+            super(pending + " songs are still being indexed");
+        }
+    }
 
     public PlaylistService(DBPlaylistRepository playlistRepository,
                            PlaylistMapper playlistMapper,
                            DBUserRepository userRepository,
                            DBSongRepository songRepository,
-                           SongMapper songMapper) {
+                           SongMapper songMapper,
+                           MediaLocator mediaLocator,
+                           AudioMetadataBackfill audioMetadataBackfill) {
         this.playlistRepository = playlistRepository;
         this.playlistMapper = playlistMapper;
         this.userRepository = userRepository;
         this.songRepository = songRepository;
         this.songMapper = songMapper;
+        this.mediaLocator = mediaLocator;
+        this.audioMetadataBackfill = audioMetadataBackfill;
     }
 
     public PlaylistDTO createPlaylist(PlaylistDTO dto) {
@@ -58,19 +99,51 @@ public class PlaylistService {
         return playlistMapper.toDto(saved);
     }
 
-    public List<PlaylistDTO> getAllPlaylists() {
-        return playlistRepository.findAll()
-                .stream()
-                .map(playlistMapper::toDto)
-                .collect(Collectors.toList());
+    public CursorPage<PlaylistSummaryDTO> getAllPlaylists(String cursor, int limit) {
+        long after = KeysetCursor.decode(cursor, 0);
+        CursorPage<PlaylistSummaryRow> page = KeysetCursor.page(
+                playlistRepository.findSummariesAfter(after, Limit.of(limit + 1)),
+                limit, PlaylistSummaryRow::id, row -> row);
+        return new CursorPage<>(toSummaries(page.items()), page.nextCursor());
+    }
+
+    /** A user's playlists, or only their public ones when someone else is looking. */
+    public List<PlaylistSummaryDTO> getUserPlaylists(Long userId, boolean publicOnly) {
+        return toSummaries(publicOnly
+                ? playlistRepository.findSummariesByUserIdAndVisibility(userId, Privacy.PUBLIC)
+                : playlistRepository.findSummariesByUserId(userId));
+    }
+
+    /**
+     * Playlists with at least one song by the artist: public ones, and the private ones of the
+     * viewer ({@code viewerEmail}, null when not signed in).
+     */
+    public List<PlaylistSummaryDTO> getPlaylistsWithArtist(Long artistId, String viewerEmail) {
+        Long viewerId = viewerEmail == null ? null
+                : userRepository.findByEmail(viewerEmail).map(User::getId).orElse(null);
+        return toSummaries(playlistRepository.findSummariesWithArtist(artistId, viewerId));
     }
 
     public PlaylistDTO getPlaylistById(Long id) {
-        Playlist playlist = playlistRepository.findById(id)
+        Playlist playlist = playlistRepository.findDetailById(id)
                 .orElseThrow(() -> new RuntimeException("Playlist not found with id: " + id));
         return playlistMapper.toDto(playlist);
     }
 
+    // One extra query for the covers of the whole list, whatever its length.
+    private List<PlaylistSummaryDTO> toSummaries(List<PlaylistSummaryRow> rows) {
+        if (rows.isEmpty()) return List.of();
+        Map<Long, List<String>> covers = new HashMap<>();
+        List<Long> ids = rows.stream().map(PlaylistSummaryRow::id).toList();
+        for (Object[] row : playlistRepository.findFirstCovers(ids, PlaylistMosaics.COVER_CANDIDATES)) {
+            covers.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return rows.stream()
+                .map(row -> playlistMapper.toSummary(row, covers.getOrDefault(row.id(), List.of())))
+                .toList();
+    }
+
+    @Transactional
     public PlaylistDTO updatePlaylist(Long id, PlaylistDTO dto) {
         Playlist existing = playlistRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Playlist not found with id: " + id));
@@ -109,6 +182,7 @@ public class PlaylistService {
         playlistRepository.deleteById(id);
     }
 
+    @Transactional
     public PlaylistDTO addSongToPlaylist(Long playlistId, Long songId) {
 
         Playlist playlist = playlistRepository.findById(playlistId)
@@ -127,13 +201,76 @@ public class PlaylistService {
         }
     }
 
+    /** A page of the playlist's songs, ordered by song id. */
+    public CursorPage<SongDTO> getPlaylistSongs(Long playlistId, String cursor, int limit) {
+        long after = KeysetCursor.decode(cursor, 0);
+        if (!playlistRepository.existsById(playlistId)) {
+            throw new RuntimeException("Playlist not found with id: " + playlistId);
+        }
+        return KeysetCursor.page(songRepository.findPlaylistRowsAfter(playlistId, after, Limit.of(limit + 1)),
+                limit, SongRow::id, songMapper::toDTO);
+    }
+
+    /** Reads what a download of the playlist needs, in playlist order, without touching any file. */
     @Transactional(readOnly = true)
-    public List<SongDTO> getPlaylistSongs(Long playlistId) {
+    public DownloadPlan planDownload(Long playlistId) {
         Playlist playlist = playlistRepository.findWithSongsById(playlistId)
                 .orElseThrow(() -> new RuntimeException("Playlist not found with id: " + playlistId));
 
-        return playlist.getSongs().stream()
-                .map(songMapper::toDTO)
-                .toList();
+        List<DownloadTrack> tracks = new ArrayList<>();
+        for (Song song : playlist.getSongs()) {
+            String artist = song.getArtist() != null ? song.getArtist().getName() + " - " : "";
+            tracks.add(new DownloadTrack(song.getId(), artist + song.getName(), song.getFilepath(),
+                    song.getCrc32(), song.getSizeBytes()));
+        }
+        return new DownloadPlan(safeFileName(playlist.getTitle()) + ".zip", tracks);
+    }
+
+    /**
+     * Lays out a planned download as a STORED ZIP, one entry per song. Songs whose audio file is
+     * missing are left out. Resolving may fetch every file from storage, so this belongs on a
+     * virtual thread and outside any transaction. Hashing a whole file for its CRC is left to
+     * AudioMetadataBackfill: when a song has none for its current file, this throws
+     * {@link DownloadNotReadyException} instead.
+     */
+    public PlaylistDownload buildDownload(DownloadPlan plan) throws IOException {
+        List<DownloadTrack> tracks = plan.tracks();
+        String numberFormat = "%0" + Math.max(2, String.valueOf(tracks.size()).length()) + "d";
+        StoredZipSource.Builder zip = StoredZipSource.builder();
+        List<MediaStorage.Pin> pins = new ArrayList<>();
+        int track = 0;
+        int unindexed = 0;
+        try {
+            for (DownloadTrack song : tracks) {
+                MediaStorage.Pin pin = mediaLocator.pinAudio(song.filepath());
+                pins.add(pin);
+                Path audio = mediaLocator.resolveAudio(song.filepath());
+                if (audio == null) continue;
+
+                FileMediaSource file = FileMediaSource.of(audio, "audio/mpeg");
+                // The stored CRC is only trusted while the file is the one that was indexed.
+                if (song.crc32() == null || song.sizeBytes() == null || song.sizeBytes() != file.length()) {
+                    audioMetadataBackfill.request(song.songId(), song.filepath());
+                    unindexed++;
+                    continue;
+                }
+
+                zip.add(safeFileName(String.format(numberFormat, ++track) + " - " + song.title()) + ".mp3",
+                        file, song.crc32());
+            }
+            if (unindexed > 0) {
+                throw new DownloadNotReadyException(unindexed);
+            }
+            return new PlaylistDownload(plan.filename(), zip.build(), pins);
+        } catch (IOException | RuntimeException e) {
+            pins.forEach(MediaStorage.Pin::close);
+            throw e;
+        }
+    }
+
+    // Characters that Windows, macOS or unzip tools refuse in file names.
+    private static String safeFileName(String name) {
+        String cleaned = name == null ? "" : name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").strip();
+        return cleaned.isEmpty() ? "playlist" : cleaned;
     }
 }
@@ -1,13 +1,9 @@
 package backend.service;
 
-import backend.dto.PlaylistDTO;
+import backend.dto.PlaylistSummaryDTO;
 import backend.dto.UserProfileDTO;
-import backend.mapper.PlaylistMapper;
 import backend.mapper.UserMapper;
-import backend.model.Playlist;
-import backend.model.Privacy;
 import backend.model.User;
-import backend.repository.DBPlaylistRepository;
 import backend.repository.DBUserRepository;
 import org.springframework.stereotype.Service;
 
@@ -18,18 +14,15 @@ import java.util.NoSuchElementException;
 public class ProfileService {
 
     private final DBUserRepository userRepository;
-    private final DBPlaylistRepository playlistRepository;
     private final UserMapper userMapper;
-    private final PlaylistMapper playlistMapper;
+    private final PlaylistService playlistService;
 
     public ProfileService(DBUserRepository userRepository,
-                          DBPlaylistRepository playlistRepository,
                           UserMapper userMapper,
-                          PlaylistMapper playlistMapper) {
+                          PlaylistService playlistService) {
         this.userRepository = userRepository;
-        this.playlistRepository = playlistRepository;
         this.userMapper = userMapper;
-        this.playlistMapper = playlistMapper;
+        this.playlistService = playlistService;
     }
 
     public UserProfileDTO getProfile(Long userId, Long viewerId) {
@@ -38,15 +31,9 @@ public class ProfileService {
 
         boolean isOwner = viewerId != null && viewerId.equals(userId);
 
-        List<Playlist> playlists = isOwner
-                ? playlistRepository.findByUser_Id(userId)
-                : playlistRepository.findByUser_IdAndVisibility(userId, Privacy.PUBLIC);
+        List<PlaylistSummaryDTO> playlists = playlistService.getUserPlaylists(userId, !isOwner);
 
-        List<PlaylistDTO> playlistDTOs = playlists.stream()
-                .map(playlistMapper::toDto)
-                .toList();
-
-        return new UserProfileDTO(userMapper.toDto(user), isOwner, playlistDTOs);
+        return new UserProfileDTO(userMapper.toDto(user), isOwner, playlists);
     }
 }
 
@@ -0,0 +1,338 @@
+package backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Blobs in an S3-compatible bucket, with {@code MEDIA_BLOB_DIR} as a local cache of the objects
+ * this instance has needed. API instances therefore share one copy of the media and can be added
+ * or replaced without moving files; with {@code MEDIA_DELIVERY=redirect} clients download audio
+ * straight from the bucket through presigned URLs.
+ *
+ * {@code S3_ENDPOINT} points the client at a non-AWS service (e.g. MinIO, which also needs
+ * {@code S3_PATH_STYLE=true}), {@code S3_PUBLIC_ENDPOINT} the presigned URLs when browsers reach
+ * it under another address; credentials fall back to the default AWS provider chain.
+ *
+ * The local copies are kept within {@code MEDIA_CACHE_MAX_BYTES}: once a download or upload goes
+ * over it, the least recently used blobs are deleted (derived files next to them, like seek
+ * indexes and thumbnails, are small and stay). Copies that are {@linkplain #pin pinned} are
+ * skipped, and so are those unpinned in the last few seconds: a sendfile response opens its file
+ * only after the handler, and with it the pin, is done. Callers that fetch the same missing
+ * object at the same time share one download.
+ */
+@Component
+@ConditionalOnProperty(name = "MEDIA_STORAGE", havingValue = "s3")
+public class S3MediaStorage implements MediaStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(S3MediaStorage.class);
+    // Cached objects are named by their SHA-256 (see BlobStore.keyPath); nothing else is counted.
+    private static final Pattern CACHED_NAME = Pattern.compile("[0-9a-f]{64}");
+    private static final long UNPIN_GRACE_NANOS = 10_000_000_000L;
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final Path cacheRoot;
+    private final long maxCacheBytes;
+
+    // Key -> size of every local copy, least recently used first; guarded by itself.
+    private final LinkedHashMap<String, Long> cached = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+    // Key -> pins on its local copy; guarded by cached. Entries stay until the grace period after the last unpin.
+    private final Map<String, PinCount> pins = new HashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+
+    public S3MediaStorage(@Value("${S3_BUCKET}") String bucket,
+                          @Value("${S3_REGION:us-east-1}") String region,
+                          @Value("${S3_ENDPOINT:}") String endpoint,
+                          @Value("${S3_PUBLIC_ENDPOINT:}") String publicEndpoint,
+                          @Value("${S3_PATH_STYLE:false}") boolean pathStyle,
+                          @Value("${S3_ACCESS_KEY:}") String accessKey,
+                          @Value("${S3_SECRET_KEY:}") String secretKey,
+                          @Value("${MEDIA_BLOB_DIR:uploads/blobs}") String cacheDir,
+                          @Value("${MEDIA_CACHE_MAX_BYTES:10737418240}") long maxCacheBytes) throws IOException {
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration s3Config = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+
+        S3Client.Builder clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Config);
+        S3Presigner.Builder presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Config);
+        if (!endpoint.isBlank()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+        }
+        // Presigned URLs are opened by browsers, which may reach the service under another name.
+        String presignEndpoint = publicEndpoint.isBlank() ? endpoint : publicEndpoint;
+        if (!presignEndpoint.isBlank()) {
+            presignerBuilder.endpointOverride(URI.create(presignEndpoint));
+        }
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+        this.bucket = bucket;
+        this.cacheRoot = Paths.get(cacheDir).toAbsolutePath();
+        this.maxCacheBytes = maxCacheBytes;
+        Files.createDirectories(cacheRoot);
+        loadCache();
+    }
+
+    @Override
+    public void store(String key, Path file, String contentType) throws IOException {
+        try {
+            client.putObject(b -> b.bucket(bucket).key(key).contentType(contentType), RequestBody.fromFile(file));
+        } catch (S3Exception e) {
+            throw new IOException("Could not upload " + key + " to bucket " + bucket, e);
+        }
+        // Keep the bytes as the cached copy: the upload pipeline indexes and packages it next.
+        Path local = localPath(key);
+        LocalMediaStorage.moveInto(file, local);
+        cache(key, Files.size(local));
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        if (stillLocal(key)) return true;
+        try {
+            client.headObject(b -> b.bucket(bucket).key(key));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return false;
+            throw new IOException("Could not look up " + key + " in bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return cacheRoot.resolve(key);
+    }
+
+    @Override
+    public Path materialize(String key) throws IOException {
+        if (stillLocal(key)) return localPath(key);
+
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> running = downloads.putIfAbsent(key, download);
+        if (running != null) {
+            return await(running, key);
+        }
+        try {
+            Path fetched = download(key);
+            download.complete(fetched);
+            return fetched;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloads.remove(key, download);
+        }
+    }
+
+    /** False once the local copy of {@code key} has been evicted (or was never fetched). */
+    @Override
+    public boolean stillLocal(String key) {
+        synchronized (cached) {
+            return cached.get(key) != null;
+        }
+    }
+
+    private Path download(String key) throws IOException {
+        Path target = localPath(key);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), ".fetch-", ".tmp");
+        try {
+            Files.delete(tmp); // getObject refuses to overwrite
+            client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build(), tmp);
+            long size = Files.size(tmp);
+            LocalMediaStorage.moveInto(tmp, target);
+            cache(key, size);
+            return target;
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return null;
+            throw new IOException("Could not download " + key + " from bucket " + bucket, e);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Waits for a download another caller started.
+    private static Path await(CompletableFuture<Path> download, String key) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Could not download " + key, e.getCause());
+        }
+    }
+
+    // Records a new local copy and deletes the least recently used ones beyond the budget.
+    private void cache(String key, long size) {
+        synchronized (cached) {
+            Long previous = cached.put(key, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+            long now = System.nanoTime();
+            pins.values().removeIf(count -> !count.holds(now));
+
+            Iterator<Map.Entry<String, Long>> eldest = cached.entrySet().iterator();
+            while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> victim = eldest.next();
+                if (victim.getKey().equals(key) || pins.containsKey(victim.getKey())) continue; // in use
+                // Deleted under the lock, so a concurrent fetch of the same key cannot be removed.
+                try {
+                    Files.deleteIfExists(localPath(victim.getKey()));
+                } catch (IOException e) {
+                    log.warn("Could not evict {} from the media cache: {}", victim.getKey(), e.toString());
+                    continue;
+                }
+                cachedBytes -= victim.getValue();
+                eldest.remove();
+            }
+        }
+    }
+
+    @Override
+    public Pin pin(String key) {
+        synchronized (cached) {
+            pins.computeIfAbsent(key, k -> new PinCount()).count++;
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (!closed.compareAndSet(false, true)) return;
+            synchronized (cached) {
+                PinCount count = pins.get(key);
+                count.count--;
+                count.unpinnedAt = System.nanoTime();
+            }
+        };
+    }
+
+    private static final class PinCount {
+        int count;
+        long unpinnedAt;
+
+        boolean holds(long now) {
+            return count > 0 || now - unpinnedAt < UNPIN_GRACE_NANOS;
+        }
+    }
+
+    private void uncache(String key) {
+        synchronized (cached) {
+            Long size = cached.remove(key);
+            if (size != null) cachedBytes -= size;
+        }
+    }
+
+    // Picks up the copies a previous run left behind, oldest first, and trims them to the budget.
+    private void loadCache() throws IOException {
+        record CachedFile(String key, long size, long modified) {
+        }
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(cacheRoot, 3)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!CACHED_NAME.matcher(path.getFileName().toString()).matches() || !Files.isRegularFile(path)) {
+                    continue;
+                }
+                String key = cacheRoot.relativize(path).toString().replace('\\', '/');
+                files.add(new CachedFile(key, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+            }
+        }
+        files.sort(Comparator.comparingLong(CachedFile::modified));
+        for (CachedFile file : files) {
+            cache(file.key(), file.size());
+        }
+        log.info("Media cache in {}: {} objects, {} MB", cacheRoot, cached.size(), cachedBytes / (1024 * 1024));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(b -> b.bucket(bucket).key(key));
+        } catch (S3Exception e) {
+            throw new IOException("Could not delete " + key + " from bucket " + bucket, e);
+        } finally {
+            uncache(key);
+            Files.deleteIfExists(localPath(key));
+        }
+    }
+
+    @Override
+    public List<String> keysOlderThan(String prefix, Instant before) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try {
+            for (S3Object object : client.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix)).contents()) {
+                if (object.lastModified().isBefore(before)) keys.add(object.key());
+            }
+        } catch (S3Exception e) {
+            throw new IOException("Could not list " + prefix + " in bucket " + bucket, e);
+        }
+        return keys;
+    }
+
+    @Override
+    public URI presignedGet(String key, String contentType, Duration ttl) {
+        try {
+            return presigner.presignGetObject(p -> p
+                            .signatureDuration(ttl)
+                            .getObjectRequest(g -> g.bucket(bucket).key(key).responseContentType(contentType)))
+                    .url().toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Presigned URL is not a valid URI", e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        presigner.close();
+        client.close();
+    }
+}
@@ -0,0 +1,297 @@
+package backend.service;
+
+import backend.dto.SuggestionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Autocomplete over songs, artists, public playlists and users for {@code GET /search/suggest}.
+ *
+ * Names are lower-cased, stripped of accents and inserted into a trie from their start and from
+ * every later word, so "beat" finds "The Beatles". The trie is flattened into arrays (labels,
+ * child ranges, and for every node the ids of the {@value #TOP} most popular entries below it),
+ * which lets a prefix lookup return without visiting the subtree. Typos are handled by walking
+ * the trie with a Levenshtein row per node, i.e. simulating the Levenshtein automaton of the
+ * query against it and pruning branches that are already too far off: longer queries tolerate
+ * one, then two edits.
+ *
+ * Popularity is likes for songs, followers for artists, song count for playlists and public
+ * playlist count for users. Only users with a public playlist are suggested, so the endpoint
+ * cannot be used to list every account. The whole index is rebuilt in the background every
+ * {@code SEARCH_SUGGEST_REFRESH_MS} and swapped in at once, so lookups never take a lock and new
+ * names show up after the next rebuild.
+ */
+@Component
+public class SearchSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchSuggestIndex.class);
+    public static final int TOP = 10;
+    private static final int MAX_WORDS = 8;
+    private static final String[] TYPES = {"song", "artist", "playlist", "user"};
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private record Entry(int type, long id, String name, String subtitle, String image, long popularity) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final MediaUrlSigner mediaUrlSigner;
+    private volatile Trie trie;
+
+    public SearchSuggestIndex(JdbcTemplate jdbc, MediaUrlSigner mediaUrlSigner) {
+        this.jdbc = jdbc;
+        this.mediaUrlSigner = mediaUrlSigner;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${SEARCH_SUGGEST_REFRESH_MS:300000}",
+            initialDelayString = "${SEARCH_SUGGEST_REFRESH_MS:300000}")
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            List<Entry> entries = load();
+            trie = Trie.build(entries);
+            log.debug("Built search suggestions for {} names ({} nodes) in {} ms", entries.size(),
+                    trie.labels.length, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Keep answering from the previous index.
+            log.warn("Could not rebuild search suggestions: {}", e.toString());
+        }
+    }
+
+    /**
+     * Up to {@code limit} (at most {@value #TOP}) suggestions for what has been typed so far,
+     * closest matches first and the most popular among equally close ones.
+     */
+    public List<SuggestionDTO> suggest(String query, int limit) {
+        Trie current = trie;
+        String needle = normalize(query);
+        if (current == null || needle.isEmpty()) return List.of();
+
+        Map<Integer, Integer> distances = current.match(needle.toCharArray(), maxEdits(needle.length()));
+        List<Map.Entry<Integer, Integer>> hits = new ArrayList<>(distances.entrySet());
+        hits.sort(Comparator.<Map.Entry<Integer, Integer>>comparingInt(Map.Entry::getValue)
+                .thenComparingLong(hit -> -current.entries[hit.getKey()].popularity())
+                .thenComparingInt(Map.Entry::getKey));
+
+        List<SuggestionDTO> suggestions = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            Entry entry = current.entries[hits.get(i).getKey()];
+            suggestions.add(new SuggestionDTO(TYPES[entry.type()], entry.id(), entry.name(), entry.subtitle(),
+                    entry.image() != null ? mediaUrlSigner.imageUrl(entry.image()) : null));
+        }
+        return suggestions;
+    }
+
+    // Short prefixes match too much already to allow typos in them.
+    private static int maxEdits(int length) {
+        return length < 4 ? 0 : length < 8 ? 1 : 2;
+    }
+
+    private List<Entry> load() {
+        List<Entry> entries = new ArrayList<>();
+        jdbc.query("""
+                        SELECT s.id, s.name, s.imageurl, a.name AS artist, COUNT(l.id) AS likes
+                        FROM songs s
+                        JOIN artists a ON a.id = s.artist_id
+                        LEFT JOIN song_likes l ON l.song_id = s.id
+                        GROUP BY s.id, s.name, s.imageurl, a.name
+                        """,
+                rs -> {
+                    entries.add(new Entry(0, rs.getLong("id"), rs.getString("name"), rs.getString("artist"),
+                            rs.getString("imageurl"), rs.getLong("likes")));
+                });
+        jdbc.query("SELECT id, name, imageurl, COALESCE(followers, 0) AS followers FROM artists",
+                rs -> {
+                    entries.add(new Entry(1, rs.getLong("id"), rs.getString("name"), null,
+                            rs.getString("imageurl"), rs.getLong("followers")));
+                });
+        jdbc.query("""
+                        SELECT p.id, p.title, p.imageurl, u.username, COUNT(ps.song_id) AS songs
+                        FROM playlists p
+                        JOIN users u ON u.id = p.user_id
+                        LEFT JOIN playlist_songs ps ON ps.playlist_id = p.id
+                        WHERE p.visibility = 'PUBLIC'
+                        GROUP BY p.id, p.title, p.imageurl, u.username
+                        """,
+                rs -> {
+                    entries.add(new Entry(2, rs.getLong("id"), rs.getString("title"), rs.getString("username"),
+                            rs.getString("imageurl"), rs.getLong("songs")));
+                });
+        jdbc.query("""
+                        SELECT u.id, u.username, COUNT(p.id) AS playlists
+                        FROM users u
+                        JOIN playlists p ON p.user_id = u.id AND p.visibility = 'PUBLIC'
+                        GROUP BY u.id, u.username
+                        """,
+                rs -> {
+                    entries.add(new Entry(3, rs.getLong("id"), rs.getString("username"), null, null,
+                            rs.getLong("playlists")));
+                });
+        return entries;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(stripped.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /** Immutable, array-backed trie; node 0 is the root and every node's children are contiguous. */
+    private static final class Trie {
+        final Entry[] entries;
+        final char[] labels;
+        final int[] firstChild;
+        final int[] childEnd;
+        // top[topStart[n] .. topStart[n + 1]) are the best entries at or below node n.
+        final int[] topStart;
+        final int[] top;
+
+        private Trie(Entry[] entries, char[] labels, int[] firstChild, int[] childEnd, int[] topStart, int[] top) {
+            this.entries = entries;
+            this.labels = labels;
+            this.firstChild = firstChild;
+            this.childEnd = childEnd;
+            this.topStart = topStart;
+            this.top = top;
+        }
+
+        /** Entry index -> smallest edit distance between the needle and a prefix of one of its words. */
+        Map<Integer, Integer> match(char[] needle, int maxEdits) {
+            Map<Integer, Integer> hits = new HashMap<>();
+            int[] row = new int[needle.length + 1];
+            for (int j = 0; j <= needle.length; j++) row[j] = j;
+            for (int child = firstChild[0]; child < childEnd[0]; child++) {
+                walk(child, needle, row, maxEdits, hits);
+            }
+            return hits;
+        }
+
+        private void walk(int node, char[] needle, int[] previous, int maxEdits, Map<Integer, Integer> hits) {
+            int[] row = new int[previous.length];
+            row[0] = previous[0] + 1;
+            int best = row[0];
+            for (int j = 1; j < row.length; j++) {
+                int substitute = previous[j - 1] + (needle[j - 1] == labels[node] ? 0 : 1);
+                row[j] = Math.min(substitute, Math.min(previous[j], row[j - 1]) + 1);
+                best = Math.min(best, row[j]);
+            }
+            if (best > maxEdits) return;
+
+            int distance = row[needle.length];
+            if (distance <= maxEdits) {
+                for (int i = topStart[node]; i < topStart[node + 1]; i++) {
+                    hits.merge(top[i], distance, Math::min);
+                }
+                // Nothing deeper can match more closely than an exact prefix.
+                if (distance == 0) return;
+            }
+            for (int child = firstChild[node]; child < childEnd[node]; child++) {
+                walk(child, needle, row, maxEdits, hits);
+            }
+        }
+
+        static Trie build(List<Entry> list) {
+            Entry[] entries = list.toArray(new Entry[0]);
+            Node root = new Node('\0');
+            int[] count = {1};
+            for (int e = 0; e < entries.length; e++) {
+                String name = normalize(entries[e].name());
+                if (name.isEmpty()) continue;
+                int words = 0;
+                for (int start = 0; start >= 0 && words < MAX_WORDS; words++) {
+                    root.insert(name, start, e, count);
+                    int space = name.indexOf(' ', start);
+                    start = space >= 0 ? space + 1 : -1;
+                }
+            }
+            root.rank(entries);
+
+            // Breadth-first layout keeps each node's children next to each other.
+            Node[] order = new Node[count[0]];
+            order[0] = root;
+            int size = 1;
+            char[] labels = new char[order.length];
+            int[] firstChild = new int[order.length];
+            int[] childEnd = new int[order.length];
+            int[] topStart = new int[order.length + 1];
+            int tops = 0;
+            for (int n = 0; n < order.length; n++) {
+                Node node = order[n];
+                labels[n] = node.label;
+                firstChild[n] = size;
+                for (Node child : node.children.values()) order[size++] = child;
+                childEnd[n] = size;
+                topStart[n] = tops;
+                tops += node.top.length;
+            }
+            topStart[order.length] = tops;
+            int[] top = new int[tops];
+            for (int n = 0; n < order.length; n++) {
+                System.arraycopy(order[n].top, 0, top, topStart[n], order[n].top.length);
+            }
+            return new Trie(entries, labels, firstChild, childEnd, topStart, top);
+        }
+    }
+
+    // Build-time node; only the flattened Trie is kept.
+    private static final class Node {
+        final char label;
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int[] terminal = new int[0];
+        int[] top;
+
+        Node(char label) {
+            this.label = label;
+        }
+
+        void insert(String term, int from, int entry, int[] count) {
+            Node node = this;
+            for (int i = from; i < term.length(); i++) {
+                char c = term.charAt(i);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node(c);
+                    node.children.put(c, child);
+                    count[0]++;
+                }
+                node = child;
+            }
+            node.terminal = Arrays.copyOf(node.terminal, node.terminal.length + 1);
+            node.terminal[node.terminal.length - 1] = entry;
+        }
+
+        // Post-order: a node's best entries are the best of its own and its children's.
+        void rank(Entry[] entries) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int entry : terminal) candidates.add(entry);
+            for (Node child : children.values()) {
+                child.rank(entries);
+                for (int entry : child.top) candidates.add(entry);
+            }
+            top = candidates.stream()
+                    .distinct()
+                    .sorted(Comparator.<Integer>comparingLong(e -> -entries[e].popularity()).thenComparingInt(e -> e))
+                    .limit(TOP)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            terminal = null;
+        }
+    }
+}
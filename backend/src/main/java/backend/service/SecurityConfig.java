@@ -57,7 +57,9 @@ public class SecurityConfig {
                         // POST/PUT/DELETE require authentication so @PreAuthorize works correctly
                         .requestMatchers(HttpMethod.GET, "/songs/**", "/api/songs/**", "/api/songs/*/stream").permitAll()
                         .requestMatchers(HttpMethod.GET, "/playlists/**", "/api/playlists/**").permitAll()
+                        .requestMatchers(HttpMethod.DELETE, "/playlists/read-ahead", "/api/playlists/read-ahead").permitAll()
                         .requestMatchers(HttpMethod.GET, "/artists/**", "/api/artists/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/search/**", "/api/search/**").permitAll()
                         // ✅ Profile page can be viewed publicly; backend decides if viewer is owner
                         .requestMatchers("/users/*/profile", "/api/users/*/profile").permitAll()
                         .anyRequest().authenticated()
@@ -82,10 +84,11 @@ public class SecurityConfig {
         configuration.setAllowedMethods(java.util.List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 
         // Range is needed for audio streaming.
-        configuration.setAllowedHeaders(java.util.List.of("Authorization", "Content-Type", "Range"));
+        configuration.setAllowedHeaders(java.util.List.of("Authorization", "Content-Type", "Range", "If-Range", "X-Chunk-SHA256"));
 
         // Helpful for clients consuming streamed audio.
-        configuration.setExposedHeaders(List.of("Content-Range", "Accept-Ranges", "Content-Length"));
+        configuration.setExposedHeaders(List.of("Content-Range", "Accept-Ranges", "Content-Length", "ETag", "Last-Modified", "Retry-After",
+                "Content-Disposition", "Location", "X-Next-Cursor"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,267 @@
+package backend.service;
+
+import backend.model.Genre;
+import backend.repository.DBSongRepository;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmaps of song ids per genre and per artist, for the explore page's filters.
+ *
+ * Song ids are serial, so they already are dense ordinals and are used as bitmap positions
+ * directly. A filter (genre AND artist AND liked-by-user) is a couple of bitmap intersections,
+ * and each facet count is an intersection cardinality, so neither touches the database. Counts
+ * for a dimension ignore that dimension's own filter, so the client can show the alternatives.
+ *
+ * Built at startup and maintained by SongService like {@link SongSearchIndex}; CatalogImporter
+ * calls {@link #catchUp()} after its JDBC inserts. Like the name index it catches up every
+ * {@code SONG_INDEX_CATCH_UP_MS} and is rebuilt every {@code SONG_INDEX_REBUILD_MS}, for the
+ * changes made through other API instances.
+ */
+@Component
+public class SongFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SongFacetIndex.class);
+
+    /** One filtered page: matching ids (ascending), total matches and per-facet counts. */
+    public record Facets(int total, List<Long> ids, Map<Genre, Integer> genres, Map<Long, Integer> artists) {
+    }
+
+    private final DBSongRepository songRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<Genre, RoaringBitmap> byGenre = new EnumMap<>(Genre.class);
+    private final Map<Long, RoaringBitmap> byArtist = new HashMap<>();
+    // What each song is filed under, to take it out again on update or delete.
+    private final Map<Integer, Genre> genreOf = new HashMap<>();
+    private final Map<Integer, Long> artistOf = new HashMap<>();
+    private int maxId;
+    // Changes made while build() reads the database, replayed onto what it read; null otherwise.
+    private List<Runnable> changesDuringBuild;
+    private volatile boolean built;
+
+    public SongFacetIndex(DBSongRepository songRepository) {
+        this.songRepository = songRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${SONG_INDEX_REBUILD_MS:600000}",
+            initialDelayString = "${SONG_INDEX_REBUILD_MS:600000}")
+    public void build() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changesDuringBuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Read without the lock, so filters keep being answered from the current bitmaps meanwhile.
+        List<Object[]> rows;
+        try {
+            rows = songRepository.findFacetsAfter(0L);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!built) throw e;
+            log.warn("Could not rebuild the song facet index: {}", e.toString());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            all.clear();
+            byGenre.clear();
+            byArtist.clear();
+            genreOf.clear();
+            artistOf.clear();
+            maxId = 0;
+            for (Object[] row : rows) {
+                int id = ((Number) row[0]).intValue();
+                add(id, (Genre) row[1], (Long) row[2]);
+                maxId = Math.max(maxId, id);
+            }
+            // Replaying is harmless for the changes the rows already contain.
+            changesDuringBuild.forEach(Runnable::run);
+            changesDuringBuild = null;
+            all.runOptimize();
+            byGenre.values().forEach(RoaringBitmap::runOptimize);
+            byArtist.values().forEach(RoaringBitmap::runOptimize);
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed facets of {} songs in {} ms", all.getCardinality(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** False until the startup build is done; callers query the database until then. */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /** Files a new song, or refiles one whose genre or artist changed. */
+    public void put(Long songId, Genre genre, Long artistId) {
+        int id = songId.intValue();
+        lock.writeLock().lock();
+        try {
+            apply(() -> {
+                removeId(id);
+                add(id, genre, artistId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long songId) {
+        int id = songId.intValue();
+        lock.writeLock().lock();
+        try {
+            apply(() -> removeId(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Files songs inserted behind SongService's back, i.e. with ids above the highest one read so far. */
+    @Scheduled(fixedDelayString = "${SONG_INDEX_CATCH_UP_MS:30000}",
+            initialDelayString = "${SONG_INDEX_CATCH_UP_MS:30000}")
+    public void catchUp() {
+        if (!built) return; // the build will read them
+        long after;
+        lock.readLock().lock();
+        try {
+            after = maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Object[]> rows = songRepository.findFacetsAfter(after);
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                int id = ((Number) row[0]).intValue();
+                if (!all.contains(id)) add(id, (Genre) row[1], (Long) row[2]);
+                maxId = Math.max(maxId, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Songs matching every given filter (null filters are ignored; {@code likedSongIds} limits
+     * the result to a user's likes), with genre counts and the {@code maxArtists} largest artist
+     * counts.
+     */
+    public Facets facets(Genre genre, Long artistId, Collection<Long> likedSongIds,
+                         int offset, int limit, int maxArtists) {
+        RoaringBitmap liked = null;
+        if (likedSongIds != null) {
+            liked = new RoaringBitmap();
+            for (Long id : likedSongIds) liked.add(id.intValue());
+        }
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap genreFilter = genre != null ? byGenre.getOrDefault(genre, new RoaringBitmap()) : null;
+            RoaringBitmap artistFilter = artistId != null ? byArtist.getOrDefault(artistId, new RoaringBitmap()) : null;
+
+            // Base for genre counts: every filter but the genre; likewise for artist counts.
+            RoaringBitmap withoutGenre = and(and(all, artistFilter), liked);
+            RoaringBitmap withoutArtist = and(and(all, genreFilter), liked);
+            RoaringBitmap matches = and(withoutGenre, genreFilter);
+
+            Map<Genre, Integer> genres = new EnumMap<>(Genre.class);
+            for (Map.Entry<Genre, RoaringBitmap> entry : byGenre.entrySet()) {
+                int count = RoaringBitmap.andCardinality(entry.getValue(), withoutGenre);
+                if (count > 0) genres.put(entry.getKey(), count);
+            }
+
+            List<Map.Entry<Long, Integer>> counts = new ArrayList<>();
+            for (Map.Entry<Long, RoaringBitmap> entry : byArtist.entrySet()) {
+                int count = RoaringBitmap.andCardinality(entry.getValue(), withoutArtist);
+                if (count > 0) counts.add(Map.entry(entry.getKey(), count));
+            }
+            counts.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.<Long, Integer>comparingByKey()));
+            Map<Long, Integer> artists = new LinkedHashMap<>();
+            for (int i = 0; i < counts.size() && i < maxArtists; i++) {
+                artists.put(counts.get(i).getKey(), counts.get(i).getValue());
+            }
+
+            return new Facets(matches.getCardinality(), page(matches, offset, limit), genres, artists);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Null means "no filter", so the other side is returned as is.
+    private static RoaringBitmap and(RoaringBitmap left, RoaringBitmap right) {
+        return right == null ? left : RoaringBitmap.and(left, right);
+    }
+
+    private static List<Long> page(RoaringBitmap songs, int offset, int limit) {
+        List<Long> ids = new ArrayList<>(Math.max(0, Math.min(limit, songs.getCardinality() - offset)));
+        if (offset >= songs.getCardinality()) return ids;
+        PeekableIntIterator it = songs.getIntIterator();
+        if (offset > 0) {
+            // select() finds the offset-th id without walking the ones before it.
+            it.advanceIfNeeded(songs.select(offset));
+        }
+        while (it.hasNext() && ids.size() < limit) {
+            ids.add((long) it.next());
+        }
+        return ids;
+    }
+
+    // Called under the write lock.
+    private void apply(Runnable change) {
+        change.run();
+        if (changesDuringBuild != null) changesDuringBuild.add(change);
+    }
+
+    private void add(int id, Genre genre, Long artistId) {
+        all.add(id);
+        if (genre != null) {
+            genreOf.put(id, genre);
+            byGenre.computeIfAbsent(genre, g -> new RoaringBitmap()).add(id);
+        }
+        if (artistId != null) {
+            artistOf.put(id, artistId);
+            byArtist.computeIfAbsent(artistId, a -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    private void removeId(int id) {
+        all.remove(id);
+        Genre genre = genreOf.remove(id);
+        if (genre != null) byGenre.get(genre).remove(id);
+        Long artistId = artistOf.remove(id);
+        if (artistId != null) {
+            RoaringBitmap songs = byArtist.get(artistId);
+            songs.remove(id);
+            if (songs.isEmpty()) byArtist.remove(artistId);
+        }
+    }
+}
@@ -3,12 +3,15 @@ package backend.service;
 import backend.model.Song;
 import backend.model.SongLike;
 import backend.model.User;
+import backend.repository.LikedSongRow;
 import backend.repository.SongLikeRepository;
 import backend.repository.DBSongRepository;
 import backend.repository.DBUserRepository;
+import backend.dto.CursorPage;
 import backend.dto.SongDTO;
 import backend.mapper.SongMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -48,18 +51,14 @@ public class SongLikeService {
             return true; // Return true to indicate "Liked"
         }
     }
-    public List<SongDTO> getLikedSongs(Long userId) {
-        // Find the user
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        //  Get the likes from the repo
-        List<SongLike> likes = songLikeRepository.findByUserOrderByLikedAtDesc(user);
+    // Newest likes first; the cursor is the id of the last like sent.
+    public CursorPage<SongDTO> getLikedSongs(Long userId, String cursor, int limit) {
+        long before = KeysetCursor.decode(cursor, Long.MAX_VALUE);
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
 
-        //  Convert List<SongLike> -> List<SongDTO>
-        return likes.stream()
-                .map(like -> like.getSong())      // Extract the Song entity
-                .map(songMapper::toDTO)           // Convert to DTO (Check if your mapper uses toDto or toDTO)
-                .toList();
+        List<LikedSongRow> likes = songLikeRepository.findLikedRows(userId, before, Limit.of(limit + 1));
+        return KeysetCursor.page(likes, limit, LikedSongRow::likeId, like -> songMapper.toDTO(like.song()));
     }
 }
\ No newline at end of file
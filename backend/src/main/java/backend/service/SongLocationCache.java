@@ -0,0 +1,120 @@
+package backend.service;
+
+import backend.repository.DBSongRepository;
+import backend.repository.DBSongRepository.AudioRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Song id -> resolved audio file (path, size, content type, mtime) and bitrate.
+ *
+ * The stream endpoints only need to know which file to send, so on a hit they run no SQL and
+ * touch the filesystem only to send the bytes. SongService invalidates entries when songs are
+ * created or deleted; an entry whose blob was evicted from the local media cache is resolved
+ * again. Requests that never read the bytes only need the filepath, which is cached separately
+ * so it can be known without fetching the file.
+ */
+@Component
+public class SongLocationCache {
+
+    /** {@code bitrateKbps} is null for songs that have not been indexed yet. */
+    public record SongLocation(String filepath, FileMediaSource audio, Integer bitrateKbps) {
+    }
+
+    private final DBSongRepository songRepository;
+    private final MediaLocator mediaLocator;
+    private final BlobStore blobStore;
+    private final Map<Long, SongLocation> locations;
+    private final Map<Long, String> filepaths;
+
+    public SongLocationCache(DBSongRepository songRepository,
+                             MediaLocator mediaLocator,
+                             BlobStore blobStore,
+                             @Value("${SONG_LOCATION_CACHE_SIZE:10000}") int maxEntries) {
+        this.songRepository = songRepository;
+        this.mediaLocator = mediaLocator;
+        this.blobStore = blobStore;
+        this.locations = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SongLocation> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.filepaths = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the song's audio location, or null when the song or its file does not exist. May
+     * download the file from remote storage; see {@link #cached}.
+     */
+    public SongLocation get(Long songId) throws IOException {
+        SongLocation cached = cached(songId);
+        if (cached != null) return cached;
+
+        AudioRef ref = songRepository.findAudioRefById(songId).orElse(null);
+        Path audio = ref != null ? mediaLocator.resolveAudio(ref.getFilepath()) : null;
+        if (audio == null) return null;
+
+        SongLocation location = new SongLocation(ref.getFilepath(), FileMediaSource.of(audio, "audio/mpeg"),
+                ref.getBitrate());
+        synchronized (locations) {
+            locations.put(songId, location);
+        }
+        return location;
+    }
+
+    /** The song's audio location when it is known and its file is at hand, else null; never blocks on I/O. */
+    public SongLocation cached(Long songId) {
+        SongLocation cached;
+        synchronized (locations) {
+            cached = locations.get(songId);
+        }
+        if (cached == null || blobStore.stillLocal(cached.filepath())) return cached;
+        synchronized (locations) {
+            locations.remove(songId, cached);
+        }
+        return null;
+    }
+
+    /**
+     * The song's stored filepath without resolving its file, for requests that will not read the
+     * bytes (redirects to storage) and so should not pull a remote blob into the local cache.
+     */
+    public String filepathOf(Long songId) {
+        synchronized (locations) {
+            SongLocation cached = locations.get(songId);
+            if (cached != null) return cached.filepath();
+        }
+        synchronized (filepaths) {
+            String cached = filepaths.get(songId);
+            if (cached != null) return cached;
+        }
+
+        String filepath = songRepository.findAudioRefById(songId).map(AudioRef::getFilepath).orElse(null);
+        if (filepath != null) {
+            synchronized (filepaths) {
+                filepaths.put(songId, filepath);
+            }
+        }
+        return filepath;
+    }
+
+    public void invalidate(Long songId) {
+        synchronized (locations) {
+            locations.remove(songId);
+        }
+        synchronized (filepaths) {
+            filepaths.remove(songId);
+        }
+    }
+}
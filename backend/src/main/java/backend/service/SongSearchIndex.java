@@ -0,0 +1,306 @@
+package backend.service;
+
+import backend.repository.DBSongRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over song names for the {@code GET /songs?name=} search.
+ *
+ * Every lower-cased name is split into its three-character windows, and each window keeps a
+ * sorted int array of the songs containing it. A query is answered by intersecting the posting
+ * lists of its own trigrams, smallest first, and checking the few survivors with a plain
+ * substring test, so its cost follows the number of matches rather than the catalog size.
+ * Queries shorter than three characters have no trigram and scan the names held here instead.
+ *
+ * Built at startup; SongService keeps it current when songs are created, renamed or deleted,
+ * and CatalogImporter asks it to pick up the rows it inserted with {@link #catchUp()}. Each API
+ * instance has its own index, so songs other instances create are picked up every
+ * {@code SONG_INDEX_CATCH_UP_MS}, and the whole index is rebuilt every {@code SONG_INDEX_REBUILD_MS}
+ * to take over their renames and deletions.
+ */
+@Component
+public class SongSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SongSearchIndex.class);
+
+    private final DBSongRepository songRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // Highest id read from the database by build/catchUp (not by put, whose ids may overtake an import).
+    private int maxId;
+    // Changes made while build() reads the database, replayed onto what it read; null otherwise.
+    private List<Runnable> changesDuringBuild;
+    private volatile boolean built;
+
+    public SongSearchIndex(DBSongRepository songRepository) {
+        this.songRepository = songRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${SONG_INDEX_REBUILD_MS:600000}",
+            initialDelayString = "${SONG_INDEX_REBUILD_MS:600000}")
+    public void build() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changesDuringBuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Read without the lock, so searches keep being answered from the current index meanwhile.
+        List<Object[]> rows;
+        try {
+            rows = songRepository.findIdsAndNamesAfter(0L);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!built) throw e;
+            log.warn("Could not rebuild the song name index: {}", e.toString());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            postings.clear();
+            maxId = 0;
+            for (Object[] row : rows) {
+                int id = ((Number) row[0]).intValue();
+                add(id, (String) row[1]);
+                maxId = Math.max(maxId, id);
+            }
+            // Replaying is harmless for the changes the rows already contain.
+            changesDuringBuild.forEach(Runnable::run);
+            changesDuringBuild = null;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} song names ({} trigrams) in {} ms", names.size(), postings.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** False until the startup build is done; callers search the database until then. */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /** Indexes a new song or replaces the name of an existing one. */
+    public void put(Long songId, String name) {
+        int id = songId.intValue();
+        lock.writeLock().lock();
+        try {
+            apply(() -> {
+                removeId(id);
+                add(id, name);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long songId) {
+        int id = songId.intValue();
+        lock.writeLock().lock();
+        try {
+            apply(() -> removeId(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexes songs inserted behind SongService's back, i.e. with ids above the highest one read so far. */
+    @Scheduled(fixedDelayString = "${SONG_INDEX_CATCH_UP_MS:30000}",
+            initialDelayString = "${SONG_INDEX_CATCH_UP_MS:30000}")
+    public void catchUp() {
+        if (!built) return; // the build will read them
+        long after;
+        lock.readLock().lock();
+        try {
+            after = maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Object[]> rows = songRepository.findIdsAndNamesAfter(after);
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                int id = ((Number) row[0]).intValue();
+                if (!names.containsKey(id)) add(id, (String) row[1]);
+                maxId = Math.max(maxId, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the songs whose name contains {@code query} (ignoring case), best matches first:
+     * names starting with the query, then names with a word starting with it, then by how early
+     * the match is and how short the name is. Returns at most {@code limit} ids after skipping
+     * {@code offset}.
+     */
+    public List<Long> search(String query, int offset, int limit) {
+        String needle = normalize(query);
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (needle.length() < 3) {
+                for (Map.Entry<Integer, String> entry : names.entrySet()) {
+                    collect(entry.getKey(), entry.getValue(), needle, matches);
+                }
+            } else {
+                for (int id : candidates(needle)) {
+                    collect(id, names.get(id), needle, matches);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(Match::rank)
+                .thenComparingInt(Match::position)
+                .thenComparingInt(Match::length)
+                .thenComparingInt(Match::id));
+        List<Long> page = new ArrayList<>(Math.max(0, Math.min(limit, matches.size() - offset)));
+        for (int i = offset; i < matches.size() && page.size() < limit; i++) {
+            page.add((long) matches.get(i).id());
+        }
+        return page;
+    }
+
+    // rank: 0 = name starts with the query, 1 = a word does, 2 = anywhere else.
+    private record Match(int id, int rank, int position, int length) {
+    }
+
+    private static void collect(int id, String name, String needle, List<Match> matches) {
+        int position = name.indexOf(needle);
+        if (position < 0) return;
+        int rank = position == 0 ? 0 : 2;
+        for (int at = position; at >= 0 && rank == 2; at = name.indexOf(needle, at + 1)) {
+            if (at == 0 || !Character.isLetterOrDigit(name.charAt(at - 1))) rank = 1;
+        }
+        matches.add(new Match(id, rank, position, name.length()));
+    }
+
+    // Songs containing every trigram of the needle; a superset of the real matches.
+    private int[] candidates(String needle) {
+        Set<Long> keys = trigrams(needle);
+        Postings[] lists = new Postings[keys.size()];
+        int n = 0;
+        for (long key : keys) {
+            Postings list = postings.get(key);
+            if (list == null) return new int[0];
+            lists[n++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int size = result.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            size = intersect(result, size, lists[i]);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Keeps the ids of result[0..size) that also appear in other; both are sorted.
+    private static int intersect(int[] result, int size, Postings other) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < size && from < other.size; i++) {
+            int found = Arrays.binarySearch(other.ids, from, other.size, result[i]);
+            if (found >= 0) {
+                result[kept++] = result[i];
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    // Called under the write lock.
+    private void apply(Runnable change) {
+        change.run();
+        if (changesDuringBuild != null) changesDuringBuild.add(change);
+    }
+
+    private void add(int id, String name) {
+        if (name == null) return;
+        String normalized = normalize(name);
+        names.put(id, normalized);
+        for (long key : trigrams(normalized)) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(id);
+        }
+    }
+
+    private void removeId(int id) {
+        String previous = names.remove(id);
+        if (previous == null) return;
+        for (long key : trigrams(previous)) {
+            Postings list = postings.get(key);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            keys.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return keys;
+    }
+
+    /** Sorted song ids in a growable int array. */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
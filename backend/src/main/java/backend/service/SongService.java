@@ -1,6 +1,8 @@
 package backend.service;
 
+import backend.dto.CursorPage;
 import backend.dto.SongDTO;
+import backend.dto.SongFacetsDTO;
 import backend.mapper.SongMapper;
 import backend.model.Artist;
 import backend.model.Genre;
@@ -8,43 +10,59 @@ import backend.model.Song;
 import backend.repository.DBArtistRepository;
 import backend.repository.DBSongRepository;
 import backend.repository.DBUserRepository;
+import backend.repository.SongLikeRepository;
+import backend.repository.SongRow;
 import backend.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import org.springframework.security.core.Authentication;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class SongService {
 
+    private static final int MAX_ARTIST_FACETS = 50;
+
     private final DBSongRepository songRepository;
     private final SongMapper songMapper;
     private final DBArtistRepository artistRepository;
     private final DBUserRepository userRepository;
+    private final HlsPackager hlsPackager;
+    private final SongLocationCache songLocationCache;
+    private final BlobStore blobStore;
+    private final MediaLocator mediaLocator;
+    private final SongSearchIndex songSearchIndex;
+    private final SongFacetIndex songFacetIndex;
+    private final SongLikeRepository songLikeRepository;
 
-    public SongService(DBSongRepository songRepository, SongMapper songMapper, DBArtistRepository artistRepository, DBUserRepository userRepository) {
+    public SongService(DBSongRepository songRepository, SongMapper songMapper, DBArtistRepository artistRepository, DBUserRepository userRepository, HlsPackager hlsPackager, SongLocationCache songLocationCache, BlobStore blobStore, MediaLocator mediaLocator, SongSearchIndex songSearchIndex, SongFacetIndex songFacetIndex, SongLikeRepository songLikeRepository) {
 
         this.songRepository = songRepository;
         this.songMapper = songMapper;
         this.artistRepository = artistRepository;
         this.userRepository = userRepository;
+        this.hlsPackager = hlsPackager;
+        this.songLocationCache = songLocationCache;
+        this.blobStore = blobStore;
+        this.mediaLocator = mediaLocator;
+        this.songSearchIndex = songSearchIndex;
+        this.songFacetIndex = songFacetIndex;
+        this.songLikeRepository = songLikeRepository;
     }
 
 // backend.service.SongService.java
 
-    public SongDTO createSong(String name,
-                             String genreName,
-                             MultipartFile image,
-                             MultipartFile file,
-                             Authentication authentication) {
+    /**
+     * The artist an upload is published under, created on the artist's first upload. Called on
+     * the request thread so an unauthorised upload is refused before anything is stored.
+     */
+    public Artist resolveUploadingArtist(Authentication authentication) {
         // 1. Resolve artist name from the authenticated user (no longer sent from frontend)
         if (authentication == null || !authentication.isAuthenticated() || authentication.getName() == null) {
             throw new RuntimeException("Unauthenticated request");
@@ -57,96 +75,71 @@ public class SongService {
         String artistName = user.getUsername();
 
         // 2. Ensure an Artist exists for this username
-        Artist artist = artistRepository.findByName(artistName)
+        return artistRepository.findByName(artistName)
                 .orElseGet(() -> artistRepository.save(Artist.builder()
                         .name(artistName)
                         .followers(0L)
-                        .imageUrl("https://via.placeholder.com/150") // Default image for auto-created artists
+                        .imageUrl(Artist.DEFAULT_IMAGE_URL) // Default image for auto-created artists
                         .build()));
+    }
+
+    /**
+     * Inserts the row for an uploaded song once UploadPipeline has stored and processed its files;
+     * until then the song is not visible anywhere. {@code audioInfo} is null when indexing failed
+     * (AudioMetadataBackfill retries it later). When a song with {@code importKey} exists already,
+     * that one is returned: a retried insert whose first attempt did save the row must not add a second.
+     */
+    public SongDTO insertSong(String name, String genreName, Artist artist, String audioFileName,
+                              String imageFileName, Mp3Indexer.Mp3Info audioInfo, String importKey) {
+        Optional<SongRow> existing = songRepository.findRowByImportKey(importKey);
+        if (existing.isPresent()) {
+            return songMapper.toDTO(existing.get());
+        }
 
-        // 3. Save the audio + image files
-        String audioFileName = saveAudioFile(file);
-        String imageFileName = saveImageFile(image);
-        String imageUrl = "http://localhost:8081/api/songs/image/" + imageFileName;
+        // Stored relative to the API; SongMapper prefixes the public base URL.
+        String imageUrl = MediaUrlSigner.IMAGE_PATH + imageFileName;
 
-        // 3. Map Genre
         Genre genre;
         try {
             genre = Genre.valueOf(genreName.toUpperCase());
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | NullPointerException e) {
             genre = Genre.OTHER; // Fallback
         }
 
-        // 4. Build Entity
         Song song = new Song();
         song.setName(name);
         song.setArtist(artist);
         song.setGenre(genre);
         song.setImageUrl(imageUrl);
         song.setFilepath(audioFileName);
+        song.setImportKey(importKey);
+        if (audioInfo != null) {
+            song.setDurationMs(audioInfo.durationMs());
+            song.setBitrate(audioInfo.bitrateKbps());
+            song.setSampleRate(audioInfo.sampleRate());
+            song.setSizeBytes(audioInfo.sizeBytes());
+            song.setCrc32(audioInfo.crc32());
+        }
 
         Song saved = songRepository.save(song);
+        // Defensive: ids are never reused, so nothing should be cached for a new song.
+        songLocationCache.invalidate(saved.getId());
+        songSearchIndex.put(saved.getId(), saved.getName());
+        songFacetIndex.put(saved.getId(), saved.getGenre(), saved.getArtist().getId());
         return songMapper.toDTO(saved);
     }
 
-    private String saveAudioFile(MultipartFile file) {
-        try {
-            // 1. Define the directory path
-            // Using Paths.get("").toAbsolutePath() ensures we start from the project root
-            Path uploadDir = Paths.get("uploads/audio").toAbsolutePath();
-
-            // 2. Create the directory if it doesn't exist
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-                System.out.println("Created directory: " + uploadDir);
-            }
-
-            // 3. Generate unique filename
-            String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-            Path targetPath = uploadDir.resolve(fileName);
-
-            // 4. Copy the file
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-
-            return fileName;
-        } catch (IOException e) {
-            // Log the actual error for debugging
-            e.printStackTrace();
-            throw new RuntimeException("Could not save audio file: " + e.getMessage());
-        }
-    }
-
-    private String saveImageFile(MultipartFile file) {
-        try {
-            Path uploadDir = Paths.get("uploads/images").toAbsolutePath();
-
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-                System.out.println("Created directory: " + uploadDir);
-            }
-
-            String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-            Path targetPath = uploadDir.resolve(fileName);
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-            return fileName;
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Could not save image file: " + e.getMessage());
-        }
-    }
-
 
     public SongDTO getSongById(Long id) {
-        Song song = songRepository.findById(id)
+        SongRow song = songRepository.findRowById(id)
                 .orElseThrow(() -> new RuntimeException("Song not found with id: " + id));
         return songMapper.toDTO(song);
     }
 
-    public List<SongDTO> getAllSongs() {
-        return songRepository.findAll()
-                .stream()
-                .map(songMapper::toDTO)
-                .collect(Collectors.toList());
+    public CursorPage<SongDTO> getAllSongs(String cursor, int limit) {
+        long after = KeysetCursor.decode(cursor, 0);
+        return KeysetCursor.page(songRepository.findRowsAfter(after, Limit.of(limit + 1)),
+                limit, SongRow::id, songMapper::toDTO);
     }
 
     public List<SongDTO> getMySongs(Authentication authentication) {
@@ -159,7 +152,7 @@ public class SongService {
                 .orElseThrow(() -> new RuntimeException("User not found for authenticated email: " + authenticatedEmail));
 
         String artistName = user.getUsername();
-        return songRepository.findByArtist_NameOrderByIdDesc(artistName)
+        return songRepository.findRowsByArtistName(artistName)
                 .stream()
                 .map(songMapper::toDTO)
                 .collect(Collectors.toList());
@@ -180,6 +173,8 @@ public class SongService {
         }
 
         Song saved = songRepository.save(existing);
+        songSearchIndex.put(saved.getId(), saved.getName());
+        songFacetIndex.put(saved.getId(), saved.getGenre(), saved.getArtist().getId());
         return songMapper.toDTO(saved);
     }
 
@@ -201,20 +196,31 @@ public class SongService {
             throw new RuntimeException("Forbidden: you can only delete your own songs");
         }
 
-        // Best-effort file cleanup (ignore failures)
+        songRepository.deleteById(id);
+        songLocationCache.invalidate(id);
+        songSearchIndex.remove(id);
+        songFacetIndex.remove(id);
+
+        // Best-effort file cleanup (ignore failures). Blobs may be shared with other songs, so
+        // those only go away with their last reference.
         deleteAudioFileIfUploaded(song.getFilepath());
         deleteImageFileIfUploaded(song.getImageUrl());
-
-        songRepository.deleteById(id);
     }
 
     private void deleteAudioFileIfUploaded(String filepath) {
         if (filepath == null || filepath.isBlank()) return;
-        try {
-            Path uploadPath = Paths.get("uploads/audio").toAbsolutePath().resolve(filepath);
-            if (Files.exists(uploadPath)) {
-                Files.delete(uploadPath);
+
+        String sha256 = BlobStore.keyOf(filepath);
+        if (sha256 != null) {
+            if (blobStore.release(sha256)) {
+                hlsPackager.delete(filepath);
             }
+            return;
+        }
+
+        hlsPackager.delete(filepath);
+        try {
+            mediaLocator.deleteLegacyAudio(filepath);
         } catch (Exception ignored) {
         }
     }
@@ -223,27 +229,35 @@ public class SongService {
         if (imageUrl == null || imageUrl.isBlank()) return;
 
         // We only delete uploaded images which are stored via our own endpoint.
-        // Example: http://localhost:8081/api/songs/image/<filename>
-        final String marker = "/api/songs/image/";
-        int idx = imageUrl.indexOf(marker);
-        if (idx < 0) return;
-
-        String filename = imageUrl.substring(idx + marker.length());
-        if (filename.isBlank()) return;
+        // Example: /songs/image/<filename>
+        String filename = MediaUrlSigner.imageFilename(imageUrl);
+        if (filename == null || filename.isBlank()) return;
+
+        String sha256 = BlobStore.keyOf(filename);
+        if (sha256 != null) {
+            blobStore.release(sha256);
+            return;
+        }
 
         try {
-            Path uploadPath = Paths.get("uploads/images").toAbsolutePath().resolve(filename);
-            if (Files.exists(uploadPath)) {
-                Files.delete(uploadPath);
-            }
+            mediaLocator.deleteLegacyImage(filename);
         } catch (Exception ignored) {
         }
     }
 
-    public List<SongDTO> getSongsByName(String name) {
-        return songRepository.findAll()
+    /** One page of the songs whose name contains {@code name}, best matches first (see SongSearchIndex). */
+    public List<SongDTO> getSongsByName(String name, int page, int size) {
+        if (!songSearchIndex.isBuilt()) {
+            return songRepository.findRowsByNameContaining(name.trim())
+                    .stream()
+                    .skip((long) page * size)
+                    .limit(size)
+                    .map(songMapper::toDTO)
+                    .collect(Collectors.toList());
+        }
+
+        return rowsInOrder(songSearchIndex.search(name, offset(page, size), size))
                 .stream()
-                .filter(song -> song.getName() != null && song.getName().toLowerCase().contains(name.toLowerCase()))
                 .map(songMapper::toDTO)
                 .collect(Collectors.toList());
     }
@@ -253,9 +267,8 @@ public class SongService {
 
             Genre genre = Genre.valueOf(genreName.toUpperCase());
 
-            List<Song> songs = songRepository.findByGenre(genre);
-
-            return songs.stream()
+            // One joined query; the facet index's ids would turn into an IN list as long as the genre.
+            return songRepository.findRowsByGenre(genre).stream()
                     .map(songMapper::toDTO)
                     .collect(Collectors.toList());
 
@@ -263,4 +276,47 @@ public class SongService {
             throw new RuntimeException("Invalid genre: " + genreName);
         }
     }
+
+    /**
+     * Explore filters: a page of the songs in {@code genre}, by {@code artistId} and liked by
+     * {@code likedBy} (each optional), plus the counts for every genre and the top artists.
+     */
+    public SongFacetsDTO getSongFacets(Genre genre, Long artistId, Long likedBy, int page, int size) {
+        if (!songFacetIndex.isBuilt()) {
+            throw new IllegalStateException("Song facets are still being indexed");
+        }
+        List<Long> liked = likedBy != null ? songLikeRepository.findSongIdsByUserId(likedBy) : null;
+        SongFacetIndex.Facets facets = songFacetIndex.facets(genre, artistId, liked, offset(page, size), size, MAX_ARTIST_FACETS);
+
+        Map<Long, String> artistNames = new HashMap<>();
+        for (Artist artist : artistRepository.findAllById(facets.artists().keySet())) {
+            artistNames.put(artist.getId(), artist.getName());
+        }
+        List<SongFacetsDTO.ArtistCount> artists = facets.artists().entrySet().stream()
+                .map(e -> new SongFacetsDTO.ArtistCount(e.getKey(), artistNames.get(e.getKey()), e.getValue()))
+                .collect(Collectors.toList());
+
+        List<SongDTO> songs = rowsInOrder(facets.ids()).stream()
+                .map(songMapper::toDTO)
+                .collect(Collectors.toList());
+        return new SongFacetsDTO(facets.total(), songs, facets.genres(), artists);
+    }
+
+    // Past Integer.MAX_VALUE there is nothing left to skip to anyway.
+    private static int offset(int page, int size) {
+        return (int) Math.min((long) page * size, Integer.MAX_VALUE);
+    }
+
+    // The IN query does not keep the order of the ids; a song deleted meanwhile is just skipped.
+    private List<SongRow> rowsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, SongRow> songs = new HashMap<>();
+        for (SongRow song : songRepository.findRowsByIdIn(ids)) {
+            songs.put(song.id(), song);
+        }
+        return ids.stream()
+                .map(songs::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,232 @@
+package backend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An uncompressed (STORED) ZIP archive that exists only as a layout: a list of small header
+ * blocks interleaved with the audio files themselves.
+ *
+ * Nothing is assembled up front. The total length is known from the file sizes, so the archive
+ * can be served with Content-Length and any byte range of it is produced on demand: header bytes
+ * from memory, entry bodies straight from the files. Entry CRCs are supplied by the caller (they
+ * are computed at ingest) and every entry uses the same fixed timestamp, so the same playlist
+ * always yields byte-identical archives and interrupted downloads can resume with Range.
+ *
+ * ZIP64 is not supported: archives, and offsets inside them, must stay below 4 GiB.
+ */
+public final class StoredZipSource implements MediaSource {
+
+    private static final long MAX_ZIP32 = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    // 1980-01-01 00:00:00, the earliest DOS timestamp.
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int VERSION = 10;
+
+    private sealed interface Part permits Bytes, Body {
+        long length();
+
+        void transferTo(long offset, long count, WritableByteChannel target) throws IOException;
+    }
+
+    private record Bytes(byte[] data) implements Part {
+        public long length() {
+            return data.length;
+        }
+
+        public void transferTo(long offset, long count, WritableByteChannel target) throws IOException {
+            ByteBuffer buf = ByteBuffer.wrap(data, (int) offset, (int) count);
+            while (buf.hasRemaining()) {
+                target.write(buf);
+            }
+        }
+    }
+
+    private record Body(FileMediaSource file) implements Part {
+        public long length() {
+            return file.length();
+        }
+
+        public void transferTo(long offset, long count, WritableByteChannel target) throws IOException {
+            file.transferTo(offset, count, target);
+        }
+    }
+
+    private final List<Part> parts;
+    private final long[] starts;
+    private final long length;
+    private final long lastModified;
+    private final String etag;
+
+    private StoredZipSource(List<Part> parts, long lastModified, long directoryCrc) {
+        this.parts = parts;
+        this.starts = new long[parts.size()];
+        long offset = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            starts[i] = offset;
+            offset += parts.get(i).length();
+        }
+        this.length = offset;
+        this.lastModified = lastModified;
+        // The central directory lists every name, size, CRC and offset, so it identifies the layout.
+        this.etag = "\"zip-" + Long.toHexString(length) + "-" + Long.toHexString(directoryCrc) + "\"";
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String contentType() {
+        return "application/zip";
+    }
+
+    @Override
+    public String etag() {
+        return etag;
+    }
+
+    @Override
+    public Path file() {
+        return null;
+    }
+
+    @Override
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        int i = partAt(position);
+        while (position < end && i < parts.size()) {
+            Part part = parts.get(i);
+            long offset = position - starts[i];
+            long n = Math.min(part.length() - offset, end - position);
+            part.transferTo(offset, n, target);
+            position += n;
+            i++;
+        }
+    }
+
+    // Last part starting at or before position.
+    private int partAt(long position) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= position) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    public static final class Builder {
+        private final List<Part> parts = new ArrayList<>();
+        private final List<byte[]> directoryEntries = new ArrayList<>();
+        private long offset;
+        private long lastModified;
+
+        private Builder() {
+        }
+
+        /** Appends {@code file} as entry {@code name}; {@code crc32} must be the file's CRC-32. */
+        public Builder add(String name, FileMediaSource file, long crc32) {
+            if (directoryEntries.size() == MAX_ENTRIES) {
+                throw new IllegalStateException("Too many entries for a ZIP archive without ZIP64");
+            }
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            long size = file.length();
+            if (size > MAX_ZIP32 || offset > MAX_ZIP32) {
+                throw new IllegalStateException("Archive too large for ZIP without ZIP64");
+            }
+
+            ByteBuffer local = ByteBuffer.allocate(30 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            local.putInt(0x04034b50)
+                    .putShort((short) VERSION)
+                    .putShort((short) FLAG_UTF8)
+                    .putShort((short) 0)                 // STORED
+                    .putShort((short) DOS_TIME)
+                    .putShort((short) DOS_DATE)
+                    .putInt((int) crc32)
+                    .putInt((int) size)
+                    .putInt((int) size)
+                    .putShort((short) nameBytes.length)
+                    .putShort((short) 0)
+                    .put(nameBytes);
+
+            ByteBuffer central = ByteBuffer.allocate(46 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            central.putInt(0x02014b50)
+                    .putShort((short) VERSION)           // made by: MS-DOS, spec 1.0
+                    .putShort((short) VERSION)
+                    .putShort((short) FLAG_UTF8)
+                    .putShort((short) 0)
+                    .putShort((short) DOS_TIME)
+                    .putShort((short) DOS_DATE)
+                    .putInt((int) crc32)
+                    .putInt((int) size)
+                    .putInt((int) size)
+                    .putShort((short) nameBytes.length)
+                    .putShort((short) 0)                 // extra
+                    .putShort((short) 0)                 // comment
+                    .putShort((short) 0)                 // disk
+                    .putShort((short) 0)                 // internal attributes
+                    .putInt(0)                           // external attributes
+                    .putInt((int) offset)
+                    .put(nameBytes);
+
+            parts.add(new Bytes(local.array()));
+            parts.add(new Body(file));
+            directoryEntries.add(central.array());
+            offset += local.capacity() + size;
+            lastModified = Math.max(lastModified, file.lastModified());
+            return this;
+        }
+
+        public StoredZipSource build() {
+            if (offset > MAX_ZIP32) {
+                throw new IllegalStateException("Archive too large for ZIP without ZIP64");
+            }
+
+            int directorySize = 0;
+            for (byte[] entry : directoryEntries) {
+                directorySize += entry.length;
+            }
+            ByteBuffer tail = ByteBuffer.allocate(directorySize + 22).order(ByteOrder.LITTLE_ENDIAN);
+            for (byte[] entry : directoryEntries) {
+                tail.put(entry);
+            }
+            tail.putInt(0x06054b50)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) directoryEntries.size())
+                    .putShort((short) directoryEntries.size())
+                    .putInt(directorySize)
+                    .putInt((int) offset)
+                    .putShort((short) 0);
+
+            CRC32 directoryCrc = new CRC32();
+            directoryCrc.update(tail.array());
+
+            List<Part> all = new ArrayList<>(parts);
+            all.add(new Bytes(tail.array()));
+            return new StoredZipSource(List.copyOf(all), lastModified, directoryCrc.getValue());
+        }
+    }
+}
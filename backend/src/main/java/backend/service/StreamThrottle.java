@@ -0,0 +1,254 @@
+package backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control and bandwidth shaping for audio streams.
+ *
+ * At most {@code STREAM_MAX_CONCURRENT} streams run at once, and at most
+ * {@code STREAM_MAX_PER_ADDRESS} per client address. A stream over the global cap may wait up to
+ * {@code STREAM_QUEUE_TIMEOUT_MS} for a slot ({@link #admit}; container threads use
+ * {@link #tryAdmit}, which never waits); one over the per-address cap is refused straight away.
+ * Stream requests carry a signed URL rather than a login, so the address is all there is to key
+ * them by, and listeners behind one NAT share its caps and budget.
+ *
+ * Bandwidth is shaped per address rather than per response: each has a {@link Budget} of
+ * {@code STREAM_BURST_SECONDS} of audio that refills at {@code STREAM_PACE_MULTIPLIER} times the
+ * track's bitrate, shared by all of its requests, so a player fetching small Range requests
+ * one after another is held to the same rate as one long download. That is plenty for playback
+ * but stops a handful of downloads from taking all of the egress. A response the budget covers
+ * keeps sendfile; a larger one is paced as it is written. Every shaped response is metered.
+ */
+@Component
+public class StreamThrottle {
+
+    public record Stats(int activeStreams, int maxStreams, int waiting, long admitted, long rejected,
+                        long bytesSent, long bytesPerSecond) {
+    }
+
+    private final int maxStreams;
+    private final int maxPerAddress;
+    private final long queueTimeoutMs;
+    private final double paceMultiplier;
+    private final int burstSeconds;
+    private final int defaultBitrateKbps;
+    private final int retryAfterSeconds;
+
+    private final Semaphore slots;
+    private final ConcurrentHashMap<String, Integer> perAddress = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Budget> budgets = new ConcurrentHashMap<>();
+    private final AtomicLong budgetsSweptAt = new AtomicLong(System.nanoTime());
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final ThroughputMeter throughput = new ThroughputMeter();
+
+    public StreamThrottle(@Value("${STREAM_MAX_CONCURRENT:200}") int maxStreams,
+                          @Value("${STREAM_MAX_PER_ADDRESS:4}") int maxPerAddress,
+                          @Value("${STREAM_QUEUE_TIMEOUT_MS:2000}") long queueTimeoutMs,
+                          @Value("${STREAM_PACE_MULTIPLIER:2.0}") double paceMultiplier,
+                          @Value("${STREAM_BURST_SECONDS:10}") int burstSeconds,
+                          @Value("${STREAM_DEFAULT_BITRATE_KBPS:320}") int defaultBitrateKbps,
+                          @Value("${STREAM_RETRY_AFTER_SECONDS:5}") int retryAfterSeconds) {
+        this.maxStreams = maxStreams;
+        this.maxPerAddress = maxPerAddress;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.paceMultiplier = paceMultiplier;
+        this.burstSeconds = burstSeconds;
+        this.defaultBitrateKbps = defaultBitrateKbps;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.slots = new Semaphore(maxStreams, true);
+    }
+
+    /** Seconds a refused client should wait before retrying. */
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Claims a stream slot for {@code address} (see {@link ClientIdentity#address}), waiting
+     * briefly for a global slot if needed. Returns null when the stream must be refused. Callers
+     * must close the returned permit.
+     */
+    public Permit admit(String address) throws InterruptedException {
+        return admit(address, queueTimeoutMs);
+    }
+
+    /** Like {@link #admit}, but refuses rather than waits when every global slot is taken. */
+    public Permit tryAdmit(String address) throws InterruptedException {
+        return admit(address, 0);
+    }
+
+    /** Whether every global slot is taken, so {@link #tryAdmit} would refuse. */
+    public boolean saturated() {
+        return slots.availablePermits() == 0;
+    }
+
+    private Permit admit(String client, long timeoutMs) throws InterruptedException {
+        sweepBudgets();
+        if (perAddress.merge(client, 1, Integer::sum) > maxPerAddress) {
+            releaseClient(client);
+            rejected.increment();
+            return null;
+        }
+
+        boolean acquired = false;
+        waiting.incrementAndGet();
+        try {
+            // The untimed tryAcquire would barge past the fair queue.
+            acquired = slots.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            waiting.decrementAndGet();
+            if (!acquired) releaseClient(client);
+        }
+        if (!acquired) {
+            rejected.increment();
+            return null;
+        }
+        admitted.increment();
+        return new Permit(client);
+    }
+
+    public Stats stats() {
+        return new Stats(maxStreams - slots.availablePermits(), maxStreams, waiting.get(),
+                admitted.sum(), rejected.sum(), throughput.total(), throughput.perSecond());
+    }
+
+    private void releaseClient(String client) {
+        perAddress.computeIfPresent(client, (k, n) -> n > 1 ? n - 1 : null);
+    }
+
+    // A full budget is no different from a new one, so it can go; checked at most once a second.
+    private void sweepBudgets() {
+        long now = System.nanoTime();
+        long last = budgetsSweptAt.get();
+        if (now - last < 1_000_000_000L || !budgetsSweptAt.compareAndSet(last, now)) return;
+        budgets.values().removeIf(Budget::isFull);
+    }
+
+    /** A running stream. Closing it frees its global and per-address slots. */
+    public final class Permit implements AutoCloseable {
+        private final String client;
+        private boolean closed;
+
+        private Permit(String client) {
+            this.client = client;
+        }
+
+        /**
+         * Wraps {@code source} so its bytes are counted and drawn from the address's budget,
+         * sized for {@code bitrateKbps} (the configured default when unknown).
+         */
+        public MediaSource shape(MediaSource source, Integer bitrateKbps) {
+            int kbps = bitrateKbps != null && bitrateKbps > 0 ? bitrateKbps : defaultBitrateKbps;
+            long bytesPerSecond = (long) (kbps * 1000L / 8 * paceMultiplier);
+            long burstBytes = (long) kbps * 1000 / 8 * burstSeconds;
+            Budget budget = budgets.computeIfAbsent(client, k -> new Budget(bytesPerSecond, burstBytes));
+            budget.resize(bytesPerSecond, burstBytes);
+            return new PacedMediaSource(source, budget, throughput);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                slots.release();
+                releaseClient(client);
+            }
+        }
+    }
+
+    /**
+     * An address's token bucket, in bytes: holds up to one burst and refills at the pace rate of
+     * the track it streamed last.
+     */
+    static final class Budget {
+        private long bytesPerSecond;
+        private long capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Budget(long bytesPerSecond, long capacity) {
+            this.bytesPerSecond = Math.max(1, bytesPerSecond);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        synchronized void resize(long bytesPerSecond, long capacity) {
+            refill();
+            this.bytesPerSecond = Math.max(1, bytesPerSecond);
+            this.capacity = capacity;
+            tokens = Math.min(tokens, capacity);
+        }
+
+        /** Takes {@code n} bytes if the budget has them now; otherwise takes nothing. */
+        synchronized boolean tryTake(long n) {
+            refill();
+            if (tokens < n) return false;
+            tokens -= n;
+            return true;
+        }
+
+        /** Takes {@code n} bytes, running into debt if need be; returns the nanos until it is paid off. */
+        synchronized long take(long n) {
+            refill();
+            tokens -= n;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1_000_000_000L / bytesPerSecond);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * (double) bytesPerSecond / 1_000_000_000L);
+            refilledAt = now;
+        }
+    }
+
+    /** Bytes sent, in one-second buckets over a short sliding window. */
+    static final class ThroughputMeter {
+        private static final int WINDOW = 8;
+
+        private final LongAdder total = new LongAdder();
+        private final AtomicLongArray seconds = new AtomicLongArray(WINDOW);
+        private final AtomicLongArray bytes = new AtomicLongArray(WINDOW);
+
+        void record(long n) {
+            total.add(n);
+            long now = System.currentTimeMillis() / 1000;
+            int slot = (int) (now % WINDOW);
+            long stamp = seconds.get(slot);
+            if (stamp != now && seconds.compareAndSet(slot, stamp, now)) {
+                bytes.set(slot, 0);
+            }
+            bytes.addAndGet(slot, n);
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        /** Average over the last few complete seconds. */
+        long perSecond() {
+            long now = System.currentTimeMillis() / 1000;
+            long sum = 0;
+            for (int i = 1; i < WINDOW; i++) {
+                int slot = (int) ((now - i) % WINDOW);
+                if (seconds.get(slot) == now - i) sum += bytes.get(slot);
+            }
+            return sum / (WINDOW - 1);
+        }
+    }
+}
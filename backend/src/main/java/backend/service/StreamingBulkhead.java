@@ -0,0 +1,217 @@
+package backend.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.ClientAbortException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps long media responses from tying up Tomcat's worker pool.
+ *
+ * When the connector supports sendfile and a permit is free, the task runs on the container
+ * thread: a file-backed body is handed to sendfile, so Tomcat's poller moves the bytes and no
+ * thread waits on the listener. When MediaStreamer would have to copy the body itself, the task
+ * is {@linkplain #defer deferred} and run again on a virtual thread, as it is straight away when
+ * sendfile is unavailable or every permit is taken. So a crowd of listeners holds virtual threads,
+ * or no thread at all, instead of the platform workers that serve the JSON API.
+ *
+ * At most {@code STREAMING_MAX_CONCURRENT} tasks run at once; up to {@code STREAMING_MAX_QUEUED}
+ * more wait for a permit, and anything beyond that gets a 503. An async response still running
+ * after {@code STREAMING_ASYNC_TIMEOUT_MS} is completed by the container, which makes the stuck
+ * writer fail and give its permit back.
+ */
+@Component
+public class StreamingBulkhead {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingBulkhead.class);
+
+    // Marks a request whose task is running on the container thread; see defer().
+    private static final String INLINE_ATTR = StreamingBulkhead.class.getName() + ".inline";
+    private static final Object DEFERRED = new Object();
+
+    /** The response-writing part of a handler, run once the bulkhead has admitted the request. */
+    @FunctionalInterface
+    public interface StreamTask {
+        void run() throws Exception;
+    }
+
+    public record Stats(int active, int maxConcurrent, int queued, int maxQueued,
+                        long completed, long rejected, long failed) {
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long asyncTimeoutMs;
+    private final int retryAfterSeconds;
+
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("media-", 0).factory());
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public StreamingBulkhead(@Value("${STREAMING_MAX_CONCURRENT:256}") int maxConcurrent,
+                             @Value("${STREAMING_MAX_QUEUED:512}") int maxQueued,
+                             @Value("${STREAMING_ASYNC_TIMEOUT_MS:3600000}") long asyncTimeoutMs,
+                             @Value("${STREAM_RETRY_AFTER_SECONDS:5}") int retryAfterSeconds) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.asyncTimeoutMs = asyncTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Runs {@code task} once admitted, either right here or on a virtual thread. Anything the task
+     * needs from the security context (e.g. {@link ClientIdentity}) must be read before calling this.
+     */
+    public void execute(HttpServletRequest request, HttpServletResponse response, StreamTask task) throws IOException {
+        if (pending.incrementAndGet() > maxConcurrent + maxQueued) {
+            pending.decrementAndGet();
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(MediaStreamer.SENDFILE_SUPPORTED_ATTR)) && permits.tryAcquire()) {
+            runInline(request, response, task);
+        } else {
+            runAsync(request, response, task);
+        }
+    }
+
+    /**
+     * Asked by MediaStreamer before it copies a body itself, and by handlers before anything else
+     * that blocks for long (e.g. fetching a file from storage). True for a task execute() is running
+     * on the container thread: the caller must return without writing, and the task is run again
+     * from the start on a virtual thread, so whatever it holds (throttle permits, mapped files)
+     * lives as long as the copy.
+     */
+    public boolean defer(HttpServletRequest request) {
+        if (request.getAttribute(INLINE_ATTR) == null) {
+            return false;
+        }
+        request.setAttribute(INLINE_ATTR, DEFERRED);
+        return true;
+    }
+
+    private void runInline(HttpServletRequest request, HttpServletResponse response, StreamTask task) {
+        request.setAttribute(INLINE_ATTR, Boolean.TRUE);
+        boolean deferred = false;
+        active.incrementAndGet();
+        try {
+            task.run();
+            deferred = request.getAttribute(INLINE_ATTR) == DEFERRED;
+            if (!deferred) {
+                completed.increment();
+            }
+        } catch (ClientAbortException e) {
+            completed.increment();
+        } catch (Exception e) {
+            fail(request, response, e);
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+            request.removeAttribute(INLINE_ATTR);
+        }
+        if (deferred) {
+            runAsync(request, response, task); // still counted in pending
+        } else {
+            pending.decrementAndGet();
+        }
+    }
+
+    private void runAsync(HttpServletRequest request, HttpServletResponse response, StreamTask task) {
+        AsyncContext async = request.startAsync(request, response);
+        AtomicBoolean done = new AtomicBoolean();
+        async.setTimeout(asyncTimeoutMs);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (done.compareAndSet(false, true)) {
+                    log.warn("Media response for {} timed out after {} ms", request.getRequestURI(), asyncTimeoutMs);
+                    event.getAsyncContext().complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+                active.incrementAndGet();
+                try {
+                    task.run();
+                    completed.increment();
+                } finally {
+                    active.decrementAndGet();
+                    permits.release();
+                }
+            } catch (ClientAbortException e) {
+                // Listener skipped or closed the tab.
+                completed.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.increment();
+            } catch (Exception e) {
+                // Also where a writer ends up after the timeout completed its response.
+                fail(request, response, e);
+            } finally {
+                pending.decrementAndGet();
+                if (done.compareAndSet(false, true)) {
+                    async.complete();
+                }
+            }
+        });
+    }
+
+    private void fail(HttpServletRequest request, HttpServletResponse response, Exception e) {
+        failed.increment();
+        log.warn("Media response for {} failed: {}", request.getRequestURI(), e.toString());
+        if (!response.isCommitted()) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    public Stats stats() {
+        int running = active.get();
+        return new Stats(running, maxConcurrent, Math.max(0, pending.get() - running), maxQueued,
+                completed.sum(), rejected.sum(), failed.sum());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
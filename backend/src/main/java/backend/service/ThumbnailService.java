@@ -0,0 +1,293 @@
+package backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Downscaled variants of cover images, so list rows and cards do not download full-size uploads.
+ *
+ * Variants exist for a fixed set of widths ({@link #SIZES}) and live next to the original as
+ * {@code <file>.w<size>.jpg} (or {@code .png} when the image has transparency). They are written
+ * by the upload pipeline and otherwise generated on first request; decoding is memory and CPU
+ * heavy, so at most {@code THUMBNAIL_CONCURRENCY} images are scaled at once. Images are decoded
+ * subsampled to about twice the variant, and never when their header declares more than
+ * {@code THUMBNAIL_MAX_PIXELS} pixels: a small upload can claim enormous dimensions.
+ */
+@Component
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final int[] SIZES = {64, 300, 640};
+    private static final float JPEG_QUALITY = 0.85f;
+
+    public record Thumbnail(Path path, String contentType) {
+    }
+
+    private final Semaphore permits;
+    private final long maxPixels;
+    // One generation per variant; concurrent requests for it wait for the same result.
+    private final Map<Path, CompletableFuture<Thumbnail>> inFlight = new ConcurrentHashMap<>();
+
+    public ThumbnailService(@Value("${THUMBNAIL_CONCURRENCY:2}") int concurrency,
+                            @Value("${THUMBNAIL_MAX_PIXELS:40000000}") long maxPixels) {
+        this.permits = new Semaphore(Math.max(1, concurrency));
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * The variant of {@code original} for a display width of {@code requested} pixels, generating
+     * it when missing. Returns null when the original should be served instead: it is no larger
+     * than the variant, the requested width is above the largest variant, or it cannot be decoded.
+     */
+    public Thumbnail variant(Path original, int requested) throws IOException {
+        int size = pickSize(requested);
+        if (size < 0) return null;
+
+        Thumbnail existing = existing(original, size);
+        if (existing != null) return existing;
+
+        Path key = variantPath(original, size, "jpg");
+        CompletableFuture<Thumbnail> mine = new CompletableFuture<>();
+        CompletableFuture<Thumbnail> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            Thumbnail generated = generate(original, size);
+            mine.complete(generated);
+            return generated;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * The variant {@link #variant} would return if it has been generated already, else null
+     * (also when the original would be served instead). Never decodes anything.
+     */
+    public Thumbnail existingVariant(Path original, int requested) throws IOException {
+        int size = pickSize(requested);
+        return size < 0 ? null : existing(original, size);
+    }
+
+    /**
+     * Decodes {@code image} for display at most {@code size} pixels wide: subsampled to about twice
+     * that, which is all the scaling steps use. Returns null when no ImageIO reader understands it
+     * or its header declares more than {@code THUMBNAIL_MAX_PIXELS} pixels.
+     */
+    public BufferedImage read(Path image, int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Not decoding {}: {}x{} is more than {} pixels", image, width, height, maxPixels);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (size * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Writes every variant of a freshly uploaded image; failures are left for lazy generation. */
+    public void pregenerate(Path original) throws IOException {
+        for (int size : SIZES) {
+            variant(original, size);
+        }
+    }
+
+    /** Removes the variants stored next to {@code original}. */
+    public static void deleteVariants(Path original) {
+        for (int size : SIZES) {
+            for (String ext : new String[]{"jpg", "png"}) {
+                try {
+                    Files.deleteIfExists(variantPath(original, size, ext));
+                } catch (IOException e) {
+                    log.warn("Could not delete thumbnail of {}: {}", original, e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * MIME type of an image judged by its bytes rather than by what the client claimed, or null
+     * when no ImageIO reader recognises it.
+     */
+    public static String detectContentType(Path image) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            String[] mimeTypes = readers.next().getOriginatingProvider().getMIMETypes();
+            return mimeTypes != null && mimeTypes.length > 0 ? mimeTypes[0] : null;
+        }
+    }
+
+    // Smallest variant at least as wide as requested, or -1 when only the original will do.
+    private static int pickSize(int requested) {
+        for (int size : SIZES) {
+            if (requested <= size) return size;
+        }
+        return -1;
+    }
+
+    private static Path variantPath(Path original, int size, String ext) {
+        return original.resolveSibling(original.getFileName() + ".w" + size + "." + ext);
+    }
+
+    private static Thumbnail existing(Path original, int size) throws IOException {
+        long originalModified = Files.getLastModifiedTime(original).toMillis();
+        for (String ext : new String[]{"jpg", "png"}) {
+            Path path = variantPath(original, size, ext);
+            try {
+                if (Files.getLastModifiedTime(path).toMillis() >= originalModified) {
+                    return new Thumbnail(path, "jpg".equals(ext) ? "image/jpeg" : "image/png");
+                }
+            } catch (NoSuchFileException ignored) {
+            }
+        }
+        return null;
+    }
+
+    private Thumbnail generate(Path original, int size) throws IOException {
+        int[] dimensions = dimensions(original);
+        if (dimensions == null || Math.max(dimensions[0], dimensions[1]) <= size) {
+            return null;
+        }
+
+        permits.acquireUninterruptibly();
+        try {
+            // Another request may have finished it while this one waited.
+            Thumbnail existing = existing(original, size);
+            if (existing != null) return existing;
+
+            BufferedImage source = read(original, size);
+            if (source == null) return null;
+
+            boolean alpha = source.getColorModel().hasAlpha();
+            BufferedImage scaled = scale(source, size, alpha);
+            String ext = alpha ? "png" : "jpg";
+            Path target = variantPath(original, size, ext);
+            Path tmp = Files.createTempFile(target.getParent(), ".thumb-", ".tmp");
+            try {
+                if (alpha) {
+                    ImageIO.write(scaled, "png", tmp.toFile());
+                } else {
+                    writeJpeg(scaled, tmp);
+                }
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return new Thumbnail(target, alpha ? "image/png" : "image/jpeg");
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Reads only the header; null when no ImageIO reader understands the file.
+    private static int[] dimensions(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits the image in a size x size box. Large reductions are done in halving steps, since a
+     * single bilinear pass from e.g. 3000px to 64px skips most source pixels and aliases badly.
+     */
+    private static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        double ratio = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static Thumbnail await(CompletableFuture<Thumbnail> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package backend.service;
+
+import backend.dto.ArtistDTO;
+import backend.repository.DBArtistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Artists ordered by follower count for {@code GET /artists/top}.
+ *
+ * Every artist sits in a tree ordered by follows (most first, then id), so the top {@code n}
+ * are the first {@code n} entries and a follow or unfollow only moves one entry. Ranking counts
+ * rows of the follow table; the DTOs carry the {@code artists.followers} column like every other
+ * artist response, so seeded or imported counts show the same number everywhere. Seeded at startup
+ * from one grouped count over the follow table; ArtistService reports follows, creations, renames
+ * and deletions once they are committed.
+ *
+ * Artists created on a first upload or by CatalogImporter (no followers yet) and manual edits to
+ * the database are not seen, so the counts are recomputed every {@code TOP_ARTISTS_RECONCILE_MS}
+ * and the whole ranking is replaced.
+ */
+@Component
+public class TopArtistsRanking {
+
+    private static final Logger log = LoggerFactory.getLogger(TopArtistsRanking.class);
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::follows).reversed()
+            .thenComparingLong(Entry::id);
+
+    // follows: rows in the follow table (the rank); followers: the artists.followers column (shown).
+    private record Entry(long id, String name, String imageUrl, long follows, long followers) {
+        ArtistDTO toDto() {
+            return new ArtistDTO(id, name, followers, imageUrl);
+        }
+    }
+
+    private final DBArtistRepository artistRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private volatile boolean built;
+
+    public TopArtistsRanking(DBArtistRepository artistRepository) {
+        this.artistRepository = artistRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${TOP_ARTISTS_RECONCILE_MS:600000}",
+            initialDelayString = "${TOP_ARTISTS_RECONCILE_MS:600000}")
+    public void reconcile() {
+        long started = System.nanoTime();
+        List<Entry> entries;
+        try {
+            entries = artistRepository.findFollowerCounts(Limit.unlimited()).stream()
+                    .map(TopArtistsRanking::entry)
+                    .toList();
+        } catch (RuntimeException e) {
+            // Keep answering from the current ranking.
+            log.warn("Could not reconcile the top artists: {}", e.toString());
+            return;
+        }
+
+        int drifted = 0;
+        lock.writeLock().lock();
+        try {
+            for (Entry entry : entries) {
+                Entry current = byId.get(entry.id());
+                if (current != null && current.follows() != entry.follows()) drifted++;
+            }
+            ranking.clear();
+            byId.clear();
+            for (Entry entry : entries) {
+                ranking.add(entry);
+                byId.put(entry.id(), entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (built && drifted > 0) {
+            log.info("Corrected the follower counts of {} artists", drifted);
+        }
+        built = true;
+        log.debug("Ranked {} artists in {} ms", entries.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** The {@code limit} most followed artists, most first; from the database until the first build. */
+    public List<ArtistDTO> top(int limit) {
+        if (!built) {
+            return artistRepository.findFollowerCounts(Limit.of(limit)).stream()
+                    .map(row -> entry(row).toDto())
+                    .toList();
+        }
+        lock.readLock().lock();
+        try {
+            List<ArtistDTO> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            Iterator<Entry> it = ranking.iterator();
+            while (it.hasNext() && top.size() < limit) {
+                top.add(it.next().toDto());
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Adds a new artist, or takes over a changed name, image or followers column. */
+    public void put(Long artistId, String name, String imageUrl, Long followers) {
+        lock.writeLock().lock();
+        try {
+            Entry current = byId.get(artistId);
+            replace(current, new Entry(artistId, name, imageUrl, current != null ? current.follows() : 0,
+                    followers != null ? followers : 0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Moves the artist up or down after a follow ({@code +1}) or unfollow ({@code -1}). */
+    public void adjust(Long artistId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry current = byId.get(artistId);
+            if (current == null) return; // unknown until the next reconciliation
+            replace(current, new Entry(artistId, current.name(), current.imageUrl(),
+                    Math.max(0, current.follows() + delta), Math.max(0, current.followers() + delta)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long artistId) {
+        lock.writeLock().lock();
+        try {
+            Entry current = byId.remove(artistId);
+            if (current != null) ranking.remove(current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Entries are immutable, so a change is a remove and re-add at the new position.
+    private void replace(Entry current, Entry updated) {
+        if (current != null) ranking.remove(current);
+        ranking.add(updated);
+        byId.put(updated.id(), updated);
+    }
+
+    private static Entry entry(Object[] row) {
+        long followers = row[3] != null ? ((Number) row[3]).longValue() : 0;
+        return new Entry(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                ((Number) row[4]).longValue(), followers);
+    }
+}
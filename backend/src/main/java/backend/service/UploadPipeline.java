@@ -0,0 +1,337 @@
+package backend.service;
+
+import backend.dto.SongDTO;
+import backend.dto.UploadJobDTO;
+import backend.model.Artist;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Background processing of uploaded songs.
+ *
+ * The request only stages the files and gets a job id back. The job then stores the audio and
+ * the cover in the blob store in parallel, indexes the MP3 and packages it for HLS once the audio
+ * is stored, writes the cover's thumbnails once the cover is stored, and finally inserts the song
+ * row, so a song becomes visible only when it is fully processed. Each stage is retried with
+ * backoff; storage and publishing must succeed, while indexing, packaging and thumbnails may give
+ * up (the backfill and lazy generation cover for them later).
+ *
+ * At most {@code UPLOAD_PIPELINE_MAX_JOBS} jobs are in flight; more uploads are refused.
+ */
+@Service
+public class UploadPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadPipeline.class);
+    private static final long FINISHED_JOB_TTL_MS = 60 * 60 * 1000;
+
+    enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    /** A file waiting in the staging directory. {@code sha256} is null when not hashed yet. */
+    public record StagedFile(Path path, String sha256, long size, String filename, String contentType) {
+    }
+
+    public record UploadRequest(String owner, String name, String genre, Artist artist,
+                                StagedFile audio, StagedFile image) {
+    }
+
+    public static class JobNotFoundException extends RuntimeException {
+        public JobNotFoundException(String id) {
+            super("Upload job not found with id: " + id);
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final boolean required;
+        volatile Status status = Status.QUEUED;
+        volatile int attempts;
+        volatile String error;
+
+        Stage(String name, boolean required) {
+            this.name = name;
+            this.required = required;
+        }
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String owner;
+        final Map<String, Stage> stages = new ConcurrentHashMap<>();
+        final List<String> order = new ArrayList<>();
+        volatile Status status = Status.QUEUED;
+        volatile SongDTO song;
+        volatile String error;
+        volatile long finishedAt;
+
+        Job(String owner) {
+            this.owner = owner;
+        }
+
+        Stage add(String name, boolean required) {
+            Stage stage = new Stage(name, required);
+            stages.put(name, stage);
+            order.add(name);
+            return stage;
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageTask<T> {
+        T run() throws Exception;
+    }
+
+    private final SongService songService;
+    private final BlobStore blobStore;
+    private final MediaLocator mediaLocator;
+    private final Mp3Indexer mp3Indexer;
+    private final HlsPackager hlsPackager;
+    private final ThumbnailService thumbnailService;
+
+    private final Path stagingDir;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public UploadPipeline(SongService songService,
+                          BlobStore blobStore,
+                          MediaLocator mediaLocator,
+                          Mp3Indexer mp3Indexer,
+                          HlsPackager hlsPackager,
+                          ThumbnailService thumbnailService,
+                          @Value("${UPLOAD_STAGING_DIR:uploads/staging}") String stagingDir,
+                          @Value("${UPLOAD_PIPELINE_THREADS:4}") int threads,
+                          @Value("${UPLOAD_PIPELINE_MAX_JOBS:32}") int maxJobs,
+                          @Value("${UPLOAD_STAGE_ATTEMPTS:3}") int maxAttempts,
+                          @Value("${UPLOAD_STAGE_BACKOFF_MS:500}") long retryBackoffMs) throws IOException {
+        this.songService = songService;
+        this.blobStore = blobStore;
+        this.mediaLocator = mediaLocator;
+        this.mp3Indexer = mp3Indexer;
+        this.hlsPackager = hlsPackager;
+        this.thumbnailService = thumbnailService;
+        this.stagingDir = Paths.get(stagingDir).toAbsolutePath();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.inFlight = new Semaphore(maxJobs);
+        // Tasks are bounded by the job limit (a handful of stages per job), so the queue can be too.
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads),
+                Thread.ofPlatform().daemon().name("upload-pipeline-", 0).factory());
+        Files.createDirectories(this.stagingDir);
+    }
+
+    /**
+     * Moves a multipart upload into the staging directory. Tomcat keeps parts in temp files, so
+     * this is normally a rename rather than a copy.
+     */
+    public StagedFile stage(MultipartFile file) throws IOException {
+        Path target = Files.createTempFile(stagingDir, "staged-", ".upload");
+        // transferTo(File) lets the part rename its temp file; transferTo(Path) always copies.
+        file.transferTo(target.toFile());
+        return new StagedFile(target, null, Files.size(target), file.getOriginalFilename(), file.getContentType());
+    }
+
+    /**
+     * Starts processing an upload. Throws {@link RejectedExecutionException} (after discarding the
+     * staged files) when too many uploads are already being processed.
+     */
+    public UploadJobDTO submit(UploadRequest request) {
+        expireFinishedJobs();
+        if (!inFlight.tryAcquire()) {
+            discard(request.audio());
+            discard(request.image());
+            throw new RejectedExecutionException("Too many uploads in progress");
+        }
+
+        Job job = new Job(request.owner());
+        Stage storeAudio = job.add("store-audio", true);
+        Stage storeImage = job.add("store-image", true);
+        Stage indexAudio = job.add("index-audio", false);
+        Stage packageHls = job.add("package-hls", false);
+        Stage thumbnails = job.add("thumbnails", false);
+        Stage publish = job.add("publish", true);
+        jobs.put(job.id, job);
+        job.status = Status.RUNNING;
+
+        CompletableFuture<String> audio = run(job, storeAudio, () -> store(request.audio(), "audio/mpeg") + ".mp3");
+        CompletableFuture<String> image = run(job, storeImage,
+                () -> store(request.image(), imageContentType(request.image())) + imageExtension(request.image().filename()));
+        CompletableFuture<Mp3Indexer.Mp3Info> info = audio.thenCompose(audioFileName -> run(job, indexAudio,
+                () -> mp3Indexer.index(mediaLocator.resolveAudio(audioFileName))));
+        CompletableFuture<Void> hls = audio.thenCompose(audioFileName -> run(job, packageHls, () -> {
+            hlsPackager.ensurePackaged(audioFileName);
+            return null;
+        }));
+
+        CompletableFuture<Void> thumbs = image.thenCompose(imageFileName -> run(job, thumbnails, () -> {
+            thumbnailService.pregenerate(mediaLocator.resolveImage(imageFileName));
+            return null;
+        }));
+
+        CompletableFuture.allOf(audio, image, info, hls, thumbs)
+                // Keyed by the job, so a retry after a row was saved returns that row instead of a duplicate.
+                .thenCompose(ignored -> run(job, publish, () -> songService.insertSong(request.name(), request.genre(),
+                        request.artist(), audio.join(), image.join(), info.join(), "upload:" + job.id)))
+                .whenComplete((song, failure) -> {
+                    try {
+                        if (failure == null) {
+                            job.song = song;
+                            job.status = Status.SUCCEEDED;
+                        } else {
+                            job.error = rootMessage(failure);
+                            job.status = Status.FAILED;
+                            log.warn("Upload job {} failed: {}", job.id, job.error);
+                            releaseStored(audio, image);
+                        }
+                    } finally {
+                        discard(request.audio());
+                        discard(request.image());
+                        job.finishedAt = System.currentTimeMillis();
+                        inFlight.release();
+                    }
+                });
+
+        return toDTO(job);
+    }
+
+    public UploadJobDTO get(String id, String owner) {
+        Job job = jobs.get(id);
+        if (job == null || !job.owner.equals(owner)) {
+            throw new JobNotFoundException(id);
+        }
+        return toDTO(job);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Runs one stage on the pipeline's pool, retrying with linear backoff. */
+    private <T> CompletableFuture<T> run(Job job, Stage stage, StageTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            stage.status = Status.RUNNING;
+            while (true) {
+                stage.attempts++;
+                try {
+                    T result = task.run();
+                    stage.status = Status.SUCCEEDED;
+                    return result;
+                } catch (Exception e) {
+                    stage.error = e.toString();
+                    if (stage.attempts >= maxAttempts) {
+                        stage.status = Status.FAILED;
+                        if (stage.required) {
+                            throw new CompletionException(stage.name + " failed: " + e.getMessage(), e);
+                        }
+                        log.warn("Upload job {}: optional stage {} gave up: {}", job.id, stage.name, e.toString());
+                        return null;
+                    }
+                    try {
+                        Thread.sleep(retryBackoffMs * stage.attempts);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        stage.status = Status.FAILED;
+                        throw new CompletionException(interrupted);
+                    }
+                }
+            }
+        }, executor);
+    }
+
+    private String store(StagedFile file, String contentType) throws IOException {
+        if (file.sha256() != null) {
+            blobStore.adopt(file.path(), file.sha256(), file.size(), contentType);
+            Files.deleteIfExists(file.path());
+            return file.sha256();
+        }
+        return blobStore.putFile(file.path(), contentType).sha256();
+    }
+
+    // Gives back the blob references of a job that will never be published.
+    private void releaseStored(CompletableFuture<String> audio, CompletableFuture<String> image) {
+        if (audio.isDone() && !audio.isCompletedExceptionally()) {
+            String audioFileName = audio.join();
+            if (blobStore.release(BlobStore.keyOf(audioFileName))) {
+                hlsPackager.delete(audioFileName);
+            }
+        }
+        if (image.isDone() && !image.isCompletedExceptionally()) {
+            blobStore.release(BlobStore.keyOf(image.join()));
+        }
+    }
+
+    private void expireFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - FINISHED_JOB_TTL_MS;
+        jobs.values().removeIf(job -> job.finishedAt != 0 && job.finishedAt < cutoff);
+    }
+
+    private static void discard(StagedFile file) {
+        try {
+            Files.deleteIfExists(file.path());
+        } catch (IOException e) {
+            log.warn("Could not delete staged upload {}: {}", file.path(), e.toString());
+        }
+    }
+
+    // Recorded with the blob and served as-is, so it must not be whatever the client claimed.
+    private static String imageContentType(StagedFile image) throws IOException {
+        String detected = ThumbnailService.detectContentType(image.path());
+        if (detected != null) return detected;
+        return MediaTypeFactory.getMediaType(image.filename())
+                .map(MediaType::toString)
+                .filter(type -> type.startsWith("image/"))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    // The extension only serves to pick the Content-Type when the image is served.
+    private static String imageExtension(String originalFilename) {
+        if (originalFilename == null) return "";
+        int dot = originalFilename.lastIndexOf('.');
+        String ext = dot >= 0 ? originalFilename.substring(dot).toLowerCase() : "";
+        return ext.matches("\\.[a-z0-9]{1,8}") ? ext : "";
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    private static UploadJobDTO toDTO(Job job) {
+        List<UploadJobDTO.Stage> stages = new ArrayList<>(job.order.size());
+        int finished = 0;
+        for (String name : job.order) {
+            Stage stage = job.stages.get(name);
+            if (stage.status == Status.SUCCEEDED || stage.status == Status.FAILED) finished++;
+            stages.add(new UploadJobDTO.Stage(stage.name, stage.status.name(), stage.attempts, stage.error));
+        }
+        int progress = job.order.isEmpty() ? 100 : finished * 100 / job.order.size();
+        return new UploadJobDTO(job.id, job.status.name(), progress, stages, job.song, job.error);
+    }
+}
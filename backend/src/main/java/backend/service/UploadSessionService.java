@@ -0,0 +1,331 @@
+package backend.service;
+
+import backend.dto.UploadSessionDTO;
+import backend.dto.UploadSessionRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable uploads: a client opens a session for a file of known size, sends it as a series of
+ * checksummed chunks at increasing offsets, and can ask for the current offset after a dropped
+ * connection to continue from there.
+ *
+ * A chunk is received into its own temp file first, with nothing locked, so a slow client only
+ * holds up itself. Once its checksum matches, it is copied into a file preallocated to the final
+ * size under the session's lock. The whole-file SHA-256 is built up as chunks are accepted, which
+ * lets a finished upload move into the {@link BlobStore} without being read again.
+ *
+ * Sessions live in memory next to their part files, which are instance-local anyway, and expire
+ * after {@code UPLOAD_SESSION_TTL_MINUTES} without activity. Part files left by a previous run
+ * belong to sessions nobody can reach any more and are deleted at startup.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+    private static final int BUFFER = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+
+    /** A completed upload, ready to be adopted by the blob store. */
+    public record UploadedFile(Path path, String sha256, long size, String filename, String contentType) {
+    }
+
+    public static class SessionNotFoundException extends RuntimeException {
+        public SessionNotFoundException(String id) {
+            super("Upload session not found with id: " + id);
+        }
+    }
+
+    /** The chunk does not start at the session's current offset. */
+    public static class OffsetMismatchException extends RuntimeException {
+        private final long expectedOffset;
+
+        public OffsetMismatchException(long expectedOffset) {
+            super("Chunk must start at offset " + expectedOffset);
+            this.expectedOffset = expectedOffset;
+        }
+
+        public long getExpectedOffset() {
+            return expectedOffset;
+        }
+    }
+
+    /** The chunk's bytes do not match the checksum the client sent; nothing was accepted. */
+    public static class ChecksumMismatchException extends RuntimeException {
+        public ChecksumMismatchException() {
+            super("Chunk checksum mismatch");
+        }
+    }
+
+    private static final class Session {
+        final String id;
+        final String owner;
+        final String filename;
+        final String contentType;
+        final long size;
+        final Path part;
+        MessageDigest digest;
+        long offset;
+        long touchedAt = System.currentTimeMillis();
+        // Set once the part file has been handed over or deleted; the session must not be used after.
+        boolean ended;
+
+        Session(String id, String owner, String filename, String contentType, long size, Path part) {
+            this.id = id;
+            this.owner = owner;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.size = size;
+            this.part = part;
+            this.digest = sha256();
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Path sessionDir;
+    private final long maxUploadBytes;
+    private final long maxChunkBytes;
+    private final long ttlMillis;
+
+    public UploadSessionService(@Value("${UPLOAD_SESSION_DIR:uploads/sessions}") String sessionDir,
+                                @Value("${UPLOAD_MAX_BYTES:1073741824}") long maxUploadBytes,
+                                @Value("${UPLOAD_MAX_CHUNK_BYTES:16777216}") long maxChunkBytes,
+                                @Value("${UPLOAD_SESSION_TTL_MINUTES:1440}") long ttlMinutes) throws IOException {
+        this.sessionDir = Paths.get(sessionDir).toAbsolutePath();
+        this.maxUploadBytes = maxUploadBytes;
+        this.maxChunkBytes = maxChunkBytes;
+        this.ttlMillis = ttlMinutes * 60_000;
+        Files.createDirectories(this.sessionDir);
+        deleteOrphans();
+    }
+
+    public UploadSessionDTO create(UploadSessionRequest request, String owner) throws IOException {
+        if (request.size() == null || request.size() <= 0 || request.size() > maxUploadBytes) {
+            throw new IllegalArgumentException("Upload size must be between 1 and " + maxUploadBytes + " bytes");
+        }
+        expireIdleSessions();
+
+        String id = UUID.randomUUID().toString();
+        Path part = sessionDir.resolve(id + PART_SUFFIX);
+        // Reserve the full size up front so appends never have to grow the file.
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            file.setLength(request.size());
+        }
+
+        Session session = new Session(id, owner, request.filename(), request.contentType(), request.size(), part);
+        sessions.put(id, session);
+        return toDTO(session);
+    }
+
+    public UploadSessionDTO get(String id, String owner) {
+        Session session = find(id, owner);
+        synchronized (session) {
+            return toDTO(session);
+        }
+    }
+
+    /**
+     * Writes one chunk at {@code offset}. {@code sha256Hex} is the checksum of the chunk; when it
+     * does not match, the session offset stays where it was and the client resends the chunk.
+     */
+    public UploadSessionDTO appendChunk(String id, String owner, long offset, long length, String sha256Hex,
+                                        InputStream body) throws IOException {
+        Session session = find(id, owner);
+        if (sha256Hex == null || !SHA256_HEX.matcher(sha256Hex.trim()).matches()) {
+            throw new IllegalArgumentException("Chunk checksum must be 64 hex characters");
+        }
+        if (length <= 0 || length > maxChunkBytes) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + maxChunkBytes + " bytes");
+        }
+
+        // The file digest only moves when the offset does, so this copy stays valid as long as
+        // the offset still matches when the chunk is committed.
+        MessageDigest fileDigest;
+        synchronized (session) {
+            checkOffset(session, offset, length);
+            fileDigest = clone(session.digest);
+        }
+
+        Path chunk = Files.createTempFile(sessionDir, id + "-", CHUNK_SUFFIX);
+        try {
+            MessageDigest chunkDigest = sha256();
+            long received = 0;
+            try (FileChannel channel = FileChannel.open(chunk, StandardOpenOption.WRITE)) {
+                byte[] buf = new byte[BUFFER];
+                int n;
+                while (received < length && (n = body.read(buf, 0, (int) Math.min(BUFFER, length - received))) > 0) {
+                    ByteBuffer bytes = ByteBuffer.wrap(buf, 0, n);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    chunkDigest.update(buf, 0, n);
+                    fileDigest.update(buf, 0, n);
+                    received += n;
+                }
+            }
+            if (received != length
+                    || !MessageDigest.isEqual(chunkDigest.digest(), HexFormat.of().parseHex(sha256Hex.trim().toLowerCase()))) {
+                synchronized (session) {
+                    session.touchedAt = System.currentTimeMillis();
+                }
+                throw new ChecksumMismatchException();
+            }
+
+            synchronized (session) {
+                // Another request may have sent the same chunk meanwhile.
+                checkOffset(session, offset, length);
+                try (FileChannel source = FileChannel.open(chunk, StandardOpenOption.READ);
+                     FileChannel target = FileChannel.open(session.part, StandardOpenOption.WRITE)) {
+                    long copied = 0;
+                    while (copied < length) {
+                        copied += source.transferTo(copied, length - copied, target.position(offset + copied));
+                    }
+                }
+                session.touchedAt = System.currentTimeMillis();
+                session.digest = fileDigest;
+                session.offset += length;
+                return toDTO(session);
+            }
+        } finally {
+            Files.deleteIfExists(chunk);
+        }
+    }
+
+    private static void checkOffset(Session session, long offset, long length) {
+        checkLive(session);
+        if (offset != session.offset) {
+            throw new OffsetMismatchException(session.offset);
+        }
+        if (offset + length > session.size) {
+            throw new IllegalArgumentException("Chunk runs past the declared upload size");
+        }
+    }
+
+    /**
+     * Ends a complete upload and hands over its file. The session is gone afterwards; the caller
+     * owns the returned file (normally by adopting it into the blob store).
+     */
+    public UploadedFile complete(String id, String owner) {
+        Session session = find(id, owner);
+        synchronized (session) {
+            checkLive(session);
+            if (session.offset != session.size) {
+                throw new IllegalStateException("Upload incomplete: " + session.offset + " of " + session.size + " bytes");
+            }
+            sessions.remove(id);
+            session.ended = true;
+            return new UploadedFile(session.part, HexFormat.of().formatHex(session.digest.digest()),
+                    session.size, session.filename, session.contentType);
+        }
+    }
+
+    /** Deletes a file {@link #complete} handed over that the caller is not going to use after all. */
+    public void discard(UploadedFile file) {
+        try {
+            Files.deleteIfExists(file.path());
+        } catch (IOException e) {
+            log.warn("Could not delete upload part {}: {}", file.path(), e.toString());
+        }
+    }
+
+    public void cancel(String id, String owner) {
+        Session session = find(id, owner);
+        // Under the session, so a chunk being written or a complete() cannot see the part go away.
+        synchronized (session) {
+            checkLive(session);
+            sessions.remove(id);
+            end(session);
+        }
+    }
+
+    // Another request may have ended the session between find() and taking its monitor.
+    private static void checkLive(Session session) {
+        if (session.ended) {
+            throw new SessionNotFoundException(session.id);
+        }
+    }
+
+    private Session find(String id, String owner) {
+        Session session = sessions.get(id);
+        if (session == null || !session.owner.equals(owner)) {
+            throw new SessionNotFoundException(id);
+        }
+        return session;
+    }
+
+    private void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        sessions.values().removeIf(session -> {
+            synchronized (session) {
+                if (session.touchedAt >= cutoff) return false;
+                end(session);
+                return true;
+            }
+        });
+    }
+
+    // Sessions are in memory only, so any part or chunk file found at startup is unreachable.
+    private void deleteOrphans() throws IOException {
+        try (DirectoryStream<Path> orphans = Files.newDirectoryStream(sessionDir, "*{" + PART_SUFFIX + "," + CHUNK_SUFFIX + "}")) {
+            int deleted = 0;
+            for (Path orphan : orphans) {
+                if (Files.deleteIfExists(orphan)) deleted++;
+            }
+            if (deleted > 0) {
+                log.info("Deleted {} upload files left by a previous run", deleted);
+            }
+        }
+    }
+
+    private static void end(Session session) {
+        session.ended = true;
+        try {
+            Files.deleteIfExists(session.part);
+        } catch (IOException e) {
+            log.warn("Could not delete upload part {}: {}", session.part, e.toString());
+        }
+    }
+
+    private UploadSessionDTO toDTO(Session session) {
+        return new UploadSessionDTO(session.id, session.filename, session.size, session.offset,
+                session.contentType, maxChunkBytes);
+    }
+
+    private static MessageDigest clone(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 digest is not cloneable", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
@@ -1,14 +1,15 @@
 package backend.service;
 
 import backend.dto.ArtistDTO;
-import backend.dto.PlaylistDTO;
+import backend.dto.PlaylistSummaryDTO;
 import backend.dto.UserDTO;
 import backend.dto.UserLibraryDTO;
+import backend.dto.CursorPage;
 import backend.mapper.ArtistMapper;
-import backend.mapper.PlaylistMapper;
 import backend.mapper.UserMapper;
 import backend.model.User;
 import backend.repository.DBUserRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -20,13 +21,13 @@ public class UserService {
 
     private final DBUserRepository userRepository;
     private final UserMapper userMapper;
-    private final PlaylistMapper playlistMapper;
+    private final PlaylistService playlistService;
     private final ArtistMapper artistMapper;
 
-    public UserService(DBUserRepository userRepository, UserMapper userMapper, PlaylistMapper playlistMapper, ArtistMapper artistMapper) {
+    public UserService(DBUserRepository userRepository, UserMapper userMapper, PlaylistService playlistService, ArtistMapper artistMapper) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
-        this.playlistMapper = playlistMapper;
+        this.playlistService = playlistService;
         this.artistMapper = artistMapper;
     }
 
@@ -39,11 +40,10 @@ public class UserService {
         return userMapper.toDto(savedUser);
     }
 
-    public List<UserDTO> getAllUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+    public CursorPage<UserDTO> getAllUsers(String cursor, int limit) {
+        long after = KeysetCursor.decode(cursor, 0);
+        return KeysetCursor.page(userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit + 1)),
+                limit, User::getId, userMapper::toDto);
     }
 
     public UserDTO getUser(Long id) {
@@ -56,9 +56,7 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
-        List<PlaylistDTO> playlists = user.getPlaylists().stream()
-                .map(playlistMapper::toDto)
-                .collect(Collectors.toList());
+        List<PlaylistSummaryDTO> playlists = playlistService.getUserPlaylists(id, false);
 
         List<ArtistDTO> followedArtists = user.getFollowedArtists().stream()
                 .map(artistMapper::toDto)
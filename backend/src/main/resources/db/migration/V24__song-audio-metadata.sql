@@ -0,0 +1,7 @@
+-- Stream metadata parsed from the MP3 frame headers at upload time.
+-- NULL until the file has been indexed (the backfill job fills in older rows).
+ALTER TABLE songs
+    ADD COLUMN duration_ms BIGINT,
+    ADD COLUMN bitrate INTEGER,
+    ADD COLUMN sample_rate INTEGER,
+    ADD COLUMN size_bytes BIGINT;
@@ -0,0 +1,4 @@
+-- CRC-32 of the audio file, needed for the ZIP headers of playlist downloads.
+-- Computed at upload; NULL rows are filled in by the audio metadata backfill.
+ALTER TABLE songs
+    ADD COLUMN crc32 BIGINT;
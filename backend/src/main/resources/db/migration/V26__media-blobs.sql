@@ -0,0 +1,9 @@
+-- Content-addressed upload storage: one row per distinct file, keyed by its SHA-256.
+-- ref_count is the number of songs pointing at the blob; the file is removed when it drops to 0.
+CREATE TABLE media_blobs (
+    sha256       VARCHAR(64) PRIMARY KEY,
+    size_bytes   BIGINT       NOT NULL,
+    ref_count    INTEGER      NOT NULL,
+    content_type VARCHAR(255),
+    created_at   TIMESTAMP    NOT NULL DEFAULT now()
+);
@@ -0,0 +1,10 @@
+-- Uploaded covers were stored as absolute URLs of the host that created them
+-- (http://localhost:8081/api/songs/image/<file>). Keep only the API-relative path;
+-- the public base URL is added when a DTO is built.
+UPDATE songs
+SET imageUrl = substring(imageUrl FROM position('/songs/image/' IN imageUrl))
+WHERE imageUrl LIKE '%/api/songs/image/%';
+
+UPDATE playlists
+SET imageUrl = substring(imageUrl FROM position('/songs/image/' IN imageUrl))
+WHERE imageUrl LIKE '%/api/songs/image/%';
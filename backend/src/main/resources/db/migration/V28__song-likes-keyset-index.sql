@@ -0,0 +1,2 @@
+-- Liked songs are paged newest first by like id (SongLikeRepository.findLikedRows).
+CREATE INDEX IF NOT EXISTS idx_song_likes_user_id_id ON song_likes (user_id, id);
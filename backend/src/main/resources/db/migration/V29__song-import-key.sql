@@ -0,0 +1,6 @@
+-- Manifest row a song was bulk imported from (<manifest file name>:<row>), NULL for uploads.
+-- CatalogImporter skips rows whose key exists, so re-running a batch never duplicates songs.
+ALTER TABLE songs
+    ADD COLUMN import_key VARCHAR(512);
+
+CREATE UNIQUE INDEX idx_songs_import_key ON songs (import_key);
@@ -0,0 +1,139 @@
+package backend.repository;
+
+import backend.PostgresTestConfiguration;
+import backend.model.Artist;
+import backend.model.Genre;
+import backend.model.Song;
+import backend.model.SongLike;
+import backend.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The song listings must stay at one SQL statement each, however many artists the songs have,
+ * and must not load managed entities. Runs on the migrated schema, seed data included, so the
+ * assertions only look at the rows created here.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostgresTestConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class SongRowQueriesTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DBSongRepository songRepository;
+
+    @Autowired
+    private SongLikeRepository songLikeRepository;
+
+    private Statistics statistics;
+    private Long userId;
+    private List<Long> songIds;
+
+    @BeforeEach
+    void setUp() {
+        Artist first = entityManager.persist(artist("Row Test First", 10L));
+        Artist second = entityManager.persist(artist("Row Test Second", 20L));
+        Artist third = entityManager.persist(artist("Row Test Third", 30L));
+        Song a = entityManager.persist(song("Alpha", first, Genre.ROCK));
+        Song b = entityManager.persist(song("Beta", second, Genre.ROCK));
+        Song c = entityManager.persist(song("Gamma", third, Genre.ROCK));
+        Song d = entityManager.persist(song("Delta", first, Genre.JAZZ));
+        songIds = List.of(a.getId(), b.getId(), c.getId(), d.getId());
+
+        User user = entityManager.persist(User.builder().username("row-test-listener").email("row-test-listener@example.com")
+                .password("secret").build());
+        userId = user.getId();
+        for (Song song : List.of(a, b, c)) {
+            SongLike like = new SongLike();
+            like.setUser(user);
+            like.setSong(song);
+            entityManager.persist(like);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void genreListingIsOneStatement() {
+        List<SongRow> rows = songRepository.findRowsByGenre(Genre.ROCK);
+
+        assertThat(rows).filteredOn(row -> songIds.contains(row.id()))
+                .extracting(SongRow::artistName).containsExactly("Row Test First", "Row Test Second", "Row Test Third");
+        assertOneStatementWithoutEntities();
+    }
+
+    @Test
+    void artistListingIsOneStatement() {
+        List<SongRow> rows = songRepository.findRowsByArtistName("Row Test First");
+
+        assertThat(rows).extracting(SongRow::name).containsExactly("Delta", "Alpha");
+        assertOneStatementWithoutEntities();
+    }
+
+    @Test
+    void keysetPageIsOneStatement() {
+        List<SongRow> rows = songRepository.findRowsAfter(songIds.get(0), Limit.of(2));
+
+        assertThat(rows).extracting(SongRow::id).containsExactly(songIds.get(1), songIds.get(2));
+        assertOneStatementWithoutEntities();
+    }
+
+    @Test
+    void rowsByIdIsOneStatement() {
+        List<SongRow> rows = songRepository.findRowsByIdIn(songIds);
+
+        assertThat(rows).hasSize(4).allSatisfy(row -> assertThat(row.artistFollowers()).isNotNull());
+        assertOneStatementWithoutEntities();
+    }
+
+    @Test
+    void likedListingIsOneStatement() {
+        List<LikedSongRow> rows = songLikeRepository.findLikedRows(userId, Long.MAX_VALUE, Limit.of(10));
+
+        assertThat(rows).extracting(row -> row.song().name()).containsExactly("Gamma", "Beta", "Alpha");
+        assertOneStatementWithoutEntities();
+    }
+
+    private void assertOneStatementWithoutEntities() {
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private static Artist artist(String name, long followers) {
+        return Artist.builder().name(name).followers(followers).imageUrl(Artist.DEFAULT_IMAGE_URL).build();
+    }
+
+    private static Song song(String name, Artist artist, Genre genre) {
+        Song song = new Song();
+        song.setName(name);
+        song.setArtist(artist);
+        song.setGenre(genre);
+        song.setFilepath(name.toLowerCase() + ".mp3");
+        song.setImageUrl("/songs/image/" + name.toLowerCase() + ".jpg");
+        return song;
+    }
+}
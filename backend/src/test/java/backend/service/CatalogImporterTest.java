@@ -0,0 +1,189 @@
+package backend.service;
+
+import backend.PostgresTestConfiguration;
+import backend.model.Artist;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the importer against the migrated Postgres schema, so NOT NULL columns and the native
+ * upserts are checked for real.
+ */
+@DataJpaTest(properties = {
+        "CATALOG_IMPORT_BATCH_SIZE=2",
+        "CATALOG_IMPORT_THREADS=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresTestConfiguration.class, CatalogImporter.class, BlobStore.class, LocalMediaStorage.class,
+        Mp3Indexer.class, SongSearchIndex.class, SongFacetIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the importer commits its own batches
+@Testcontainers(disabledWithoutDocker = true)
+class CatalogImporterTest {
+
+    private static final Pattern AUDIO = Pattern.compile("[a-z]+\\.mp3");
+
+    @DynamicPropertySource
+    static void blobDir(DynamicPropertyRegistry registry) throws IOException {
+        Path blobs = Files.createTempDirectory("catalog-import-blobs");
+        registry.add("MEDIA_BLOB_DIR", blobs::toString);
+    }
+
+    @TempDir
+    Path mediaDir;
+
+    @Autowired
+    private CatalogImporter importer;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // Every test's cover differs, so reference counts do not add up across tests.
+    private byte[] cover;
+
+    @Test
+    void importsSongsOfNewArtists() throws IOException {
+        Path manifest = manifest("new-artists.csv",
+                "name,artist,genre,audio,image",
+                "\"One, Two\",Import Artist A,rock,one.mp3,cover.jpg",
+                "Three,Import Artist A,JAZZ,three.mp3,cover.jpg",
+                "Four,Import Artist B,polka,four.mp3,cover.jpg");
+
+        importer.run(manifest, mediaDir);
+
+        assertThat(jdbc.queryForList("SELECT name FROM songs WHERE import_key LIKE 'new-artists.csv:%' ORDER BY id",
+                String.class)).containsExactly("One, Two", "Three", "Four");
+        assertThat(jdbc.queryForList("SELECT imageurl FROM artists WHERE name LIKE 'Import Artist %'", String.class))
+                .containsExactly(Artist.DEFAULT_IMAGE_URL, Artist.DEFAULT_IMAGE_URL);
+        assertThat(jdbc.queryForObject("SELECT genre FROM songs WHERE import_key = 'new-artists.csv:3'", String.class))
+                .isEqualTo("OTHER");
+        assertThat(refCount(cover)).isEqualTo(3);
+        assertThat(refCount(audio("one.mp3"))).isEqualTo(1);
+    }
+
+    @Test
+    void rerunWithoutProgressSkipsImportedRows() throws IOException {
+        Path manifest = manifest("rerun.csv",
+                "name,artist,genre,audio,image",
+                "Five,Rerun Artist,pop,five.mp3,cover.jpg",
+                "Six,Rerun Artist,pop,six.mp3,cover.jpg",
+                "Seven,Rerun Artist,pop,seven.mp3,cover.jpg");
+        importer.run(manifest, mediaDir);
+        long coverRefs = refCount(cover);
+
+        // As if the process died after the last commit but before the progress file was written.
+        Files.delete(manifest.resolveSibling("rerun.csv.progress"));
+        importer.run(manifest, mediaDir);
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM songs WHERE import_key LIKE 'rerun.csv:%'", Long.class))
+                .isEqualTo(3);
+        assertThat(refCount(cover)).isEqualTo(coverRefs);
+        assertThat(refCount(audio("six.mp3"))).isEqualTo(1);
+        // The skipped rows' blobs are still referenced by the first run's songs, so they stay.
+        assertThat(blobStore.localCopy(sha256(audio("six.mp3")) + ".mp3")).isNotNull();
+    }
+
+    @Test
+    void leavesAManifestLockedByAnotherInstanceAlone() throws IOException {
+        Path manifest = manifest("locked.csv",
+                "name,artist,genre,audio,image",
+                "Ten,Locked Artist,pop,ten.mp3,cover.jpg");
+
+        // Another instance: a second connection holding the manifest's lock.
+        Boolean ran = jdbc.execute((ConnectionCallback<Boolean>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement(
+                    "SELECT pg_advisory_lock(x'696d7074'::int, hashtext('locked.csv'))")) {
+                lock.execute();
+            }
+            try {
+                return importer.runExclusively(manifest, mediaDir);
+            } finally {
+                try (PreparedStatement unlock = connection.prepareStatement(
+                        "SELECT pg_advisory_unlock(x'696d7074'::int, hashtext('locked.csv'))")) {
+                    unlock.execute();
+                }
+            }
+        });
+
+        assertThat(ran).isFalse();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM songs WHERE import_key LIKE 'locked.csv:%'", Long.class))
+                .isZero();
+        assertThat(importer.runExclusively(manifest, mediaDir)).isTrue();
+        assertThat(jdbc.queryForList("SELECT name FROM songs WHERE import_key LIKE 'locked.csv:%'", String.class))
+                .containsExactly("Ten");
+    }
+
+    @Test
+    void skipsRowsWithMissingFiles() throws IOException {
+        Path manifest = manifest("missing.jsonl",
+                "{\"name\": \"Eight\", \"artist\": \"Missing Artist\", \"genre\": \"rock\", \"audio\": \"eight.mp3\", \"image\": \"cover.jpg\"}",
+                "{\"name\": \"Nine\", \"artist\": \"Missing Artist\", \"genre\": \"rock\", \"audio\": \"../nine.mp3\", \"image\": \"cover.jpg\"}");
+
+        importer.run(manifest, mediaDir);
+
+        assertThat(jdbc.queryForList("SELECT name FROM songs WHERE import_key LIKE 'missing.jsonl:%'", String.class))
+                .containsExactly("Eight");
+    }
+
+    @Test
+    void parsesQuotedCsvValues() {
+        assertThat(CatalogImporter.parseCsvLine("a,\"b, c\",\"say \"\"hi\"\"\",,"))
+                .containsExactly("a", "b, c", "say \"hi\"", "", "");
+    }
+
+    // Writes the manifest next to the cover and one distinct audio file per row it names.
+    private Path manifest(String name, String... lines) throws IOException {
+        cover = ("cover of " + name).getBytes(StandardCharsets.US_ASCII);
+        Files.write(mediaDir.resolve("cover.jpg"), cover);
+        for (String line : lines) {
+            Matcher audio = AUDIO.matcher(line);
+            while (audio.find()) {
+                Files.write(mediaDir.resolve(audio.group()), audio(audio.group()));
+            }
+        }
+        return Files.write(mediaDir.resolve(name), List.of(lines));
+    }
+
+    private static byte[] audio(String name) {
+        return ("audio of " + name).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private long refCount(byte[] content) {
+        return jdbc.queryForObject("SELECT ref_count FROM media_blobs WHERE sha256 = ?", Long.class, sha256(content));
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
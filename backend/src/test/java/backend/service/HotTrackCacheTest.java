@@ -0,0 +1,131 @@
+package backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotTrackCacheTest {
+
+    // Room for one of the 8-byte tracks below, not two.
+    private static final long BUDGET = 12;
+    private static final int MIN_STREAMS = 3;
+
+    @TempDir
+    Path dir;
+
+    private final HotTrackCache cache = new HotTrackCache(BUDGET, MIN_STREAMS);
+
+    @Test
+    void admitsATrackOnceItHasBeenStreamedOftenEnough() throws IOException {
+        FileMediaSource track = track("a.mp3", "aaaaaaaa");
+
+        assertThat(cache.acquire(track)).isNull();
+        assertThat(cache.acquire(track)).isNull();
+        try (MappedMediaSource admitted = cache.acquire(track)) {
+            assertThat(admitted).isNotNull();
+            assertThat(read(admitted)).isEqualTo("aaaaaaaa");
+        }
+        try (MappedMediaSource hit = cache.acquire(track)) {
+            assertThat(hit).isNotNull();
+        }
+
+        HotTrackCache.Stats stats = cache.stats();
+        assertThat(stats.admissions()).isEqualTo(1);
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(3);
+        assertThat(stats.bytesUsed()).isEqualTo(8);
+    }
+
+    @Test
+    void neverCachesTracksLargerThanTheBudget() throws IOException {
+        FileMediaSource large = track("large.mp3", "x".repeat((int) BUDGET + 1));
+
+        for (int i = 0; i < MIN_STREAMS + 2; i++) {
+            assertThat(cache.acquire(large)).isNull();
+        }
+        assertThat(cache.stats().entries()).isZero();
+    }
+
+    @Test
+    void evictsOnlyForAMorePopularTrack() throws IOException {
+        FileMediaSource first = track("first.mp3", "11111111");
+        FileMediaSource second = track("second.mp3", "22222222");
+        streams(first, MIN_STREAMS);
+
+        // As popular as the cached track, which therefore stays.
+        streams(second, MIN_STREAMS);
+        assertThat(cache.stats().rejections()).isEqualTo(1);
+        assertThat(cache.stats().evictions()).isZero();
+
+        try (MappedMediaSource admitted = cache.acquire(second)) {
+            assertThat(admitted).isNotNull();
+            assertThat(read(admitted)).isEqualTo("22222222");
+        }
+        HotTrackCache.Stats stats = cache.stats();
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.entries()).isEqualTo(1);
+        assertThat(stats.bytesUsed()).isEqualTo(8);
+    }
+
+    @Test
+    void anOpenLeaseKeepsAnEvictedTrackMapped() throws IOException {
+        FileMediaSource first = track("first.mp3", "11111111");
+        FileMediaSource second = track("second.mp3", "22222222");
+        streams(first, MIN_STREAMS - 1);
+        MappedMediaSource lease = cache.acquire(first);
+        assertThat(lease).isNotNull();
+
+        streams(second, MIN_STREAMS + 1);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+
+        // Still readable until the stream lets go of it.
+        assertThat(read(lease)).isEqualTo("11111111");
+        lease.close();
+        assertThatThrownBy(() -> read(lease)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void dropsTheMappingOfAFileThatChanged() throws IOException {
+        FileMediaSource track = track("changed.mp3", "aaaaaaaa");
+        streams(track, MIN_STREAMS);
+
+        Files.writeString(track.file(), "bbbbbbbb", StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(track.file(), FileTime.from(Instant.now().plusSeconds(60)));
+        FileMediaSource changed = FileMediaSource.of(track.file(), "audio/mpeg");
+
+        try (MappedMediaSource remapped = cache.acquire(changed)) {
+            assertThat(remapped).isNotNull();
+            assertThat(read(remapped)).isEqualTo("bbbbbbbb");
+        }
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    // Streams the track n times, closing any lease straight away.
+    private void streams(FileMediaSource track, int n) {
+        for (int i = 0; i < n; i++) {
+            MappedMediaSource lease = cache.acquire(track);
+            if (lease != null) lease.close();
+        }
+    }
+
+    private FileMediaSource track(String name, String content) throws IOException {
+        return FileMediaSource.of(Files.writeString(dir.resolve(name), content, StandardCharsets.US_ASCII), "audio/mpeg");
+    }
+
+    private static String read(MappedMediaSource source) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.transferTo(0, source.length(), Channels.newChannel(out));
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,56 @@
+package backend.service;
+
+import backend.dto.CursorPage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        assertThat(KeysetCursor.decode(KeysetCursor.encode(42), 0)).isEqualTo(42);
+        assertThat(KeysetCursor.decode(KeysetCursor.encode(Long.MAX_VALUE), 0)).isEqualTo(Long.MAX_VALUE);
+        // URL-safe without padding, so it can go in a query string as is.
+        assertThat(KeysetCursor.encode(1234567)).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void noCursorMeansTheFirstPage() {
+        assertThat(KeysetCursor.decode(null, 0)).isZero();
+        assertThat(KeysetCursor.decode(" ", Long.MAX_VALUE)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void rejectsCursorsItDidNotProduce() {
+        for (String cursor : List.of("not base64!", encoded("x1:5"), encoded("k1:five"), encoded("5"))) {
+            assertThatThrownBy(() -> KeysetCursor.decode(cursor, 0))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+
+    @Test
+    void theExtraRowOnlyAnnouncesANextPage() {
+        CursorPage<String> page = KeysetCursor.page(List.of(3L, 5L, 8L, 13L), 3, Long::longValue, id -> "song " + id);
+
+        assertThat(page.items()).containsExactly("song 3", "song 5", "song 8");
+        assertThat(KeysetCursor.decode(page.nextCursor(), 0)).isEqualTo(8);
+    }
+
+    @Test
+    void theLastPageHasNoCursor() {
+        assertThat(KeysetCursor.page(List.of(3L, 5L, 8L), 3, Long::longValue, id -> id).nextCursor()).isNull();
+        assertThat(KeysetCursor.page(List.<Long>of(), 3, Long::longValue, id -> id))
+                .isEqualTo(new CursorPage<>(List.of(), null));
+    }
+
+    private static String encoded(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
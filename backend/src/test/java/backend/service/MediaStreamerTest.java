@@ -0,0 +1,215 @@
+package backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Range and conditional handling, on mock requests outside any bulkhead (so bodies are copied). */
+class MediaStreamerTest {
+
+    private static final String CONTENT = "0123456789abcdef";
+    private static final Instant MODIFIED = Instant.parse("2024-05-15T10:20:30Z");
+
+    @TempDir
+    Path dir;
+
+    private final MediaStreamer streamer = new MediaStreamer(new StreamingBulkhead(4, 4, 60_000, 5));
+    private FileMediaSource source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path file = Files.writeString(dir.resolve("track.mp3"), CONTENT, StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+        source = FileMediaSource.of(file, "audio/mpeg");
+    }
+
+    @Test
+    void servesTheWholeFileWithoutRange() throws IOException {
+        MockHttpServletResponse response = serve(get());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentLengthLong()).isEqualTo(16);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(source.etag());
+    }
+
+    @Test
+    void servesOneRangeAsPartialContent() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/16");
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void servesSuffixAndOpenEndedRanges() throws IOException {
+        MockHttpServletRequest suffix = get();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-4");
+        MockHttpServletRequest openEnded = get();
+        openEnded.addHeader(HttpHeaders.RANGE, "bytes=10-");
+
+        assertThat(serve(suffix).getContentAsString()).isEqualTo("cdef");
+        assertThat(serve(openEnded).getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-15/16");
+    }
+
+    @Test
+    void refusesRangesPastTheEnd() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=16-20");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */16");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void ignoresMalformedRanges() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=five-six");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void servesSeveralRangesAsMultipart() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,12-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+        String body = response.getContentAsString();
+        assertThat(body).isEqualTo("\r\n--" + boundary + "\r\n"
+                + "Content-Type: audio/mpeg\r\nContent-Range: bytes 0-1/16\r\n\r\n01"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: audio/mpeg\r\nContent-Range: bytes 12-15/16\r\n\r\ncdef"
+                + "\r\n--" + boundary + "--\r\n");
+        assertThat(response.getContentLengthLong()).isEqualTo(body.length());
+    }
+
+    @Test
+    void honoursRangeOnlyWhileTheIfRangeEtagMatches() throws IOException {
+        MockHttpServletRequest matching = get();
+        matching.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        matching.addHeader(HttpHeaders.IF_RANGE, source.etag());
+        MockHttpServletRequest stale = get();
+        stale.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletRequest weak = get();
+        weak.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        weak.addHeader(HttpHeaders.IF_RANGE, "W/" + source.etag());
+
+        assertThat(serve(matching).getStatus()).isEqualTo(206);
+        assertThat(serve(stale).getStatus()).isEqualTo(200);
+        // If-Range needs a strong validator.
+        assertThat(serve(weak).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void honoursRangeOnlyWhileTheIfRangeDateMatches() throws IOException {
+        MockHttpServletRequest matching = get();
+        matching.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        matching.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED));
+        MockHttpServletRequest older = get();
+        older.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        older.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED.minusSeconds(60)));
+
+        MockHttpServletResponse partial = serve(matching);
+        MockHttpServletResponse full = serve(older);
+
+        assertThat(partial.getStatus()).isEqualTo(206);
+        assertThat(partial.getContentAsString()).isEqualTo("0123");
+        assertThat(full.getStatus()).isEqualTo(200);
+        assertThat(full.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWithNotModified() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, source.etag());
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void handsSingleRangesToSendfileWhenTheConnectorSupportsIt() throws IOException {
+        MockHttpServletRequest request = get();
+        request.setAttribute(MediaStreamer.SENDFILE_SUPPORTED_ATTR, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename"))
+                .isEqualTo(source.file().toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(4L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(16L);
+    }
+
+    @Test
+    void headRequestsGetHeadersOnly() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/songs/1/stream");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isPositive();
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void servesFromASeekPositionAsPartialContent() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamer.serveFrom(source, 10, get(), response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-15/16");
+        assertThat(response.getContentAsString()).isEqualTo("abcdef");
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamer.serve(source, request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/songs/1/stream");
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC));
+    }
+}
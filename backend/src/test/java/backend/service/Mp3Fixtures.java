@@ -0,0 +1,80 @@
+package backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Builds MP3 byte streams out of silent frames, for tests that do not need real audio. */
+final class Mp3Fixtures {
+
+    /** MPEG-1 Layer III, 128 kbps, 44.1 kHz, stereo, no CRC and no padding. */
+    static final int MPEG1_128K = 0xFFFB9000;
+    static final int MPEG1_FRAME_LENGTH = 417;
+    static final double MPEG1_FRAME_MS = 1152 * 1000.0 / 44100;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    /** An ID3v2 tag with {@code size} bytes of (empty) frames. */
+    Mp3Fixtures id3v2(int size) {
+        out.writeBytes(new byte[]{'I', 'D', '3', 4, 0, 0,
+                (byte) (size >>> 21 & 0x7F), (byte) (size >>> 14 & 0x7F), (byte) (size >>> 7 & 0x7F), (byte) (size & 0x7F)});
+        out.writeBytes(new byte[size]);
+        return this;
+    }
+
+    Mp3Fixtures bytes(int... values) {
+        for (int value : values) {
+            out.write(value);
+        }
+        return this;
+    }
+
+    /** {@code count} frames of silence with the given header. */
+    Mp3Fixtures frames(int header, int count) {
+        for (int i = 0; i < count; i++) {
+            out.writeBytes(frame(header, null, 0));
+        }
+        return this;
+    }
+
+    /** A Xing (or Info) header frame declaring {@code frames} audio frames. */
+    Mp3Fixtures xing(String tag, int frames) {
+        // MPEG-1 stereo: 32 bytes of side info after the frame header.
+        byte[] body = ByteBuffer.allocate(12).put(tag.getBytes(StandardCharsets.US_ASCII))
+                .putInt(0x1).putInt(frames).array();
+        out.writeBytes(frame(MPEG1_128K, body, 4 + 32));
+        return this;
+    }
+
+    /** A VBRI header frame declaring {@code frames} audio frames. */
+    Mp3Fixtures vbri(int frames) {
+        // Version, delay and quality, then the byte count and the frame count.
+        byte[] body = ByteBuffer.allocate(18).put("VBRI".getBytes(StandardCharsets.US_ASCII))
+                .putShort((short) 1).putShort((short) 0).putShort((short) 75).putInt(0).putInt(frames).array();
+        out.writeBytes(frame(MPEG1_128K, body, 4 + 32));
+        return this;
+    }
+
+    /** A trailing ID3v1 tag. */
+    Mp3Fixtures id3v1() {
+        byte[] tag = new byte[128];
+        tag[0] = 'T';
+        tag[1] = 'A';
+        tag[2] = 'G';
+        out.writeBytes(tag);
+        return this;
+    }
+
+    byte[] build() {
+        return out.toByteArray();
+    }
+
+    private static byte[] frame(int header, byte[] body, int bodyOffset) {
+        byte[] frame = new byte[Mp3FrameScanner.frameLength(header)];
+        ByteBuffer.wrap(frame).putInt(header);
+        if (body != null) {
+            System.arraycopy(body, 0, frame, bodyOffset, body.length);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,105 @@
+package backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static backend.service.Mp3Fixtures.MPEG1_128K;
+import static backend.service.Mp3Fixtures.MPEG1_FRAME_LENGTH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Mp3FrameScannerTest {
+
+    private record Frame(long offset, int length, int samples, int sampleRate, int bitrateKbps) {
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodesMpeg1LayerThreeHeaders() {
+        assertThat(Mp3FrameScanner.frameLength(MPEG1_128K)).isEqualTo(417);
+        assertThat(Mp3FrameScanner.frameLength(MPEG1_128K | 0x200)).isEqualTo(418); // padded
+        assertThat(Mp3FrameScanner.bitrateKbps(MPEG1_128K)).isEqualTo(128);
+        assertThat(Mp3FrameScanner.sampleRate(MPEG1_128K)).isEqualTo(44100);
+        assertThat(Mp3FrameScanner.samplesPerFrame(MPEG1_128K)).isEqualTo(1152);
+    }
+
+    @Test
+    void decodesMpeg2LayerThreeHeaders() {
+        int header = 0xFFF38000; // 64 kbps, 22.05 kHz
+
+        assertThat(Mp3FrameScanner.bitrateKbps(header)).isEqualTo(64);
+        assertThat(Mp3FrameScanner.sampleRate(header)).isEqualTo(22050);
+        assertThat(Mp3FrameScanner.samplesPerFrame(header)).isEqualTo(576);
+        assertThat(Mp3FrameScanner.frameLength(header)).isEqualTo(208);
+    }
+
+    @Test
+    void rejectsReservedAndFreeFormatHeaders() {
+        assertThat(Mp3FrameScanner.frameLength(0)).isEqualTo(-1);
+        assertThat(Mp3FrameScanner.frameLength(0xFFEB9000)).isEqualTo(-1); // reserved version
+        assertThat(Mp3FrameScanner.frameLength(0xFFF99000)).isEqualTo(-1); // reserved layer
+        assertThat(Mp3FrameScanner.frameLength(0xFFFB0000)).isEqualTo(-1); // free format
+        assertThat(Mp3FrameScanner.frameLength(0xFFFBF000)).isEqualTo(-1); // bad bitrate
+        assertThat(Mp3FrameScanner.frameLength(0xFFFB9C00)).isEqualTo(-1); // reserved sample rate
+    }
+
+    @Test
+    void skipsTagsAndResynchronisesAfterGarbage() throws IOException {
+        byte[] mp3 = new Mp3Fixtures().id3v2(20).bytes(0x12, 0xFF, 0xFB).frames(MPEG1_128K, 5).id3v1().build();
+
+        List<Frame> frames = new ArrayList<>();
+        Mp3FrameScanner.Summary summary = scan(mp3, frames);
+
+        assertThat(summary).isEqualTo(new Mp3FrameScanner.Summary(-1, false));
+        assertThat(frames).hasSize(5);
+        for (int i = 0; i < frames.size(); i++) {
+            assertThat(frames.get(i)).isEqualTo(new Frame(33 + (long) i * MPEG1_FRAME_LENGTH, MPEG1_FRAME_LENGTH,
+                    1152, 44100, 128));
+        }
+    }
+
+    @Test
+    void reportsAXingHeaderInsteadOfVisitingIt() throws IOException {
+        byte[] mp3 = new Mp3Fixtures().xing("Xing", 100).frames(MPEG1_128K, 3).build();
+
+        List<Frame> frames = new ArrayList<>();
+        Mp3FrameScanner.Summary summary = scan(mp3, frames);
+
+        assertThat(summary).isEqualTo(new Mp3FrameScanner.Summary(100, true));
+        assertThat(frames).extracting(Frame::offset)
+                .containsExactly((long) MPEG1_FRAME_LENGTH, 2L * MPEG1_FRAME_LENGTH, 3L * MPEG1_FRAME_LENGTH);
+    }
+
+    @Test
+    void anInfoHeaderMarksAConstantBitrateStream() throws IOException {
+        byte[] mp3 = new Mp3Fixtures().xing("Info", 42).frames(MPEG1_128K, 2).build();
+
+        List<Frame> frames = new ArrayList<>();
+
+        assertThat(scan(mp3, frames)).isEqualTo(new Mp3FrameScanner.Summary(42, false));
+        assertThat(frames).hasSize(2);
+    }
+
+    @Test
+    void reportsAVbriHeaderInsteadOfVisitingIt() throws IOException {
+        byte[] mp3 = new Mp3Fixtures().vbri(250).frames(MPEG1_128K, 2).build();
+
+        List<Frame> frames = new ArrayList<>();
+
+        assertThat(scan(mp3, frames)).isEqualTo(new Mp3FrameScanner.Summary(250, true));
+        assertThat(frames).hasSize(2);
+    }
+
+    private Mp3FrameScanner.Summary scan(byte[] mp3, List<Frame> frames) throws IOException {
+        Path file = Files.write(dir.resolve("fixture.mp3"), mp3);
+        return Mp3FrameScanner.scan(file, (offset, length, samples, sampleRate, bitrateKbps) ->
+                frames.add(new Frame(offset, length, samples, sampleRate, bitrateKbps)));
+    }
+}
@@ -0,0 +1,73 @@
+package backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static backend.service.Mp3Fixtures.MPEG1_128K;
+import static backend.service.Mp3Fixtures.MPEG1_FRAME_LENGTH;
+import static backend.service.Mp3Fixtures.MPEG1_FRAME_MS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Mp3IndexerTest {
+
+    // 40 frames of about 26 ms: just over a second, four index slots per second.
+    private static final int FRAMES = 40;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void measuresAConstantBitrateStream() throws IOException {
+        Path audio = Files.write(dir.resolve("cbr.mp3"), new Mp3Fixtures().frames(MPEG1_128K, FRAMES).build());
+
+        Mp3Indexer.Mp3Info info = new Mp3Indexer().index(audio);
+
+        assertThat(info.durationMs()).isEqualTo((long) (FRAMES * 1152 * 1000L / 44100));
+        assertThat(info.sampleRate()).isEqualTo(44100);
+        assertThat(info.bitrateKbps()).isBetween(127, 128);
+        assertThat(info.sizeBytes()).isEqualTo((long) FRAMES * MPEG1_FRAME_LENGTH);
+        assertThat(info.crc32()).isEqualTo(Mp3Indexer.crc32(audio));
+    }
+
+    @Test
+    void trustsTheFrameCountOfAXingHeader() throws IOException {
+        // Declares more frames than the file holds, as after a truncated download.
+        Path audio = Files.write(dir.resolve("vbr.mp3"), new Mp3Fixtures().xing("Xing", 1000).frames(MPEG1_128K, 10).build());
+
+        assertThat(new Mp3Indexer().index(audio).durationMs()).isEqualTo(1000L * 1152 * 1000 / 44100);
+    }
+
+    @Test
+    void seeksToTheFramePlayingAtATime() throws IOException {
+        Path audio = Files.write(dir.resolve("seek.mp3"), new Mp3Fixtures().id3v2(100).frames(MPEG1_128K, FRAMES).build());
+        FileMediaSource source = FileMediaSource.of(audio, "audio/mpeg");
+        Mp3Indexer indexer = new Mp3Indexer();
+
+        assertThat(indexer.offsetFor(source, 0)).isZero();
+        assertThat(indexer.offsetFor(source, 0.25)).isEqualTo(frameAt(0.25));
+        assertThat(indexer.offsetFor(source, 0.6)).isEqualTo(frameAt(0.5)); // 250 ms slots
+        // Past the end: the last slot.
+        assertThat(indexer.offsetFor(source, 60)).isEqualTo(frameAt(1.0));
+    }
+
+    @Test
+    void persistsTheIndexNextToTheAudio() throws IOException {
+        Path audio = Files.write(dir.resolve("persisted.mp3"), new Mp3Fixtures().id3v2(100).frames(MPEG1_128K, FRAMES).build());
+        new Mp3Indexer().index(audio);
+        // Nothing left to scan: a fresh indexer can only answer from the index file.
+        Files.write(audio, new byte[(int) Files.size(audio)]);
+        Files.setLastModifiedTime(audio, Files.getLastModifiedTime(Mp3Indexer.indexPath(audio)));
+
+        assertThat(Mp3Indexer.indexPath(audio)).exists();
+        assertThat(new Mp3Indexer().offsetFor(FileMediaSource.of(audio, "audio/mpeg"), 0.5)).isEqualTo(frameAt(0.5));
+    }
+
+    // Offset of the frame playing at {@code seconds}, after the 110-byte ID3v2 tag.
+    private static long frameAt(double seconds) {
+        return 110 + (long) (seconds * 1000 / MPEG1_FRAME_MS) * MPEG1_FRAME_LENGTH;
+    }
+}
@@ -0,0 +1,187 @@
+package backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Runs the S3 storage against a real MinIO, as docker-compose does. */
+@Testcontainers(disabledWithoutDocker = true)
+class S3MediaStorageTest {
+
+    private static final String BUCKET = "waveon-test";
+    private static final int CACHE_BYTES = 64;
+
+    @Container
+    static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-10-13T13-34-11Z");
+
+    @TempDir
+    Path cacheDir;
+
+    @TempDir
+    Path uploads;
+
+    private S3MediaStorage storage;
+
+    @BeforeAll
+    static void createBucket() {
+        try (S3Client admin = S3Client.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword())))
+                .build()) {
+            admin.createBucket(b -> b.bucket(BUCKET));
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = storage();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void storesAndFetchesBackEvictedCopies() throws IOException {
+        String key = "aa/bb/" + "a".repeat(64);
+        storage.store(key, upload("first", 16), "audio/mpeg");
+        assertThat(storage.localPath(key)).hasContent("x".repeat(16));
+
+        Files.delete(storage.localPath(key));
+        // A fresh instance only knows the bucket.
+        storage.close();
+        storage = storage();
+
+        assertThat(storage.exists(key)).isTrue();
+        assertThat(storage.stillLocal(key)).isFalse();
+        assertThat(storage.materialize(key)).hasContent("x".repeat(16));
+        assertThat(storage.stillLocal(key)).isTrue();
+    }
+
+    @Test
+    void missingObjectsMaterializeToNull() throws IOException {
+        String key = "cc/dd/" + "c".repeat(64);
+
+        assertThat(storage.exists(key)).isFalse();
+        assertThat(storage.materialize(key)).isNull();
+    }
+
+    @Test
+    void keepsLocalCopiesWithinTheBudget() throws IOException {
+        String first = "01/00/" + "1".repeat(64);
+        String second = "02/00/" + "2".repeat(64);
+        String third = "03/00/" + "3".repeat(64);
+        storage.store(first, upload("first", 30), "audio/mpeg");
+        storage.store(second, upload("second", 30), "audio/mpeg");
+        storage.stillLocal(first); // now the second is the least recently used
+
+        storage.store(third, upload("third", 30), "audio/mpeg");
+
+        assertThat(storage.stillLocal(first)).isTrue();
+        assertThat(storage.stillLocal(second)).isFalse();
+        assertThat(storage.localPath(second)).doesNotExist();
+        assertThat(storage.materialize(second)).hasContent("x".repeat(30));
+        assertThat(storage.stillLocal(third)).isFalse();
+    }
+
+    @Test
+    void pinnedCopiesAreNotEvicted() throws IOException {
+        String first = "04/00/" + "4".repeat(64);
+        String second = "05/00/" + "5".repeat(64);
+        String third = "06/00/" + "6".repeat(64);
+        storage.store(first, upload("first", 30), "audio/mpeg");
+
+        try (MediaStorage.Pin pin = storage.pin(first)) {
+            storage.store(second, upload("second", 30), "audio/mpeg");
+            storage.store(third, upload("third", 30), "audio/mpeg");
+        }
+
+        assertThat(storage.stillLocal(first)).isTrue();
+        assertThat(storage.stillLocal(second)).isFalse();
+    }
+
+    @Test
+    void concurrentFetchesShareOneCopy() throws Exception {
+        String key = "dd/ee/" + "d".repeat(64);
+        storage.store(key, upload("shared", 32), "audio/mpeg");
+        Files.delete(storage.localPath(key));
+        storage.close();
+        storage = storage();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Path>> fetches = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                fetches.add(executor.submit(() -> storage.materialize(key)));
+            }
+            for (Future<Path> fetch : fetches) {
+                assertThat(fetch.get()).isEqualTo(storage.localPath(key)).hasContent("x".repeat(32));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        try (var leftovers = Files.list(storage.localPath(key).getParent())) {
+            assertThat(leftovers).containsExactly(storage.localPath(key));
+        }
+    }
+
+    @Test
+    void presignedUrlsServeTheObject() throws IOException {
+        String key = "ee/ff/" + "e".repeat(64);
+        storage.store(key, upload("presigned", 8), "audio/mpeg");
+
+        URI url = storage.presignedGet(key, "audio/mpeg", Duration.ofMinutes(1));
+
+        try (InputStream in = url.toURL().openStream()) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("x".repeat(8));
+        }
+    }
+
+    @Test
+    void deleteRemovesBothCopies() throws IOException {
+        String key = "ff/00/" + "f".repeat(64);
+        storage.store(key, upload("deleted", 8), "audio/mpeg");
+
+        storage.delete(key);
+
+        assertThat(storage.exists(key)).isFalse();
+        assertThat(storage.localPath(key)).doesNotExist();
+    }
+
+    private S3MediaStorage storage() throws IOException {
+        return new S3MediaStorage(BUCKET, "us-east-1", MINIO.getS3URL(), "", true,
+                MINIO.getUserName(), MINIO.getPassword(), cacheDir.toString(), CACHE_BYTES);
+    }
+
+    private Path upload(String name, int size) throws IOException {
+        return Files.writeString(uploads.resolve(name), "x".repeat(size), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,144 @@
+package backend.service;
+
+import backend.PostgresTestConfiguration;
+import backend.dto.SuggestionDTO;
+import backend.model.Artist;
+import backend.model.Genre;
+import backend.model.Playlist;
+import backend.model.Privacy;
+import backend.model.Song;
+import backend.model.SongLike;
+import backend.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Builds the suggestions from the migrated schema, seed data included, so the assertions only
+ * look at names made up here.
+ */
+@DataJpaTest(properties = "MEDIA_URL_SECRET=search-suggest-test-secret-of-32-chars")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostgresTestConfiguration.class, SearchSuggestIndex.class, MediaUrlSigner.class})
+@Testcontainers(disabledWithoutDocker = true)
+class SearchSuggestIndexTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SearchSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Artist quokkas = entityManager.persist(artist("Quokka Collective", 5L));
+        Song dreams = entityManager.persist(song("Quokkaphonic Dreams", quokkas));
+        entityManager.persist(song("Quokkaphonic Nights", quokkas));
+        Song blue = entityManager.persist(song("Blue Quokkaphone", quokkas));
+
+        User fan = entityManager.persist(user("quokkafan"));
+        User lurker = entityManager.persist(user("quokkalurker"));
+        like(fan, dreams);
+        like(lurker, dreams);
+        like(fan, blue);
+        entityManager.persist(playlist("Café Quokka", fan, Privacy.PUBLIC));
+        entityManager.persist(playlist("Quokka Secrets", lurker, Privacy.PRIVATE));
+
+        // More artists under one prefix than a trie node keeps.
+        for (long followers = 1; followers <= SearchSuggestIndex.TOP + 2; followers++) {
+            entityManager.persist(artist("Wombatwave " + followers, followers));
+        }
+
+        entityManager.flush();
+        index.rebuild();
+    }
+
+    @Test
+    void suggestsEveryNameWithAWordStartingWithTheQuery() {
+        // The two liked songs first, by likes; the name of the second only has a later word matching.
+        assertThat(index.suggest("Quokkaphon", SearchSuggestIndex.TOP)).extracting(SuggestionDTO::name)
+                .startsWith("Quokkaphonic Dreams", "Blue Quokkaphone", "Quokkaphonic Nights");
+
+        assertThat(index.suggest("quokka", SearchSuggestIndex.TOP))
+                .extracting(SuggestionDTO::type, SuggestionDTO::name, SuggestionDTO::subtitle)
+                .contains(
+                        tuple("artist", "Quokka Collective", null),
+                        tuple("song", "Quokkaphonic Dreams", "Quokka Collective"),
+                        tuple("playlist", "Café Quokka", "quokkafan"),
+                        tuple("user", "quokkafan", null));
+    }
+
+    @Test
+    void leavesOutPrivatePlaylistsAndUsersWithoutPublicOnes() {
+        assertThat(index.suggest("quokka", SearchSuggestIndex.TOP)).extracting(SuggestionDTO::name)
+                .doesNotContain("Quokka Secrets", "quokkalurker");
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        assertThat(index.suggest("CAFE quo", SearchSuggestIndex.TOP)).extracting(SuggestionDTO::name)
+                .first().isEqualTo("Café Quokka");
+    }
+
+    @Test
+    void toleratesTyposInLongerQueries() {
+        // One substitution; "Blue Quokkaphone" is three edits away.
+        assertThat(index.suggest("quokkaphinic", SearchSuggestIndex.TOP)).extracting(SuggestionDTO::name)
+                .startsWith("Quokkaphonic Dreams", "Quokkaphonic Nights")
+                .doesNotContain("Blue Quokkaphone");
+        // Too short to allow any.
+        assertThat(index.suggest("qok", SearchSuggestIndex.TOP)).extracting(SuggestionDTO::name)
+                .noneMatch(name -> name.contains("Quokka"));
+    }
+
+    @Test
+    void keepsTheMostPopularEntriesOfACrowdedPrefix() {
+        assertThat(index.suggest("wombatwave", SearchSuggestIndex.TOP)).extracting(SuggestionDTO::name)
+                .containsExactly("Wombatwave 12", "Wombatwave 11", "Wombatwave 10", "Wombatwave 9", "Wombatwave 8",
+                        "Wombatwave 7", "Wombatwave 6", "Wombatwave 5", "Wombatwave 4", "Wombatwave 3");
+        assertThat(index.suggest("wombatwave", 3)).extracting(SuggestionDTO::name)
+                .containsExactly("Wombatwave 12", "Wombatwave 11", "Wombatwave 10");
+    }
+
+    private void like(User user, Song song) {
+        SongLike like = new SongLike();
+        like.setUser(user);
+        like.setSong(song);
+        entityManager.persist(like);
+    }
+
+    private static Artist artist(String name, long followers) {
+        return Artist.builder().name(name).followers(followers).imageUrl(Artist.DEFAULT_IMAGE_URL).build();
+    }
+
+    private static Song song(String name, Artist artist) {
+        Song song = new Song();
+        song.setName(name);
+        song.setArtist(artist);
+        song.setGenre(Genre.POP);
+        song.setFilepath(name.toLowerCase().replace(' ', '-') + ".mp3");
+        song.setImageUrl("/songs/image/" + name.toLowerCase().replace(' ', '-') + ".jpg");
+        return song;
+    }
+
+    private static User user(String username) {
+        return User.builder().username(username).email(username + "@example.com").password("secret").build();
+    }
+
+    private static Playlist playlist(String title, User user, Privacy visibility) {
+        Playlist playlist = new Playlist();
+        playlist.setTitle(title);
+        playlist.setUser(user);
+        playlist.setVisibility(visibility);
+        playlist.setImageUrl("/songs/image/" + user.getUsername() + ".jpg");
+        return playlist;
+    }
+}
@@ -0,0 +1,97 @@
+package backend.service;
+
+import backend.model.Genre;
+import backend.repository.DBSongRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SongFacetIndexTest {
+
+    private final DBSongRepository songRepository = mock(DBSongRepository.class);
+    private final SongFacetIndex index = new SongFacetIndex(songRepository);
+
+    @BeforeEach
+    void setUp() {
+        // The last two ids fall in other bitmap containers than the first five.
+        when(songRepository.findFacetsAfter(0L)).thenReturn(List.of(
+                new Object[]{1L, Genre.ROCK, 10L},
+                new Object[]{2L, Genre.ROCK, 10L},
+                new Object[]{3L, Genre.JAZZ, 10L},
+                new Object[]{4L, Genre.ROCK, 20L},
+                new Object[]{5L, Genre.JAZZ, 20L},
+                new Object[]{70_000L, Genre.POP, 30L},
+                new Object[]{140_000L, Genre.POP, 30L}));
+        index.build();
+    }
+
+    @Test
+    void countsOfADimensionIgnoreItsOwnFilter() {
+        SongFacetIndex.Facets rock = index.facets(Genre.ROCK, null, null, 0, 10, 10);
+
+        assertThat(rock.total()).isEqualTo(3);
+        assertThat(rock.ids()).containsExactly(1L, 2L, 4L);
+        assertThat(rock.genres()).isEqualTo(Map.of(Genre.ROCK, 3, Genre.JAZZ, 2, Genre.POP, 2));
+        assertThat(rock.artists()).containsExactly(entry(10L, 2), entry(20L, 1));
+
+        SongFacetIndex.Facets rockBy10 = index.facets(Genre.ROCK, 10L, null, 0, 10, 10);
+
+        assertThat(rockBy10.ids()).containsExactly(1L, 2L);
+        assertThat(rockBy10.genres()).isEqualTo(Map.of(Genre.ROCK, 2, Genre.JAZZ, 1));
+        assertThat(rockBy10.artists()).containsExactly(entry(10L, 2), entry(20L, 1));
+    }
+
+    @Test
+    void limitsEveryCountToTheLikedSongs() {
+        SongFacetIndex.Facets liked = index.facets(null, null, List.of(2L, 3L, 5L, 70_000L), 0, 10, 10);
+
+        assertThat(liked.ids()).containsExactly(2L, 3L, 5L, 70_000L);
+        assertThat(liked.genres()).isEqualTo(Map.of(Genre.ROCK, 1, Genre.JAZZ, 2, Genre.POP, 1));
+        assertThat(liked.artists()).containsExactly(entry(10L, 2), entry(20L, 1), entry(30L, 1));
+    }
+
+    @Test
+    void keepsTheLargestArtistCounts() {
+        // 20 and 30 tie; the lower id wins.
+        assertThat(index.facets(null, null, null, 0, 10, 2).artists())
+                .containsExactly(entry(10L, 3), entry(20L, 2));
+    }
+
+    @Test
+    void pagesInIdOrder() {
+        assertThat(index.facets(null, null, null, 4, 2, 10).ids()).containsExactly(5L, 70_000L);
+        assertThat(index.facets(null, null, null, 6, 5, 10).ids()).containsExactly(140_000L);
+
+        SongFacetIndex.Facets pastTheEnd = index.facets(null, null, null, 7, 5, 10);
+        assertThat(pastTheEnd.ids()).isEmpty();
+        assertThat(pastTheEnd.total()).isEqualTo(7);
+    }
+
+    @Test
+    void refilesUpdatedSongsAndForgetsDeletedOnes() {
+        index.put(70_000L, Genre.ROCK, 20L);
+        index.remove(140_000L);
+
+        SongFacetIndex.Facets all = index.facets(null, null, null, 0, 10, 10);
+
+        assertThat(all.total()).isEqualTo(6);
+        assertThat(all.genres()).isEqualTo(Map.of(Genre.ROCK, 4, Genre.JAZZ, 2));
+        assertThat(all.artists()).containsExactly(entry(10L, 3), entry(20L, 3));
+    }
+
+    @Test
+    void catchesUpWithSongsInsertedElsewhere() {
+        when(songRepository.findFacetsAfter(140_000L)).thenReturn(List.<Object[]>of(new Object[]{140_001L, Genre.FOLK, 40L}));
+
+        index.catchUp();
+
+        assertThat(index.facets(Genre.FOLK, null, null, 0, 10, 10).ids()).containsExactly(140_001L);
+    }
+}
@@ -0,0 +1,77 @@
+package backend.service;
+
+import backend.repository.DBSongRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SongSearchIndexTest {
+
+    private final DBSongRepository songRepository = mock(DBSongRepository.class);
+    private final SongSearchIndex index = new SongSearchIndex(songRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(songRepository.findIdsAndNamesAfter(0L)).thenReturn(List.of(
+                new Object[]{1L, "Yellow Submarine"},
+                new Object[]{2L, "Mellow Yellow"},
+                new Object[]{3L, "Yellowstone"},
+                new Object[]{4L, "Fellow Traveller"},
+                new Object[]{5L, "Bellyellow"}));
+        index.build();
+    }
+
+    @Test
+    void ranksNameStartsThenWordStartsThenTheRest() {
+        assertThat(index.isBuilt()).isTrue();
+        // Among names starting with the query, the shorter one first.
+        assertThat(index.search("yellow", 0, 10)).containsExactly(3L, 1L, 2L, 5L);
+        assertThat(index.search("  YELLOW ", 0, 10)).containsExactly(3L, 1L, 2L, 5L);
+        assertThat(index.search("ellow", 0, 10)).containsExactly(3L, 2L, 1L, 4L, 5L);
+    }
+
+    @Test
+    void pagesThroughTheRankedMatches() {
+        assertThat(index.search("yellow", 1, 2)).containsExactly(1L, 2L);
+        assertThat(index.search("yellow", 4, 2)).isEmpty();
+    }
+
+    @Test
+    void onlyReturnsNamesContainingTheWholeQuery() {
+        assertThat(index.search("low sub", 0, 10)).containsExactly(1L);
+        // Every trigram of "yellye" is in "Bellyellow", but not in a row.
+        assertThat(index.search("yellye", 0, 10)).isEmpty();
+        assertThat(index.search("yellowz", 0, 10)).isEmpty();
+        assertThat(index.search("xyz", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void scansTheNamesForQueriesWithoutATrigram() {
+        assertThat(index.search("ye", 0, 10)).containsExactly(3L, 1L, 2L, 5L);
+        assertThat(index.search("", 0, 2)).hasSize(2);
+    }
+
+    @Test
+    void followsRenamesAndDeletions() {
+        index.put(3L, "Stone Roses");
+        index.put(6L, "Yellow");
+        index.remove(1L);
+
+        assertThat(index.search("yellow", 0, 10)).containsExactly(6L, 2L, 5L);
+        assertThat(index.search("stone", 0, 10)).containsExactly(3L);
+    }
+
+    @Test
+    void catchesUpWithSongsInsertedElsewhere() {
+        when(songRepository.findIdsAndNamesAfter(5L)).thenReturn(List.<Object[]>of(new Object[]{7L, "Yellow Ledbetter"}));
+
+        index.catchUp();
+
+        assertThat(index.search("yellow l", 0, 10)).containsExactly(7L);
+    }
+}
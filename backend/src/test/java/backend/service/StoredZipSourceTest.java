@@ -0,0 +1,112 @@
+package backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StoredZipSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWithJavaUtilZip() throws IOException {
+        StoredZipSource zip = StoredZipSource.builder()
+                .add("01 - Artist - First.mp3", file("first.mp3", "first song"), crc("first song"))
+                .add("02 - Ärtist - Second.mp3", file("second.mp3", "the second song"), crc("the second song"))
+                .build();
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(bytes(zip, 0, zip.length())),
+                StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                // ZipInputStream checks each entry's CRC and size as it reads it.
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertThat(entries).containsExactly(
+                Map.entry("01 - Artist - First.mp3", "first song"),
+                Map.entry("02 - Ärtist - Second.mp3", "the second song"));
+        assertThat(zip.contentType()).isEqualTo("application/zip");
+    }
+
+    @Test
+    void rangesMatchTheWholeArchive() throws IOException {
+        StoredZipSource zip = StoredZipSource.builder()
+                .add("a.mp3", file("a.mp3", "aaaa"), crc("aaaa"))
+                .add("b.mp3", file("b.mp3", "bbbbbbbb"), crc("bbbbbbbb"))
+                .build();
+        byte[] whole = bytes(zip, 0, zip.length());
+
+        // Across header, body and directory boundaries.
+        for (long start = 0; start < zip.length(); start += 7) {
+            long count = Math.min(23, zip.length() - start);
+            byte[] expected = new byte[(int) count];
+            System.arraycopy(whole, (int) start, expected, 0, (int) count);
+            assertThat(bytes(zip, start, count)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void identicalInputsGiveIdenticalArchives() throws IOException {
+        FileMediaSource first = file("one.mp3", "one");
+        FileMediaSource second = file("two.mp3", "two");
+
+        StoredZipSource zip = StoredZipSource.builder()
+                .add("1.mp3", first, crc("one")).add("2.mp3", second, crc("two")).build();
+        StoredZipSource again = StoredZipSource.builder()
+                .add("1.mp3", first, crc("one")).add("2.mp3", second, crc("two")).build();
+        StoredZipSource renamed = StoredZipSource.builder()
+                .add("1.mp3", first, crc("one")).add("3.mp3", second, crc("two")).build();
+
+        assertThat(again.etag()).isEqualTo(zip.etag());
+        assertThat(bytes(again, 0, again.length())).isEqualTo(bytes(zip, 0, zip.length()));
+        assertThat(renamed.etag()).isNotEqualTo(zip.etag());
+    }
+
+    @Test
+    void refusesMoreEntriesThanZipWithoutZip64Allows() throws IOException {
+        FileMediaSource empty = file("empty.mp3", "");
+        StoredZipSource.Builder builder = StoredZipSource.builder();
+        for (int i = 0; i < 0xFFFF; i++) {
+            builder.add(i + ".mp3", empty, 0);
+        }
+
+        assertThatThrownBy(() -> builder.add("one-too-many.mp3", empty, 0))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private FileMediaSource file(String name, String content) throws IOException {
+        return FileMediaSource.of(Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8), "audio/mpeg");
+    }
+
+    private static long crc(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static byte[] bytes(StoredZipSource zip, long position, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        zip.transferTo(position, count, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+}
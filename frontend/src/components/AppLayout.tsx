@@ -3,7 +3,7 @@
 import * as React from "react";
 import { useState, useEffect, useRef, useCallback } from "react";
 import type { ChangeEvent } from "react";
-import type { Song, Playlist, Artist, UserLibrary } from '../types';
+import type { Song, Playlist, Artist, UserLibrary, Suggestion } from '../types';
 import { MainSidebar } from './MainSidebar';
 import { TopToolbar } from './TopToolbar';
 import {ArtistUploadPage} from "../pages/ArtistUploadPage.tsx";
@@ -20,7 +20,7 @@ import {StudyModeOverlay} from "./StudyModeOverlay.tsx"; [StudyModeOverlay];
 import { ExplorePage } from '../pages/ExplorePage';
 import { FavoritesPage } from '../pages/FavoritesPage';
 import { DiscoveryMap} from "../pages/DiscoveryMap.tsx";
-import { apiUrl } from "../config/api";
+import { apiUrl, fetchAllPages } from "../config/api";
 
 interface AppLayoutProps {
     children: React.ReactNode;
@@ -66,6 +66,8 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
 
     // Player States
     const [selectedArtistId, setSelectedArtistId] = useState<number | null>(null);
+    const [profileUserId, setProfileUserId] = useState<number | null>(null);
+    const [artistPlaylists, setArtistPlaylists] = useState<Playlist[]>([]);
     const [currentSong, setCurrentSong] = useState<Song | null>(null);
     const [currentFilteredSongs, setCurrentFilteredSongs] = useState<Song[]>([]);
     const [isPlaying, setIsPlaying] = useState<boolean>(false);
@@ -164,17 +166,40 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
             });
 
             if (response.ok) {
+                // The server processes the upload in the background; wait (up to 10 minutes) for the job to finish.
+                let job = await response.json();
+                for (let polls = 0; polls < 600 && (job.status === "QUEUED" || job.status === "RUNNING"); polls++) {
+                    await new Promise((resolve) => setTimeout(resolve, 1000));
+                    const jobRes = await fetch(apiUrl(`/uploads/${job.id}`), {
+                        headers: {"Authorization": `Bearer ${token}`}
+                    });
+                    if (!jobRes.ok) {
+                        // 404: the job expired or lives on another server instance, so its outcome is unknown.
+                        job = {status: "FAILED", error: `Could not check the upload (${jobRes.status}).`};
+                        break;
+                    }
+                    job = await jobRes.json();
+                }
+                if (job.status !== "SUCCEEDED") {
+                    toast.current?.show({
+                        severity: 'error',
+                        summary: 'Error',
+                        detail: job.status === "FAILED"
+                            ? job.error || 'The song could not be processed.'
+                            : 'The song is still being processed; check back later.',
+                        life: 4000
+                    });
+                    return false;
+                }
+
                 // Refresh global songs so the upload becomes visible immediately.
                 try {
-                    const songsRes = await fetch(apiUrl("/songs"));
-                    if (songsRes.ok) {
-                        const data = await songsRes.json();
-                        const validSongs = normalizeSongs(data);
-                        setAllSongs(validSongs);
-                        // Keep the UI list fresh regardless of current view.
-                        // (Otherwise you can upload from Artist Studio and not see it later until a reload.)
-                        setCurrentFilteredSongs(validSongs);
-                    }
+                    const data = await fetchAllPages<any>("/songs");
+                    const validSongs = normalizeSongs(data);
+                    setAllSongs(validSongs);
+                    // Keep the UI list fresh regardless of current view.
+                    // (Otherwise you can upload from Artist Studio and not see it later until a reload.)
+                    setCurrentFilteredSongs(validSongs);
                 } catch {
                     // Non-fatal: upload succeeded, but refresh failed.
                 }
@@ -251,12 +276,11 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
     };
 
     const handleStudySwitch = (mode: 'STUDY' | 'BREAK' | 'REGULAR') => {
-        const url = mode === 'STUDY'
-            ? apiUrl("/songs/genre/STUDY")
-            : apiUrl("/songs");
+        const songs = mode === 'STUDY'
+            ? fetch(apiUrl("/songs/genre/STUDY")).then(res => res.json())
+            : fetchAllPages<any>("/songs");
 
-        fetch(url) // Public songs fetch
-            .then(res => res.json())
+        songs // Public songs fetch
             .then(data => {
                 const validSongs = normalizeSongs(data);
                 setCurrentFilteredSongs(validSongs);
@@ -273,10 +297,10 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
             return;
         }
 
-        authFetch("/playlists", {
+        fetchAllPages<any>("/playlists", path => authFetch(path, {
             headers: { Authorization: `Bearer ${token}` },
-        })
-            .then(res => res.ok ? res.json() : [])
+        }))
+            .catch(() => [])
             .then(data => setPlaylists(data))
             .catch(err => console.error("Error fetching playlists:", err));
     };
@@ -288,20 +312,15 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
         const fetchSongsAndLikes = async () => {
             try {
                 // A. Fetch all songs (public)
-                const songsResponse = await fetch(apiUrl("/songs"));
-                if (!songsResponse.ok) {
-                    throw new Error(`Failed to fetch songs: ${songsResponse.status} ${songsResponse.statusText}`);
-                }
-                const allSongsData: any[] = await songsResponse.json();
+                const allSongsData: any[] = await fetchAllPages<any>("/songs")
+                    .catch(e => { throw new Error(`Failed to fetch songs: ${e.message}`); });
 
                 // B. Fetch liked songs (only when logged in)
                 const likedSongIds = new Set<number>();
                 if (userId) {
-                    const likesResponse = await authFetch(`/songs/like?userId=${userId}`);
-                    if (likesResponse.ok) {
-                        const likedSongsData: Song[] = await likesResponse.json();
-                        likedSongsData.forEach(s => likedSongIds.add(s.id));
-                    }
+                    const likedSongsData: Song[] = await fetchAllPages<Song>(`/songs/like?userId=${userId}`, authFetch)
+                        .catch(() => []);
+                    likedSongsData.forEach(s => likedSongIds.add(s.id));
                 }
 
                 // C. Merge: mark isLiked for fast UI rendering
@@ -325,6 +344,21 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
         fetchSongsAndLikes();
     }, [userId]); // Re-run if user logs in/out
 
+    // Playlist summaries have no songs to search, so the backend finds the artist's playlists.
+    useEffect(() => {
+        if (!selectedArtistId) {
+            setArtistPlaylists([]);
+            return;
+        }
+        authFetch(`/artists/${selectedArtistId}/playlists`)
+            .then(res => {
+                if (!res.ok) throw new Error("Failed to fetch artist playlists");
+                return res.json();
+            })
+            .then(data => setArtistPlaylists(data))
+            .catch(err => console.error("Error fetching artist playlists:", err));
+    }, [selectedArtistId]);
+
     useEffect(() => {
         if (currentView === 'library') {
             authFetch(`/users/${userId}/library`)
@@ -408,6 +442,33 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
 
 
     const [filteredArtists, setFilteredArtists] = useState<Artist[]>([]);
+    const [suggestions, setSuggestions] = useState<Suggestion[]>([]);
+
+    // Autocomplete under the search box, answered from the backend's in-memory index.
+    // Waits for a pause in typing and drops answers to queries that have been typed over.
+    useEffect(() => {
+        const query = search.trim();
+        if (query === "") {
+            setSuggestions([]);
+            return;
+        }
+        const controller = new AbortController();
+        const timer = setTimeout(() => {
+            authFetch(`/search/suggest?q=${encodeURIComponent(query)}&limit=8`, { signal: controller.signal })
+                .then(res => {
+                    if (!res.ok) throw new Error(`Suggest failed: ${res.status}`);
+                    return res.json();
+                })
+                .then((data: Suggestion[]) => setSuggestions(data))
+                .catch(err => {
+                    if (err?.name !== "AbortError") console.error("Error fetching suggestions:", err);
+                });
+        }, 150);
+        return () => {
+            clearTimeout(timer);
+            controller.abort();
+        };
+    }, [search]);
 
     const handleSearchChange = (e: ChangeEvent<HTMLInputElement>) => {
         const value = e.target.value;
@@ -468,9 +529,42 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
             console.warn("No userId available; cannot open profile.");
             return;
         }
+        setProfileUserId(effectiveUserId);
         setCurrentView('profile');
     };
 
+    const handleSuggestionSelect = async (suggestion: Suggestion) => {
+        setSuggestions([]);
+        switch (suggestion.type) {
+            case 'song': {
+                let song = allSongs.find(s => s.id === suggestion.id);
+                if (!song) {
+                    try {
+                        const res = await authFetch(`/songs/${suggestion.id}`);
+                        if (!res.ok) throw new Error(`Failed to fetch song ${suggestion.id}`);
+                        song = await res.json();
+                    } catch (e) {
+                        console.error("Failed to load song:", e);
+                        return;
+                    }
+                }
+                setCurrentSong(song ?? null);
+                setIsPlaying(true);
+                break;
+            }
+            case 'artist':
+                handleArtistClick(suggestion.id);
+                break;
+            case 'playlist':
+                handlePlaylistClick(suggestion.id);
+                break;
+            case 'user':
+                setProfileUserId(suggestion.id);
+                setCurrentView('profile');
+                break;
+        }
+    };
+
     const handleLogout = () => {
         sessionStorage.removeItem("authToken");
         sessionStorage.removeItem("userId");
@@ -541,16 +635,29 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
         }
     };
 
-    const handlePlaylistClick = (playlistId: number) => {
+    const handlePlaylistClick = async (playlistId: number) => {
         setActivePlaylistId(playlistId);
         setCurrentView('playlist');
 
         const selectedPlaylist = playlists.find(p => p.id === playlistId);
+        setCurrentFilteredSongs(selectedPlaylist?.songs ?? []);
 
-        if (selectedPlaylist && selectedPlaylist.songs) {
-            setCurrentFilteredSongs(selectedPlaylist.songs);
-        } else {
-            setCurrentFilteredSongs([]);
+        // Lists only carry summaries; the songs come with the playlist's detail.
+        try {
+            const res = await authFetch(`/playlists/${playlistId}`);
+            if (!res.ok) throw new Error(`Failed to fetch playlist ${playlistId}`);
+            const full: Playlist = await res.json();
+
+            setPlaylists(prev => {
+                const idx = prev.findIndex(p => p.id === playlistId);
+                if (idx === -1) return [...prev, full];
+                const next = [...prev];
+                next[idx] = full;
+                return next;
+            });
+            setCurrentFilteredSongs(full.songs ?? []);
+        } catch (e) {
+            console.error("Failed to load playlist:", e);
         }
     };
 
@@ -733,7 +840,7 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
         }
 
         audioRef.current.src =
-            apiUrl(`/songs/${currentSong.id}/stream`);
+            apiUrl(currentSong.streamUrl ?? `/songs/${currentSong.id}/stream`);
         audioRef.current.load();
 
         if (isPlaying) {
@@ -868,6 +975,8 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
                     search={search}
                     setSearch={setSearch}
                     handleSearchChange={handleSearchChange}
+                    suggestions={suggestions}
+                    onSuggestionSelect={handleSuggestionSelect}
                     visible={visible}
                     setVisible={setVisible}
                     onStudyClick={() => setIsStudyOpen(true)}
@@ -922,7 +1031,7 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
                 )}
                 {currentView === 'profile' ? (
                     <ProfilePage
-                        userId={effectiveUserId as number}
+                        userId={(profileUserId ?? effectiveUserId) as number}
                         viewerId={effectiveUserId as number}
                         onBack={() => setCurrentView('home')}
                         onOpenPlaylist={(playlistId: number) => handlePlaylistClick(playlistId)}
@@ -940,17 +1049,15 @@ export const AppLayout: React.FC<AppLayoutProps> = ({ children, userId, onLogout
 
                         // Finding albums (Playlists with "album" in description)
                         // Added ?. to description and artist
-                        const artistAlbums = playlists.filter(p =>
-                            p.description?.toLowerCase().includes("album") &&
-                            p.songs?.some(s => s.artist?.id === selectedArtistId)
+                        const artistAlbums = artistPlaylists.filter(p =>
+                            p.description?.toLowerCase().includes("album")
                         );
 
                         // Finding playlists where this artist's music appears
                         // Added check for userId to ensure it only shows YOUR playlists
-                        const userPlaylists = playlists.filter(p =>
+                        const userPlaylists = artistPlaylists.filter(p =>
                             (p.user_id?.id === userId || p.user_id === userId) &&
-                            !p.description?.toLowerCase().includes("album") &&
-                            p.songs?.some(s => s.artist?.id === selectedArtistId)
+                            !p.description?.toLowerCase().includes("album")
                         );
 
                         return artistInfo ? (
@@ -2,6 +2,7 @@
 import React from 'react';
 import { Sidebar } from 'primereact/sidebar';
 import type { Playlist } from '../types';
+import { thumbUrl } from '../config/api';
 import AudiotrackIcon from '@mui/icons-material/Audiotrack';
 import HomeOutlinedIcon from '@mui/icons-material/HomeOutlined';
 import ExploreOutlinedIcon from '@mui/icons-material/ExploreOutlined';
@@ -102,7 +103,7 @@ export const MainSidebar: React.FC<MainSidebarProps> = ({
                         onClick={() => handlePlaylistClick(p.id)}
                     >
                         <img
-                            src={p.imageUrl}
+                            src={thumbUrl(p.imageUrl, 64)}
                             alt={p.title}
                             style={{ width: '24px', height: '24px', objectFit: 'cover' }}
                             className="rounded flex-shrink-0"
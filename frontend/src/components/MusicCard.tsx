@@ -1,5 +1,6 @@
 import React from "react";
 import type { Song } from "../types";
+import { thumbUrl } from "../config/api";
 import FavoriteIcon from '@mui/icons-material/Favorite';
 import FavoriteBorderIcon from '@mui/icons-material/FavoriteBorder';
 
@@ -25,7 +26,7 @@ export const MusicCard: React.FC<MusicCardProps> = ({ song, onSongSelect, onArti
             {/* 1. Card Image */}
             <div className="card-image" style={gradientStyle}>
                 <img
-                    src={song.imageUrl}
+                    src={thumbUrl(song.imageUrl, 300)}
                     alt={song.name}
                     style={{width: '100%', height: '100%', objectFit: 'cover', borderRadius: '8px'}}
                 />
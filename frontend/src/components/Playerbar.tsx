@@ -1,5 +1,6 @@
 // src/components/PlayerBar.tsx
 import type { Song } from '../types';
+import { thumbUrl } from '../config/api';
 import RepeatIcon from '@mui/icons-material/Repeat';
 import ShuffleIcon from '@mui/icons-material/Shuffle';
 import VolumeDownIcon from '@mui/icons-material/VolumeDown';
@@ -62,7 +63,7 @@ export const PlayerBar: React.FC<PlayerBarProps> = ({
                     className="now-playing-image w-14 h-14 rounded-lg flex items-center justify-center text-2xl"
                     style={{ background: 'linear-gradient(135deg, #f093fb 0%, #f5576c 100%)' }}>
                     <img
-                        src={currentSong.imageUrl}
+                        src={thumbUrl(currentSong.imageUrl, 64)}
                         alt={currentSong.name}
                         className="w-14 h-14 rounded-lg object-cover"
                     />
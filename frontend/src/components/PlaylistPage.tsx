@@ -1,6 +1,7 @@
 import React, {useEffect, useMemo, useRef, useState} from "react";
 import {Button} from "primereact/button";
-import { apiUrl } from "../config/api";
+import { apiUrl, fetchAllPages, thumbUrl } from "../config/api";
+import { authFetch } from "../types/authFetch";
 
 interface UserDTO {
     id: number;
@@ -30,6 +31,7 @@ interface SongDTO {
     artist: ArtistDTO;
     filepath: string;
     imageUrl: string;
+    streamUrl?: string;
 }
 
 interface PlaylistPageProps {
@@ -48,7 +50,7 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({playlistId, onBack})
     const audioRef = useRef<HTMLAudioElement>(null);
 
     const playlistUrl = useMemo(() => apiUrl(`/playlists/${playlistId}`), [playlistId]);
-    const playlistSongsUrl = useMemo(() => apiUrl(`/playlists/${playlistId}/songs`), [playlistId]);
+    const playlistSongsPath = `/playlists/${playlistId}/songs`;
 
     useEffect(() => {
         let cancelled = false;
@@ -60,10 +62,8 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({playlistId, onBack})
                 if (!res.ok) throw new Error(`${res.status} ${res.statusText}`);
                 return res.json();
             }),
-            fetch(playlistSongsUrl).then(async (res) => {
-                if (!res.ok) throw new Error(`${res.status} ${res.statusText}`);
-                return res.json();
-            }),
+            // Signed in, read-ahead is keyed by user, so this and the DELETE below both send the token.
+            fetchAllPages<SongDTO>(playlistSongsPath, authFetch),
         ])
             .then(([playlistJson, songsJson]) => {
                 if (cancelled) return;
@@ -81,13 +81,15 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({playlistId, onBack})
 
         return () => {
             cancelled = true;
+            // Stop the server warming this playlist's next tracks.
+            authFetch("/playlists/read-ahead", {method: "DELETE", keepalive: true}).catch(() => {});
         };
-    }, [playlistUrl, playlistSongsUrl]);
+    }, [playlistUrl, playlistSongsPath]);
 
     // Load+play when selecting a song
     useEffect(() => {
         if (!audioRef.current || !currentSong) return;
-        audioRef.current.src = apiUrl(`/songs/${currentSong.id}/stream`);
+        audioRef.current.src = apiUrl(currentSong.streamUrl ?? `/songs/${currentSong.id}/stream`);
         audioRef.current.play();
         setIsPlaying(true);
     }, [currentSong]);
@@ -194,7 +196,7 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({playlistId, onBack})
                                 >
                                     <div className="text-gray-400">{idx + 1}</div>
                                     <div className="flex items-center gap-3 min-w-0">
-                                        <img src={s.imageUrl} alt={s.name} className="w-10 h-10 rounded-md object-cover" />
+                                        <img src={thumbUrl(s.imageUrl, 64)} alt={s.name} className="w-10 h-10 rounded-md object-cover" />
                                         <div className="min-w-0">
                                             <div className="font-semibold truncate">{s.name}</div>
                                             <div className="text-xs text-gray-400 truncate">{playlist.title}</div>
@@ -214,7 +216,7 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({playlistId, onBack})
                     {currentSong && (
                         <div className="fixed bottom-4 left-4 right-4 bg-[#181818] border border-white/10 p-3 rounded-xl flex items-center justify-between shadow-2xl">
                             <div className="flex items-center gap-3 min-w-0">
-                                <img src={currentSong.imageUrl} alt={currentSong.name} className="w-12 h-12 rounded-md object-cover" />
+                                <img src={thumbUrl(currentSong.imageUrl, 64)} alt={currentSong.name} className="w-12 h-12 rounded-md object-cover" />
                                 <div className="min-w-0">
                                     <div className="font-semibold truncate">{currentSong.name}</div>
                                     <div className="text-sm text-gray-400 truncate">{currentSong.artist?.name ?? ""}</div>
@@ -1,7 +1,7 @@
 import * as React from "react";
 import { useEffect, useMemo, useState } from "react";
 import {Button} from "primereact/button";
-import { apiUrl } from "../config/api";
+import { apiUrl, thumbUrl } from "../config/api";
 
 interface SongDTO {
     id: number;
@@ -409,7 +409,7 @@ export const ProfilePage: React.FC<ProfilePageProps> = (props: ProfilePageProps)
                                             <div key={s.id} className="bg-[#181818] rounded-xl p-4 border border-white/5">
                                                 <div className="flex items-center gap-3">
                                                     <img
-                                                        src={s.imageUrl}
+                                                        src={thumbUrl(s.imageUrl, 64)}
                                                         alt={s.name}
                                                         className="w-14 h-14 rounded-lg object-cover bg-black/30"
                                                     />
@@ -459,7 +459,7 @@ export const ProfilePage: React.FC<ProfilePageProps> = (props: ProfilePageProps)
                                             >
                                                 <div className="relative">
                                                     <img
-                                                        src={p.imageUrl}
+                                                        src={thumbUrl(p.imageUrl, 300)}
                                                         alt={p.title}
                                                         className="w-full aspect-square object-cover rounded-lg shadow-lg"
                                                     />
@@ -518,7 +518,7 @@ export const ProfilePage: React.FC<ProfilePageProps> = (props: ProfilePageProps)
                                                 >
                                                     <div className="relative">
                                                         <img
-                                                            src={p.imageUrl}
+                                                            src={thumbUrl(p.imageUrl, 300)}
                                                             alt={p.title}
                                                             className="w-full aspect-square object-cover rounded-lg shadow-lg"
                                                         />
@@ -1,16 +1,28 @@
 // src/components/TopToolbar.tsx
 import * as React from 'react';
+import { useState } from 'react';
 import type { ChangeEvent } from 'react';
 import { Toolbar } from 'primereact/toolbar';
 import { Button } from 'primereact/button';
 import { InputText } from 'primereact/inputtext';
 import Person3Icon from '@mui/icons-material/Person3';
 import AudiotrackIcon from '@mui/icons-material/Audiotrack';
+import type { Suggestion } from '../types';
+import { thumbUrl } from '../config/api';
+
+const SUGGESTION_ICONS: Record<Suggestion['type'], string> = {
+    song: 'pi pi-play',
+    artist: 'pi pi-microphone',
+    playlist: 'pi pi-list',
+    user: 'pi pi-user',
+};
 
 interface TopToolbarProps {
     search: string;
     setSearch: (value: string) => void;
     handleSearchChange: (e: ChangeEvent<HTMLInputElement>) => void;
+    suggestions: Suggestion[];
+    onSuggestionSelect: (suggestion: Suggestion) => void;
     visible: boolean;
     setVisible: (v: boolean) => void;
     onStudyClick: () => void;
@@ -22,6 +34,8 @@ interface TopToolbarProps {
 export const TopToolbar: React.FC<TopToolbarProps> = ({
                                                            search,
                                                            handleSearchChange,
+                                                           suggestions,
+                                                           onSuggestionSelect,
                                                            visible,
                                                            setVisible,
                                                            onStudyClick,
@@ -30,6 +44,8 @@ export const TopToolbar: React.FC<TopToolbarProps> = ({
     onProfileClick
                                                        }) => {
 
+    const [focused, setFocused] = useState(false);
+
     // --- Toolbar Contents ---
 
     const leftContents = (
@@ -47,13 +63,15 @@ export const TopToolbar: React.FC<TopToolbarProps> = ({
     );
 
     const centerContents = (
-        <div className="flex items-center space-x-2 p-input-icon-left">
+        <div className="flex items-center space-x-2 p-input-icon-left" style={{ position: 'relative' }}>
             {/* The search icon remains fixed */}
             <i className="pi pi-search ml-3 mr-1 text-gray-200 absolute left-0 z-10" style={{marginLeft: '1.5rem'}}/>
 
             <InputText
                 value={search}
                 onChange={handleSearchChange}
+                onFocus={() => setFocused(true)}
+                onBlur={() => setFocused(false)}
                 placeholder="Search for songs, artists.."
                 // *Enforcing the rounded contour and background from Canva design*
                 className="search-bar bg-opacity-10 border border-opacity-20 border-white text-white rounded-full w-full"
@@ -64,6 +82,56 @@ export const TopToolbar: React.FC<TopToolbarProps> = ({
                     background: 'rgba(255, 255, 255, 0.1)', // Matches the Canva design's background
                 }}
             />
+
+            {focused && suggestions.length > 0 && (
+                <ul
+                    className="m-0 p-0 list-none"
+                    style={{
+                        position: 'absolute',
+                        top: '100%',
+                        left: 0,
+                        width: '400px',
+                        marginTop: '6px',
+                        background: 'rgba(24, 24, 24, 0.97)',
+                        border: '1px solid rgba(255, 255, 255, 0.2)',
+                        borderRadius: '12px',
+                        overflow: 'hidden',
+                    }}
+                >
+                    {suggestions.map(suggestion => (
+                        <li
+                            key={`${suggestion.type}-${suggestion.id}`}
+                            // onMouseDown so it fires before the input's blur hides the list.
+                            onMouseDown={(e) => {
+                                e.preventDefault();
+                                onSuggestionSelect(suggestion);
+                            }}
+                            className="flex items-center gap-3 px-3 py-2 cursor-pointer text-white hover:bg-white-alpha-10"
+                        >
+                            {suggestion.imageUrl ? (
+                                <img
+                                    src={thumbUrl(suggestion.imageUrl, 64)}
+                                    alt=""
+                                    style={{
+                                        width: 32,
+                                        height: 32,
+                                        objectFit: 'cover',
+                                        borderRadius: suggestion.type === 'artist' ? '50%' : '4px',
+                                    }}
+                                />
+                            ) : (
+                                <i className={SUGGESTION_ICONS[suggestion.type]} style={{ width: 32, textAlign: 'center' }} />
+                            )}
+                            <div className="flex flex-column" style={{ minWidth: 0 }}>
+                                <span className="white-space-nowrap overflow-hidden text-overflow-ellipsis">{suggestion.name}</span>
+                                <span className="text-sm text-gray-400 white-space-nowrap overflow-hidden text-overflow-ellipsis">
+                                    {suggestion.subtitle ? `${suggestion.type} · ${suggestion.subtitle}` : suggestion.type}
+                                </span>
+                            </div>
+                        </li>
+                    ))}
+                </ul>
+            )}
         </div>
 
     );
@@ -19,3 +19,36 @@ export function apiUrl(path: string): string {
   return `${API_BASE_URL.replace(/\/$/, "")}${normalizedPath}`;
 }
 
+
+/**
+ * Asks the backend for a downscaled cover (64, 300 or 640 px wide) instead of the full upload.
+ * URLs not served by our image endpoint are returned unchanged.
+ */
+export function thumbUrl(url: string | undefined | null, size: number): string | undefined {
+  if (!url) return url ?? undefined;
+  if (!url.includes("/songs/image/")) return url;
+  return `${url}${url.includes("?") ? "&" : "?"}size=${size}`;
+}
+
+/**
+ * Fetches every page of a list endpoint. Lists are paged with an opaque cursor that the backend
+ * returns in the X-Next-Cursor header (absent on the last page). `fetchPage` defaults to a plain
+ * fetch of the API path; pass authFetch for endpoints that need the token.
+ */
+export async function fetchAllPages<T>(
+  path: string,
+  fetchPage: (path: string) => Promise<Response> = (p) => fetch(apiUrl(p)),
+  limit = 500
+): Promise<T[]> {
+  const items: T[] = [];
+  let cursor: string | null = null;
+  do {
+    const separator = path.includes("?") ? "&" : "?";
+    const query = `limit=${limit}${cursor ? `&cursor=${encodeURIComponent(cursor)}` : ""}`;
+    const res = await fetchPage(`${path}${separator}${query}`);
+    if (!res.ok) throw new Error(`${res.status} ${res.statusText}`);
+    items.push(...((await res.json()) as T[]));
+    cursor = res.headers.get("X-Next-Cursor");
+  } while (cursor);
+  return items;
+}
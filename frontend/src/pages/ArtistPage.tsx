@@ -1,6 +1,7 @@
 // src/pages/ArtistPage.tsx
 import React from 'react';
 import type { Artist, Song, Playlist } from '../types';
+import { thumbUrl } from '../config/api';
 import PlayArrowIcon from '@mui/icons-material/PlayArrow';
 import VerifiedIcon from '@mui/icons-material/Verified';
 
@@ -85,7 +86,7 @@ export const ArtistPage: React.FC<ArtistPageProps> = ({
                                 {/* 2. FIXED RAIL: IMAGE (50px) */}
                                 <div className="flex-shrink-0 flex justify-start" style={{ width: '50px' }}>
                                     <img
-                                        src={song.imageUrl}
+                                        src={thumbUrl(song.imageUrl, 64)}
                                         alt={song.name}
                                         style={{
                                             width: '32px',
@@ -1,5 +1,6 @@
 import React from 'react';
 import type { Song } from '../types';
+import { thumbUrl } from '../config/api';
 import PlayArrowIcon from '@mui/icons-material/PlayArrow';
 import FavoriteIcon from '@mui/icons-material/Favorite';
 import FavoriteBorderIcon from '@mui/icons-material/FavoriteBorder';
@@ -52,7 +53,7 @@ export const FavoritesPage: React.FC<FavoritesPageProps> = ({ songs, handleSongS
 
                             <td className="p-3 w-16 align-middle">
                                 <img
-                                    src={song.imageUrl || 'https://via.placeholder.com/40'}
+                                    src={thumbUrl(song.imageUrl, 64) || 'https://via.placeholder.com/40'}
                                     alt={song.name}
                                     style={{width: '48px', height: '48px', borderRadius: '4px', objectFit: 'cover'}}
                                 />
@@ -1,6 +1,7 @@
 // src/pages/LibraryPage.tsx
 import React from 'react';
 import type { UserLibrary } from '../types';
+import { thumbUrl } from '../config/api';
 import PersonIcon from '@mui/icons-material/Person';
 
 interface LibraryPageProps {
@@ -37,7 +38,7 @@ export const LibraryPage: React.FC<LibraryPageProps> = ({ library, onPlaylistCli
                             >
                                 <div className="relative w-full aspect-square mb-4 shadow-[0_8px_24px_rgba(0,0,0,0.5)]">
                                     <img
-                                        src={playlist.imageUrl || '/default-playlist.png'}
+                                        src={thumbUrl(playlist.imageUrl, 300) || '/default-playlist.png'}
                                         alt={playlist.title}
                                         className="w-full h-full object-cover rounded-md"
                                     />
@@ -10,7 +10,7 @@ interface PlaylistFormPageProps {
     initialValues?: {
         title: string;
         description: string;
-        songs: Song[];
+        songs?: Song[];
     };
 }
 
@@ -24,7 +24,7 @@ export const PlaylistFormPage: React.FC<PlaylistFormPageProps> = ({ songs, onSub
         if (initialValues) {
             setTitle(initialValues.title);
             setDescription(initialValues.description || '');
-            const ids = new Set(initialValues.songs.map(s => s.id));
+            const ids = new Set((initialValues.songs ?? []).map(s => s.id));
             setSelectedSongIds(ids);
         }
     }, [initialValues]);
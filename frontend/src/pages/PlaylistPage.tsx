@@ -1,6 +1,7 @@
 // src/pages/PlaylistPage.tsx
 import React from 'react';
 import type { Playlist, Song } from '../types';
+import { thumbUrl } from '../config/api';
 import PlayArrowIcon from '@mui/icons-material/PlayArrow';
 import EditIcon from '@mui/icons-material/Edit';
 import DeleteOutlineIcon from '@mui/icons-material/DeleteOutline';
@@ -56,7 +57,7 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({
                     <div className="flex items-center gap-1 text-xs md:text-sm font-bold mt-2">
                         <span>User</span>
                         <span className="text-white mx-1">•</span>
-                        <span className="text-gray-300 font-medium">{playlist.songs?.length || 0} songs</span>
+                        <span className="text-gray-300 font-medium">{playlist.songCount ?? playlist.songs?.length ?? 0} songs</span>
                     </div>
                 </div>
             </div>
@@ -65,7 +66,7 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({
             <div className="px-6 py-4 bg-gradient-to-b from-black/10 to-[#121212] flex items-center gap-4">
                 <button
                     className="bg-[#ff5e00] hover:bg-[#ff904f] text-black rounded-full p-3 shadow-lg transform transition hover:scale-105 flex items-center justify-center"
-                    onClick={() => playlist.songs?.length > 0 && onSongSelect(playlist.songs[0])}
+                    onClick={() => playlist.songs?.length && onSongSelect(playlist.songs[0])}
                     title="Play"
                 >
                     <PlayArrowIcon style={{ fontSize: 28 }} className="ml-0.5"/>
@@ -118,7 +119,7 @@ export const PlaylistPage: React.FC<PlaylistPageProps> = ({
                             {/* 2. Title Column */}
                             <div className="flex items-center gap-3 overflow-hidden min-w-0">
                                 <img
-                                    src={song.imageUrl}
+                                    src={thumbUrl(song.imageUrl, 64)}
                                     alt=""
                                     style={{ width: '40px', height: '40px', objectFit: 'cover' }}
                                     className="rounded-[4px] shadow-sm flex-shrink-0 bg-[#333]"
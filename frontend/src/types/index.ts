@@ -14,6 +14,8 @@ export interface Song {
     genre: string;
     filepath: string;
     imageUrl: string;
+    streamUrl?: string;
+    hlsUrl?: string;
     isLiked?: boolean;
 }
 
@@ -24,7 +26,17 @@ export interface Playlist {
     description: string;
     visibility: string;
     user_id?: { id: number };// ADDED: Fixes the "Property description does not exist" error
-    songs: Song[];       // ADDED: Required to list songs in the playlist page
+    songs?: Song[];      // Only on the detail (GET /playlists/{id}); lists carry songCount instead
+    songCount?: number;
+}
+
+// One hit of GET /search/suggest; subtitle is the artist (songs) or owner (playlists).
+export interface Suggestion {
+    type: 'song' | 'artist' | 'playlist' | 'user';
+    id: number;
+    name: string;
+    subtitle?: string | null;
+    imageUrl?: string | null;
 }
 
 export interface UserLibrary {